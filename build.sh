@@ -38,8 +38,8 @@ check_java() {
     fi
     
     java_version=$(java -version 2>&1 | head -1 | cut -d'"' -f2 | cut -d'.' -f1)
-    if [ "$java_version" -lt 17 ]; then
-        echo -e "${RED}Java 17 or higher is required!${NC}"
+    if [ "$java_version" -lt 21 ]; then
+        echo -e "${RED}Java 21 or higher is required!${NC}"
         echo -e "${YELLOW}Current version:${NC} $(java -version 2>&1 | head -1)"
         exit 1
     fi
@@ -0,0 +1,86 @@
+package com.assignment.dataset.benchmark;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.controller.DatasetController;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.metrics.QueryMetrics;
+import com.assignment.dataset.repository.RecordRepository;
+import com.assignment.dataset.service.DatasetServiceImpl;
+import com.assignment.dataset.service.DatasetVersions;
+import com.assignment.dataset.service.GroupByViews;
+import com.assignment.dataset.service.QueryAdmission;
+import com.assignment.dataset.service.QueryCoalescer;
+import com.assignment.dataset.service.RecordBatchWriter;
+import com.assignment.dataset.service.RecordStorage;
+import com.assignment.dataset.service.WriteBehindQueue;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import com.assignment.dataset.service.cache.SerializedResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+/**
+ * Service and controller wired over a synthetic in-memory dataset
+ * Pushdown is unavailable and the columnar cache is disabled, so queries run the
+ * in-memory group/sort code
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+
+    static final String DATASET = SyntheticDatasets.DATASET_NAME;
+
+    @Param({"1000", "100000", "1000000"})
+    public int recordCount;
+
+    /**
+     * Allow the fork/join path (dataset.query.parallel-enabled) for datasets above the default threshold
+     */
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    DatasetServiceImpl service;
+    DatasetController controller;
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getQuery().setParallelEnabled(parallel);
+        // Same settings as the application: spring.jackson.serialization.indent-output=true
+        wire(SyntheticDatasets.generate(recordCount, 42L), properties,
+                Jackson2ObjectMapperBuilder.json().indentOutput(true).build());
+    }
+
+    /**
+     * Wire the service and controller over the records
+     */
+    void wire(List<DatasetRecord> records, DatasetProperties properties, ObjectMapper objectMapper) {
+        RecordRepository repository = InMemoryDatasetRepository.of(records);
+        // Measure the query itself rather than serving repeated calls from their cached bytes
+        properties.getResponseCache().setEnabled(false);
+        ColumnarDatasetCache cache = new ColumnarDatasetCache(repository, properties);
+
+        GroupByViews views = new GroupByViews(repository);
+        DatasetVersions versions = new DatasetVersions();
+        RecordStorage storage = new RecordStorage(repository, properties);
+        QueryMetrics metrics = new QueryMetrics(new SimpleMeterRegistry(), properties);
+
+        RecordBatchWriter batchWriter = new RecordBatchWriter(repository, views, storage);
+        WriteBehindQueue writeBehind = new WriteBehindQueue(properties, batchWriter, cache, versions, objectMapper);
+        service = new DatasetServiceImpl(repository, batchWriter, properties,
+                cache, InMemoryDatasetRepository.noFieldIndexes(), views, InMemoryDatasetRepository.noGroupViews(),
+                versions, storage, metrics, writeBehind);
+
+        this.objectMapper = objectMapper;
+        controller = new DatasetController(service, objectMapper, cache, new QueryAdmission(properties),
+                new QueryCoalescer(versions, properties), new SerializedResponseCache(properties), versions,
+                metrics, writeBehind);
+    }
+}
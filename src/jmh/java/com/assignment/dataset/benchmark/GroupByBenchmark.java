@@ -0,0 +1,32 @@
+package com.assignment.dataset.benchmark;
+
+import com.assignment.dataset.dto.DatasetDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of group-by on a string field with null and missing values,
+ * on its own and through the controller including JSON serialization
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec -Djmh.args="GroupByBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GroupByBenchmark {
+
+    @Benchmark
+    public DatasetDTO.GroupedRecordsResponse groupBy(DatasetState state) {
+        return state.service.queryWithGroupBy(DatasetState.DATASET, "department");
+    }
+
+    @Benchmark
+    public byte[] groupByAndSerialize(DatasetState state) {
+        // The controller returns the serialized JSON body
+        return (byte[]) state.controller.queryDataset(DatasetState.DATASET, "department", null, null, null, null, null,
+                null, null, null, null).getBody();
+    }
+}
@@ -0,0 +1,96 @@
+package com.assignment.dataset.benchmark;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.repository.DatasetFieldIndexRepository;
+import com.assignment.dataset.repository.DatasetGroupViewRepository;
+import com.assignment.dataset.repository.RecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository stand-in serving a fixed list of records without a database
+ * Reports no JSON pushdown support so queries take the in-memory path
+ */
+final class InMemoryDatasetRepository {
+
+    private InMemoryDatasetRepository() {
+    }
+
+    static RecordRepository of(List<DatasetRecord> records) {
+        List<DatasetRecord> unparsed = unparsed(records);
+        return (RecordRepository) Proxy.newProxyInstance(
+                RecordRepository.class.getClassLoader(),
+                new Class<?>[]{RecordRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByDatasetName" -> records;
+                    case "findUnparsedByDatasetName" -> unparsed;
+                    case "jsonPushdown" -> Optional.empty();
+                    case "existsByDatasetName" -> !records.isEmpty();
+                    case "countByDatasetName" -> (long) records.size();
+                    case "findFirstByDatasetName" -> records.stream().findFirst();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryDatasetRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Copies of the records holding their JSON text, as the database returns them to unparsed scans
+     */
+    private static List<DatasetRecord> unparsed(List<DatasetRecord> records) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<DatasetRecord> unparsed = new ArrayList<>(records.size());
+        for (DatasetRecord record : records) {
+            try {
+                unparsed.add(DatasetRecord.builder()
+                        .id(record.getId())
+                        .datasetName(record.getDatasetName())
+                        .recordJson(objectMapper.writeValueAsString(record.getRecordData()))
+                        .build());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return unparsed;
+    }
+
+    /**
+     * Field index registry without declared indexes
+     */
+    static DatasetFieldIndexRepository noFieldIndexes() {
+        return (DatasetFieldIndexRepository) Proxy.newProxyInstance(
+                DatasetFieldIndexRepository.class.getClassLoader(),
+                new Class<?>[]{DatasetFieldIndexRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll", "findByDatasetNameOrderByIdAsc" -> List.of();
+                    case "existsByDatasetNameAndFieldName" -> false;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryDatasetRepository.noFieldIndexes";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Group-by view registry without registered views
+     */
+    static DatasetGroupViewRepository noGroupViews() {
+        return (DatasetGroupViewRepository) Proxy.newProxyInstance(
+                DatasetGroupViewRepository.class.getClassLoader(),
+                new Class<?>[]{DatasetGroupViewRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> List.of();
+                    case "existsByDatasetNameAndGroupByFieldsAndAggregates" -> false;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryDatasetRepository.noGroupViews";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
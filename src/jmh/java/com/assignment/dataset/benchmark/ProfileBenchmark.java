@@ -0,0 +1,91 @@
+package com.assignment.dataset.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.assignment.dataset.config.DatasetProperties;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of queries through the controller under the default (development) settings
+ * and the prod profile (application-prod.properties)
+ * - default: INFO logging for the application and indented JSON
+ * - prod: WARN logging and compact JSON
+ * Log events are formatted into a discarding appender, so the cost of building and
+ * encoding them is measured without console output
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec -Djmh.args="ProfileBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProfileBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ProfileState {
+
+        @Param({"default", "prod"})
+        public String profile;
+
+        @Param({"100000"})
+        public int recordCount;
+
+        final DatasetState dataset = new DatasetState();
+
+        private Logger logger;
+        private OutputStreamAppender<ILoggingEvent> appender;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            boolean prod = profile.equals("prod");
+
+            // logging.level.com.assignment.dataset: INFO by default, WARN in prod
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+            encoder.setContext(context);
+            encoder.setPattern("%d{HH:mm:ss.SSS} %-5level %logger{36} - %msg%n");
+            encoder.start();
+            appender = new OutputStreamAppender<>();
+            appender.setContext(context);
+            appender.setEncoder(encoder);
+            appender.setOutputStream(OutputStream.nullOutputStream());
+            appender.start();
+            logger = context.getLogger("com.assignment.dataset");
+            logger.setLevel(prod ? ch.qos.logback.classic.Level.WARN : ch.qos.logback.classic.Level.INFO);
+            logger.setAdditive(false);
+            logger.addAppender(appender);
+
+            // spring.jackson.serialization.indent-output: true by default, false in prod
+            dataset.wire(SyntheticDatasets.generate(recordCount, 42L), new DatasetProperties(),
+                    Jackson2ObjectMapperBuilder.json().indentOutput(!prod).build());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            logger.detachAppender(appender);
+            appender.stop();
+        }
+    }
+
+    @Benchmark
+    public byte[] groupByAndSerialize(ProfileState state) {
+        // department is missing or null in a tenth of the records
+        return (byte[]) state.dataset.controller.queryDataset(DatasetState.DATASET, "department", null, null, null,
+                null, null, null, null, null, null).getBody();
+    }
+
+    @Benchmark
+    public byte[] sortPageAndSerialize(ProfileState state) {
+        return (byte[]) state.dataset.controller.queryDataset(DatasetState.DATASET, null, "score", "desc", 100,
+                null, null, null, null, null, null).getBody();
+    }
+}
@@ -0,0 +1,57 @@
+package com.assignment.dataset.benchmark;
+
+import com.assignment.dataset.dto.DatasetDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of sort-by in both directions, of a top-ten page, and through the controller
+ * including JSON serialization of whole and projected records
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec -Djmh.args="SortByBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SortByBenchmark {
+
+    /**
+     * score is numeric with missing values; mixed exercises the cross-type comparison
+     */
+    @Param({"score", "mixed"})
+    public String sortField;
+
+    @Benchmark
+    public DatasetDTO.SortedRecordsResponse sortAsc(DatasetState state) {
+        return state.service.queryWithSortBy(DatasetState.DATASET, sortField, "asc");
+    }
+
+    @Benchmark
+    public DatasetDTO.SortedRecordsResponse sortDesc(DatasetState state) {
+        return state.service.queryWithSortBy(DatasetState.DATASET, sortField, "desc");
+    }
+
+    @Benchmark
+    public DatasetDTO.SortedRecordsResponse sortTopTen(DatasetState state) {
+        // Only the ten returned records are parsed whole
+        return state.service.queryWithSortBy(DatasetState.DATASET, sortField, "desc", 10, null);
+    }
+
+    @Benchmark
+    public byte[] sortAndSerialize(DatasetState state) {
+        // The controller returns the serialized JSON body
+        return (byte[]) state.controller.queryDataset(DatasetState.DATASET, null, sortField, "asc", null, null, null,
+                null, null, null, null).getBody();
+    }
+
+    @Benchmark
+    public byte[] sortProjectedAndSerialize(DatasetState state) {
+        // Only two fields of each record are decoded and written
+        return (byte[]) state.controller.queryDataset(DatasetState.DATASET, null, sortField, "asc", null, null, null,
+                null, "id,name", null, null).getBody();
+    }
+}
@@ -0,0 +1,80 @@
+package com.assignment.dataset.benchmark;
+
+import com.assignment.dataset.entity.DatasetRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic datasets for benchmarks
+ * Records mimic what Jackson decodes from the API: integers, doubles, strings,
+ * booleans, explicit nulls and missing fields
+ */
+final class SyntheticDatasets {
+
+    static final String DATASET_NAME = "benchmark_dataset";
+
+    private static final String[] DEPARTMENTS = {
+            "Engineering", "Marketing", "Sales", "Finance", "Support", "Legal", "Operations",
+            "Research", "Design", "Security", "Data", "Product", "People", "Facilities",
+            "Procurement", "Quality", "Logistics", "Training", "Strategy", "Platform"
+    };
+
+    private SyntheticDatasets() {
+    }
+
+    /**
+     * Generate records with IDs 1..count
+     * <ul>
+     *   <li>department: one of 20 strings, 5% JSON null, 5% missing</li>
+     *   <li>score: 60% integer, 30% decimal, 10% missing</li>
+     *   <li>name: high-cardinality string</li>
+     *   <li>mixed: 50% number, 40% string, 5% JSON null, 5% missing</li>
+     * </ul>
+     */
+    static List<DatasetRecord> generate(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<DatasetRecord> records = new ArrayList<>(count);
+
+        for (int i = 1; i <= count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", i);
+            data.put("name", "user-" + Integer.toString(random.nextInt(count * 10 + 1), 36));
+
+            int department = random.nextInt(100);
+            if (department < 5) {
+                data.put("department", null);
+            } else if (department >= 10) {
+                data.put("department", DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            }
+
+            int score = random.nextInt(100);
+            if (score < 60) {
+                data.put("score", random.nextInt(100_000));
+            } else if (score < 90) {
+                data.put("score", Math.round(random.nextDouble() * 10_000_000) / 100.0);
+            }
+
+            int mixed = random.nextInt(100);
+            if (mixed < 50) {
+                data.put("mixed", random.nextInt(1000));
+            } else if (mixed < 90) {
+                data.put("mixed", "v" + random.nextInt(1000));
+            } else if (mixed < 95) {
+                data.put("mixed", null);
+            }
+
+            data.put("active", random.nextBoolean());
+
+            records.add(DatasetRecord.builder()
+                    .id((long) i)
+                    .datasetName(DATASET_NAME)
+                    .recordData(data)
+                    .build());
+        }
+        return records;
+    }
+}
@@ -1,12 +1,15 @@
 package com.assignment.dataset;
 
+import com.assignment.dataset.config.DatasetProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 /**
  * Main Spring Boot Application for JSON Dataset Management
  */
 @SpringBootApplication
+@EnableConfigurationProperties(DatasetProperties.class)
 public class JsonDatasetApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,79 @@
+package com.assignment.dataset.codec;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fields to keep when projecting records
+ *
+ * A tree of field names: a selected name either keeps its whole value or selects fields
+ * of the nested object below it. A dotted field selects both the top-level key with that
+ * exact name and the nested path, matching how queries resolve fields. Projected records
+ * keep the record's field order and omit fields they do not have
+ */
+public final class FieldSelection {
+
+    /**
+     * Selected names; a null value keeps the whole value
+     */
+    final Map<String, FieldSelection> fields = new LinkedHashMap<>();
+
+    private FieldSelection() {
+    }
+
+    /**
+     * Compile a list of field names and dotted paths
+     */
+    public static FieldSelection of(List<String> fields) {
+        FieldSelection selection = new FieldSelection();
+        for (String field : fields) {
+            selection.fields.put(field, null);
+            if (field.indexOf('.') >= 0) {
+                selection.selectPath(field.split("\\.", -1));
+            }
+        }
+        return selection;
+    }
+
+    private void selectPath(String[] segments) {
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                return;
+            }
+        }
+
+        FieldSelection parent = this;
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (parent.fields.containsKey(segments[i]) && parent.fields.get(segments[i]) == null) {
+                // The whole value is already selected
+                return;
+            }
+            parent = parent.fields.computeIfAbsent(segments[i], k -> new FieldSelection());
+        }
+        parent.fields.put(segments[segments.length - 1], null);
+    }
+
+    /**
+     * Project a decoded record
+     */
+    public Map<String, Object> apply(Map<String, Object> data) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            if (!fields.containsKey(field.getKey())) {
+                continue;
+            }
+            FieldSelection nested = fields.get(field.getKey());
+            if (nested == null) {
+                projected.put(field.getKey(), field.getValue());
+            } else if (field.getValue() instanceof Map<?, ?> object) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> nestedProjection = nested.apply((Map<String, Object>) object);
+                if (!nestedProjection.isEmpty()) {
+                    projected.put(field.getKey(), nestedProjection);
+                }
+            }
+        }
+        return projected;
+    }
+}
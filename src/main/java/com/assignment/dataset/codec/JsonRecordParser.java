@@ -0,0 +1,164 @@
+package com.assignment.dataset.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads records kept as JSON text
+ *
+ * Whole records are parsed the way the record_data column mapping parses them. Single
+ * fields are pulled out with a streaming parser that stops at the field and skips the
+ * contents of every other object and array, so a group or sort key is read without
+ * building the record's map or the values of its other fields
+ */
+public final class JsonRecordParser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {
+    };
+
+    private JsonRecordParser() {
+    }
+
+    /**
+     * Parse a whole record, preserving field order
+     */
+    public static Map<String, Object> parse(String json) {
+        try {
+            return MAPPER.readValue(json, RECORD_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse record", e);
+        }
+    }
+
+    /**
+     * Parse only the selected fields of a record, skipping over the values of the others
+     */
+    public static Map<String, Object> parse(String json, FieldSelection selection) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            parser.nextToken();
+            return readSelected(parser, selection);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse record", e);
+        }
+    }
+
+    /**
+     * Read the selected fields of the object the parser is on, leaving the parser at its end
+     */
+    private static Map<String, Object> readSelected(JsonParser parser, FieldSelection selection)
+            throws IOException {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!selection.fields.containsKey(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            FieldSelection nested = selection.fields.get(name);
+            if (nested == null) {
+                projected.put(name, value == JsonToken.VALUE_NULL ? null : MAPPER.readValue(parser, Object.class));
+            } else if (value == JsonToken.START_OBJECT) {
+                Map<String, Object> nestedProjection = readSelected(parser, nested);
+                if (!nestedProjection.isEmpty()) {
+                    projected.put(name, nestedProjection);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Compile a reader for one field
+     *
+     * @param path     the field name, read as a top-level key first
+     * @param segments the dotted path into nested objects, or null for a plain name
+     */
+    public static FieldReader fieldReader(String path, String[] segments) {
+        return new FieldReader(path, segments);
+    }
+
+    /**
+     * Reads one field of JSON records without parsing the other fields
+     */
+    public static final class FieldReader {
+
+        private final String name;
+        private final String[] segments;
+
+        private FieldReader(String name, String[] segments) {
+            this.name = name;
+            this.segments = segments;
+        }
+
+        /**
+         * @return the value as the whole-record parse would produce it, or null when missing or JSON null
+         */
+        public Object read(String json) {
+            try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+
+                // A top-level key with the exact name wins over the nested path wherever it appears,
+                // so the nested value is only kept as a candidate until the object ends
+                Object nested = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (field.equals(name)) {
+                        return readValue(parser);
+                    }
+                    if (segments != null && field.equals(segments[0])) {
+                        nested = readNested(parser, 1);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return nested;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse record", e);
+            }
+        }
+
+        /**
+         * Follow the remaining path segments from the value the parser is on, leaving the
+         * parser after that value
+         */
+        private Object readNested(JsonParser parser, int segment) throws IOException {
+            if (segment == segments.length) {
+                return readValue(parser);
+            }
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return null;
+            }
+
+            Object value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals(segments[segment])) {
+                    value = readNested(parser, segment + 1);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return value;
+        }
+
+        private static Object readValue(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : MAPPER.readValue(parser, Object.class);
+        }
+    }
+}
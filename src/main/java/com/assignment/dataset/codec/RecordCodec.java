@@ -0,0 +1,426 @@
+package com.assignment.dataset.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of JSON records
+ *
+ * A record is a version byte followed by an object. Every object starts with a field
+ * table (field count, then per field its UTF-8 name and the 4-byte offset of its value
+ * from the start of the object) followed by the values in field order, so a single field,
+ * including one inside nested objects, is read by jumping to its offset without decoding
+ * the rest of the record. Values are a type tag and a payload: zigzag varints for integers,
+ * 8-byte doubles, length-prefixed UTF-8 for strings and arbitrary-precision numbers, and
+ * a count followed by the elements for arrays. Decoding restores the field order and the
+ * Java types produced by Jackson (Integer, Long, BigInteger, Double, BigDecimal)
+ */
+public final class RecordCodec {
+
+    private static final byte VERSION = (byte) 0xB1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte STRING = 8;
+    private static final byte ARRAY = 9;
+    private static final byte OBJECT = 10;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * Encode a decoded JSON record
+     */
+    public static byte[] encode(Map<String, Object> record) {
+        Output out = new Output(256);
+        out.write(VERSION);
+        writeObject(out, record);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a whole record, preserving field order
+     */
+    public static Map<String, Object> decode(byte[] record) {
+        checkVersion(record);
+        Input in = new Input(record, 1);
+        return readObject(in);
+    }
+
+    /**
+     * Decode only the selected fields of a record, jumping over the values of the others
+     */
+    public static Map<String, Object> decode(byte[] record, FieldSelection selection) {
+        checkVersion(record);
+        return readSelected(record, 1, selection);
+    }
+
+    /**
+     * Compile a reader for one field
+     *
+     * @param path     the field name, read as a top-level key first
+     * @param segments the dotted path into nested objects, or null for a plain name
+     */
+    public static FieldReader fieldReader(String path, String[] segments) {
+        byte[][] segmentNames = null;
+        if (segments != null) {
+            segmentNames = new byte[segments.length][];
+            for (int i = 0; i < segments.length; i++) {
+                segmentNames[i] = segments[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return new FieldReader(path.getBytes(StandardCharsets.UTF_8), segmentNames);
+    }
+
+    /**
+     * Reads one field of encoded records without decoding the other fields
+     */
+    public static final class FieldReader {
+
+        private final byte[] name;
+        private final byte[][] segments;
+
+        private FieldReader(byte[] name, byte[][] segments) {
+            this.name = name;
+            this.segments = segments;
+        }
+
+        /**
+         * @return the value, or null when missing or JSON null
+         */
+        public Object read(byte[] record) {
+            checkVersion(record);
+            int position = valuePosition(record, 1, name);
+            if (position >= 0 || segments == null) {
+                return position >= 0 ? readValue(new Input(record, position)) : null;
+            }
+
+            int object = 1;
+            for (int i = 0; i < segments.length; i++) {
+                position = valuePosition(record, object, segments[i]);
+                if (position < 0) {
+                    return null;
+                }
+                if (i < segments.length - 1) {
+                    if (record[position] != OBJECT) {
+                        return null;
+                    }
+                    object = position + 1;
+                }
+            }
+            return readValue(new Input(record, position));
+        }
+    }
+
+    /**
+     * Position of a field's value in the object starting at the given position, or -1
+     */
+    private static int valuePosition(byte[] record, int object, byte[] name) {
+        Input in = new Input(record, object);
+        int fields = in.readVarint();
+        for (int i = 0; i < fields; i++) {
+            int length = in.readVarint();
+            boolean matches = length == name.length
+                    && Arrays.equals(record, in.position, in.position + length, name, 0, length);
+            in.position += length;
+            int offset = in.readInt();
+            if (matches) {
+                return object + offset;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> readSelected(byte[] record, int object, FieldSelection selection) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        Input in = new Input(record, object);
+        int fields = in.readVarint();
+        for (int i = 0; i < fields; i++) {
+            String name = in.readString();
+            int position = object + in.readInt();
+            if (!selection.fields.containsKey(name)) {
+                continue;
+            }
+            FieldSelection nested = selection.fields.get(name);
+            if (nested == null) {
+                projected.put(name, readValue(new Input(record, position)));
+            } else if (record[position] == OBJECT) {
+                Map<String, Object> nestedProjection = readSelected(record, position + 1, nested);
+                if (!nestedProjection.isEmpty()) {
+                    projected.put(name, nestedProjection);
+                }
+            }
+        }
+        return projected;
+    }
+
+    private static void checkVersion(byte[] record) {
+        if (record.length == 0 || record[0] != VERSION) {
+            throw new IllegalArgumentException("Not an encoded record");
+        }
+    }
+
+    private static void writeObject(Output out, Map<?, ?> object) {
+        int fields = object.size();
+        byte[][] names = new byte[fields][];
+        int[] valueStarts = new int[fields];
+        Output values = new Output(64);
+
+        int tableSize = varintSize(fields);
+        int i = 0;
+        for (Map.Entry<?, ?> field : object.entrySet()) {
+            names[i] = String.valueOf(field.getKey()).getBytes(StandardCharsets.UTF_8);
+            tableSize += varintSize(names[i].length) + names[i].length + 4;
+            valueStarts[i] = values.size;
+            writeValue(values, field.getValue());
+            i++;
+        }
+
+        out.writeVarint(fields);
+        for (i = 0; i < fields; i++) {
+            out.writeVarint(names[i].length);
+            out.write(names[i]);
+            out.writeInt(tableSize + valueStarts[i]);
+        }
+        out.write(values.buffer, 0, values.size);
+    }
+
+    private static void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.write(INT);
+            out.writeZigzag(((Number) value).longValue());
+        } else if (value instanceof Long number) {
+            out.write(LONG);
+            out.writeZigzag(number);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof BigInteger number) {
+            out.write(BIG_INTEGER);
+            out.writeString(number.toString());
+        } else if (value instanceof BigDecimal number) {
+            out.write(BIG_DECIMAL);
+            out.writeString(number.toString());
+        } else if (value instanceof Map<?, ?> object) {
+            out.write(OBJECT);
+            writeObject(out, object);
+        } else if (value instanceof List<?> array) {
+            out.write(ARRAY);
+            out.writeVarint(array.size());
+            for (Object element : array) {
+                writeValue(out, element);
+            }
+        } else {
+            out.write(STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static Map<String, Object> readObject(Input in) {
+        int fields = in.readVarint();
+        String[] names = new String[fields];
+        for (int i = 0; i < fields; i++) {
+            names[i] = in.readString();
+            in.position += 4;
+        }
+
+        // Values follow the table in field order
+        Map<String, Object> object = new LinkedHashMap<>(Math.max(4, (int) (fields / 0.75f) + 1));
+        for (String name : names) {
+            object.put(name, readValue(in));
+        }
+        return object;
+    }
+
+    private static Object readValue(Input in) {
+        byte tag = in.buffer[in.position++];
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return (int) in.readZigzag();
+            case LONG:
+                return in.readZigzag();
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case STRING:
+                return in.readString();
+            case ARRAY: {
+                int size = in.readVarint();
+                List<Object> array = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(readValue(in));
+                }
+                return array;
+            }
+            case OBJECT:
+                return readObject(in);
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag + " at " + (in.position - 1));
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Growable output buffer
+     */
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        private Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void write(byte value) {
+            ensure(1);
+            buffer[size++] = value;
+        }
+
+        private void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeZigzag(long value) {
+            long encoded = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((encoded & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((encoded & 0x7F) | 0x80);
+                encoded >>>= 7;
+            }
+            buffer[size++] = (byte) encoded;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Read position over an encoded record
+     */
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        private Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer[position++];
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            return value;
+        }
+
+        private long readZigzag() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer[position++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readInt() {
+            int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+                    | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+            position += 4;
+            return value;
+        }
+
+        private long readLong() {
+            long high = readInt() & 0xFFFFFFFFL;
+            return (high << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private String readString() {
+            int length = readVarint();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.assignment.dataset.config;
+
+import com.assignment.dataset.entity.RecordFormat;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Tunable settings for dataset queries and ingestion (prefix "dataset")
+ */
+@Data
+@ConfigurationProperties(prefix = "dataset")
+public class DatasetProperties {
+
+    private Query query = new Query();
+    private Ingest ingest = new Ingest();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Cache cache = new Cache();
+    private Admission admission = new Admission();
+    private ResponseCache responseCache = new ResponseCache();
+    private Storage storage = new Storage();
+    private Metrics metrics = new Metrics();
+
+    /**
+     * Query execution settings
+     */
+    @Data
+    public static class Query {
+        /**
+         * Evaluate group/sort in the database when it supports JSON expressions; unset enables it
+         * only where the database evaluates them natively (PostgreSQL, not H2)
+         */
+        private Boolean pushdownEnabled;
+
+        /**
+         * Rows fetched per round trip when scanning large datasets
+         */
+        private int fetchSize = 500;
+
+        /**
+         * Run in-memory group/sort on the common fork/join pool for large datasets
+         */
+        private boolean parallelEnabled = true;
+
+        /**
+         * Record count from which in-memory group/sort run in parallel
+         */
+        private int parallelThreshold = 50_000;
+
+        /**
+         * How long an identical query keeps being answered with a completed result, unless
+         * records are inserted into the dataset first; zero shares only in-flight queries
+         */
+        private Duration resultTtl = Duration.ZERO;
+    }
+
+    /**
+     * Bulk ingestion settings
+     */
+    @Data
+    public static class Ingest {
+        /**
+         * Records written per transaction and JDBC batch
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * Write-behind settings for single-record inserts
+     */
+    @Data
+    public static class WriteBehind {
+        /**
+         * Acknowledge inserts once queued and commit them in the background in group commits
+         */
+        private boolean enabled = false;
+
+        /**
+         * Records waiting to be committed; further inserts are rejected with 503
+         */
+        private int queueCapacity = 10_000;
+
+        /**
+         * Records committed per group commit at most
+         */
+        private int flushRecords = 500;
+
+        /**
+         * Longest the first record of a group commit waits for more records
+         */
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        /**
+         * Append-only file keeping queued records across restarts; none by default
+         */
+        private Path journal;
+
+        /**
+         * Queries wait until the records accepted for their dataset are committed
+         */
+        private boolean readYourWrites = false;
+
+        /**
+         * Longest a query or a truncate/drop waits for queued records before it is rejected with 503
+         */
+        private Duration flushTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Commit attempts for a dataset's queued records before they are set aside
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * File receiving records set aside after maxAttempts failed commits, as NDJSON;
+         * unset: they are logged and dropped
+         */
+        private Path failedRecords;
+    }
+
+    /**
+     * In-memory columnar dataset cache settings
+     */
+    @Data
+    public static class Cache {
+        /**
+         * Serve group/sort queries from cached column arrays
+         */
+        private boolean enabled = false;
+
+        /**
+         * Estimated heap budget shared by all cached datasets
+         */
+        private long maxBytes = 256L * 1024 * 1024;
+    }
+
+    /**
+     * Admission control for group/sort queries, applied per dataset
+     */
+    @Data
+    public static class Admission {
+        /**
+         * Queries of one dataset executing at the same time
+         */
+        private int maxConcurrent = 4;
+
+        /**
+         * Queries of one dataset waiting for a slot; further queries are rejected with 429
+         */
+        private int maxQueued = 16;
+
+        /**
+         * Longest a queued query waits for a slot before it is rejected with 429
+         */
+        private Duration queueTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Cache of serialized query responses
+     */
+    @Data
+    public static class ResponseCache {
+        /**
+         * Serve repeated queries on an unchanged dataset from their serialized response; only sound
+         * while this instance is the only writer of its datasets
+         */
+        private boolean enabled = true;
+
+        /**
+         * Longest a cached response is served, bounding how long writes by other instances go unseen;
+         * zero keeps it until the dataset changes
+         */
+        private Duration maxAge = Duration.ofMinutes(5);
+
+        /**
+         * Heap budget for cached response bodies, including their compressed copies
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Bodies from this size also keep a gzip-compressed copy for clients accepting gzip; 0 disables
+         */
+        private int gzipMinBytes = 8 * 1024;
+    }
+
+    /**
+     * Record storage settings
+     */
+    @Data
+    public static class Storage {
+        /**
+         * Format of datasets created from now on; existing datasets keep theirs until converted
+         */
+        private RecordFormat defaultFormat = RecordFormat.JSON;
+
+        /**
+         * Keep each dataset's records in a list partition of their own, created on first insert,
+         * so dropping or truncating a dataset is a metadata operation (PostgreSQL only)
+         */
+        private boolean partitioned = false;
+
+        /**
+         * Where records are kept: jpa (the configured database) or embedded (segment log files)
+         */
+        private Engine engine = Engine.JPA;
+
+        private Embedded embedded = new Embedded();
+
+        public enum Engine {
+            JPA,
+            EMBEDDED
+        }
+    }
+
+    /**
+     * Embedded record store settings (dataset.storage.engine=embedded)
+     */
+    @Data
+    public static class Embedded {
+        /**
+         * Directory holding one subdirectory of segments and snapshots per dataset
+         */
+        private Path directory = Path.of("data", "records");
+
+        /**
+         * Size of each memory-mapped segment file
+         */
+        private int segmentBytes = 64 * 1024 * 1024;
+
+        /**
+         * Full segments of a dataset from which they are compacted into its snapshot in the background
+         */
+        private int snapshotSegments = 4;
+
+        /**
+         * Force appended records to disk before inserts return; otherwise they survive a crash of
+         * the process but not of the host
+         */
+        private boolean forceWrites = false;
+    }
+
+    /**
+     * Query metrics settings
+     */
+    @Data
+    public static class Metrics {
+        /**
+         * Datasets tagged on query meters; queries on further datasets are not recorded
+         */
+        private int maxDatasets = 100;
+    }
+}
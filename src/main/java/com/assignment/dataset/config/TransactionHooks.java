@@ -0,0 +1,57 @@
+package com.assignment.dataset.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Callbacks tied to the current transaction, so in-memory state follows what the database commits
+ * Without a transaction the work is already committed and callbacks run right away
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Whether callbacks registered now wait for a transaction to finish
+     */
+    public static boolean inTransaction() {
+        return TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    /**
+     * Run an action after the current transaction commits, or right away without one
+     * A rolled-back transaction skips it
+     */
+    public static void afterCommit(Runnable action) {
+        if (inTransaction()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Run an action when the current transaction completes, told whether it committed, or
+     * right away as committed without one
+     */
+    public static void afterCompletion(Consumer<Boolean> action) {
+        if (inTransaction()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+}
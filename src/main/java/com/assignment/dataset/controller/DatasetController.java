@@ -1,14 +1,45 @@
 package com.assignment.dataset.controller;
 
 import com.assignment.dataset.dto.DatasetDTO;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.metrics.QueryMetrics;
 import com.assignment.dataset.service.DatasetService;
+import com.assignment.dataset.service.DatasetVersions;
+import com.assignment.dataset.service.QueryAdmission;
+import com.assignment.dataset.service.QueryCoalescer;
+import com.assignment.dataset.service.RecordStreamHandler;
+import com.assignment.dataset.service.WriteBehindQueue;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import com.assignment.dataset.service.cache.SerializedResponse;
+import com.assignment.dataset.service.cache.SerializedResponseCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * REST Controller for Dataset operations
@@ -21,6 +52,14 @@ import java.util.Map;
 public class DatasetController {
 
     private final DatasetService datasetService;
+    private final ObjectMapper objectMapper;
+    private final ColumnarDatasetCache datasetCache;
+    private final QueryAdmission queryAdmission;
+    private final QueryCoalescer queryCoalescer;
+    private final SerializedResponseCache responseCache;
+    private final DatasetVersions datasetVersions;
+    private final QueryMetrics queryMetrics;
+    private final WriteBehindQueue writeBehind;
 
     /**
      * Insert a new record into a dataset
@@ -29,7 +68,8 @@ public class DatasetController {
      *
      * @param datasetName the name of the dataset
      * @param recordData  the JSON record to insert
-     * @return insert response with record ID
+     * @return insert response with record ID; 202 instead of 201 when the record was queued
+     *         for write-behind, 503 when the write-behind queue is full
      */
     @PostMapping("/{datasetName}/record")
     public ResponseEntity<DatasetDTO.InsertRecordResponse> insertRecord(
@@ -39,6 +79,35 @@ public class DatasetController {
         log.info("POST /api/dataset/{}/record - Inserting record", datasetName);
 
         DatasetDTO.InsertRecordResponse response = datasetService.insertRecord(datasetName, recordData);
+        HttpStatus status = Boolean.TRUE.equals(response.getQueued()) ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+
+        return new ResponseEntity<>(response, status);
+    }
+
+    /**
+     * Insert many records into a dataset in one request
+     *
+     * POST /api/dataset/{datasetName}/records
+     *
+     * The body is either a JSON array of records or newline-delimited JSON records
+     * and is parsed as a stream; records are committed in JDBC batches
+     *
+     * The request is not atomic: each batch commits on its own, so a 400 for an invalid
+     * record carries recordsCommitted and batches for the batches stored before it
+     *
+     * @param datasetName the name of the dataset
+     * @param body        the request body
+     * @return bulk insert response with per-batch counts and throughput
+     */
+    @PostMapping(value = "/{datasetName}/records",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<DatasetDTO.BulkInsertResponse> insertRecords(
+            @PathVariable String datasetName,
+            InputStream body) {
+
+        log.info("POST /api/dataset/{}/records - Bulk inserting records", datasetName);
+
+        DatasetDTO.BulkInsertResponse response = datasetService.insertRecords(datasetName, body);
 
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
@@ -48,39 +117,422 @@ public class DatasetController {
      *
      * GET /api/dataset/{datasetName}/query?groupBy=field
      * GET /api/dataset/{datasetName}/query?sortBy=field&order=asc
+     * GET /api/dataset/{datasetName}/query?sortBy=field&limit=100&cursor=...
+     * GET /api/dataset/{datasetName}/query?groupBy=region,address.city
+     * GET /api/dataset/{datasetName}/query?sortBy=region,stats.score:desc
+     * GET /api/dataset/{datasetName}/query?groupBy=region&aggregate=count,sum:amount,avg:latency
+     * GET /api/dataset/{datasetName}/query?sortBy=score&filter=status:eq:active&filter=score:gte:10
+     * GET /api/dataset/{datasetName}/query?sortBy=score&fields=id,name,address.city
      *
      * @param datasetName the name of the dataset
-     * @param groupBy     optional field to group by
-     * @param sortBy      optional field to sort by
+     * @param groupBy     optional comma-separated fields or dotted paths to group by
+     * @param sortBy      optional comma-separated fields or dotted paths to sort by, each
+     *                    optionally suffixed with :asc or :desc
      * @param order       optional sort order (asc or desc)
-     * @return grouped or sorted records
+     * @param limit       optional page size for sorted queries
+     * @param cursor      optional cursor returned as nextCursor by the previous page
+     * @param aggregate   optional per-group aggregates (count, sum/avg/min/max:field) returned
+     *                    instead of the grouped records
+     * @param filter      optional filters as field:op:value (op eq, gt, gte, lt, lte, in with
+     *                    values separated by "|", or exists); repeat the parameter to combine
+     * @param fields      optional comma-separated fields or dotted paths to return of each record;
+     *                    other fields are left out of the response
+     * @param ifNoneMatch optional ETag of a previous response; 304 while its cached response is current
+     * @param acceptEncoding optional accepted encodings; large bodies are sent gzip-compressed when
+     *                    gzip is accepted
+     * @return grouped or sorted records, or aggregates per group, tagged with an ETag when the
+     *         response is cached; 304 when the client's copy is current; 429 when the dataset
+     *         already has too many queries running and queued; 503 when read-your-writes waits
+     *         too long for queued inserts
      */
     @GetMapping("/{datasetName}/query")
     public ResponseEntity<?> queryDataset(
             @PathVariable String datasetName,
             @RequestParam(required = false) String groupBy,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String order) {
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String aggregate,
+            @RequestParam(required = false) String[] filter,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
-        log.info("GET /api/dataset/{}/query - groupBy: {}, sortBy: {}, order: {}",
-                datasetName, groupBy, sortBy, order);
+        List<String> filters = filters(filter);
+        log.info("GET /api/dataset/{}/query - groupBy: {}, sortBy: {}, order: {}, limit: {}, aggregate: {}, "
+                + "filter: {}, fields: {}", datasetName, groupBy, sortBy, order, limit, aggregate, filters, fields);
+
+        // The response only changes when records are inserted, which advances the dataset version
+        writeBehind.awaitReadable(datasetName);
+        List<Object> query = Arrays.asList(groupBy, sortBy, order, limit, cursor, aggregate, filters, fields);
+        long version = datasetVersions.current(datasetName);
+        SerializedResponse response = responseCache.get(datasetName, version, query);
+        if (response != null && matchesETag(ifNoneMatch, response.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.getEtag()).build();
+        }
+
+        if (response == null) {
+            // Identical concurrent queries share one admitted computation and its serialized body
+            response = queryCoalescer.execute(datasetName, query, () -> {
+                try (QueryAdmission.Permit permit = queryAdmission.acquire(datasetName)) {
+                    Object body = query(datasetName, groupBy, sortBy, order, limit, cursor, aggregate, filters,
+                            fields);
+                    byte[] serialized = queryMetrics.query(datasetName, operation(groupBy, aggregate))
+                            .time("serialize", () -> serialize(body));
+                    return responseCache.put(datasetName, version, query, serialized);
+                }
+            });
+        }
+
+        boolean gzip = response.getGzipBody() != null && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (response.getEtag() != null) {
+            ok.eTag(response.getEtag());
+        }
+        if (gzip) {
+            ok.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return ok.body(gzip ? response.getGzipBody() : response.getBody());
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new DatasetException("Failed to serialize query response", e);
+        }
+    }
+
+    /**
+     * Bind each filter parameter as one value; by default a single value is split at its commas,
+     * which breaks filters such as name:eq:Doe, John
+     */
+    @InitBinder("filter")
+    public void bindWholeFilters(WebDataBinder binder) {
+        binder.registerCustomEditor(String[].class, new StringArrayPropertyEditor(null));
+    }
+
+    /**
+     * Filter parameters as sent, one per repeated parameter
+     */
+    private static List<String> filters(String[] filter) {
+        return filter != null ? List.of(filter) : null;
+    }
+
+    /**
+     * Operation tag of a query's metrics, following the precedence applied by query
+     */
+    private static String operation(String groupBy, String aggregate) {
+        return aggregate != null ? "aggregate" : groupBy != null ? "group" : "sort";
+    }
+
+    private Object query(String datasetName, String groupBy, String sortBy, String order, Integer limit,
+                         String cursor, String aggregate, List<String> filter, String fields) {
+        // Aggregates replace the grouped records
+        if (aggregate != null) {
+            return datasetService.queryWithAggregates(datasetName, groupBy, aggregate, filter);
+        }
 
         // Validate that at least one query parameter is provided
         if (groupBy == null && sortBy == null) {
             log.warn("No query parameters provided");
             // Return all records sorted by ID if no parameters
-            return ResponseEntity.ok(datasetService.queryWithSortBy(datasetName, "id", "asc"));
+            return datasetService.queryWithSortBy(datasetName, "id", "asc", limit, cursor, filter, fields);
         }
 
         // Group-by takes precedence if both are provided
         if (groupBy != null) {
-            DatasetDTO.GroupedRecordsResponse response = datasetService.queryWithGroupBy(datasetName, groupBy);
-            return ResponseEntity.ok(response);
+            return datasetService.queryWithGroupBy(datasetName, groupBy, filter, fields);
         }
 
         // Sort-by operation
-        DatasetDTO.SortedRecordsResponse response = datasetService.queryWithSortBy(datasetName, sortBy, order);
-        return ResponseEntity.ok(response);
+        return datasetService.queryWithSortBy(datasetName, sortBy, order, limit, cursor, filter, fields);
+    }
+
+    /**
+     * Stream query results as newline-delimited JSON straight from the database cursor
+     * Group-by results emit a {"group": key} line before the records of each group
+     * Where the database cannot evaluate JSON fields (H2 unless pushdown is enabled, binary
+     * datasets, the embedded store), the matching records are held unparsed in memory to be
+     * grouped or sorted, and each record is parsed only as it is written
+     *
+     * GET /api/dataset/{datasetName}/query?groupBy=field  (Accept: application/x-ndjson)
+     * GET /api/dataset/{datasetName}/query?sortBy=field&order=asc&format=ndjson
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     optional field to group by
+     * @param sortBy      optional field to sort by
+     * @param order       optional sort order (asc or desc)
+     * @param filter      optional filters as for the JSON query
+     * @param fields      optional fields to return as for the JSON query
+     * @return streaming NDJSON body; 429 when the dataset already has too many queries
+     *         running and queued
+     */
+    @GetMapping(value = "/{datasetName}/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDataset(
+            @PathVariable String datasetName,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String[] filter,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+
+        List<String> filters = filters(filter);
+        log.info("GET /api/dataset/{}/query (ndjson) - groupBy: {}, sortBy: {}, order: {}, filter: {}, fields: {}",
+                datasetName, groupBy, sortBy, order, filters, fields);
+
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+
+        // The slot is held until the body has been written, or until the async request ends without
+        // running the body (timeout, error) so the slot is never leaked
+        writeBehind.awaitReadable(datasetName);
+        QueryAdmission.Permit permit = queryAdmission.acquire(datasetName);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(QueryAdmission.Permit.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+
+        StreamingResponseBody body = outputStream -> {
+            try (permit; SequenceWriter lines = writer.writeValues(outputStream)) {
+                RecordStreamHandler handler = new RecordStreamHandler() {
+                    @Override
+                    public void onGroup(String groupKey) {
+                        writeLine(lines, Map.of("group", groupKey));
+                    }
+
+                    @Override
+                    public void onRecord(Map<String, Object> recordData) {
+                        writeLine(lines, recordData);
+                    }
+                };
+
+                if (groupBy != null) {
+                    datasetService.streamWithGroupBy(datasetName, groupBy, filters, fields, handler);
+                } else {
+                    datasetService.streamWithSortBy(datasetName, sortBy != null ? sortBy : "id", order, filters,
+                            fields, handler);
+                }
+
+                // The separator only goes between values, so terminate the last line explicitly
+                lines.flush();
+                outputStream.write('\n');
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Same as the Accept-negotiated stream, for clients that cannot set headers
+     */
+    @GetMapping(value = "/{datasetName}/query", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamDatasetByFormat(
+            @PathVariable String datasetName,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String[] filter,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        return streamDataset(datasetName, groupBy, sortBy, order, filter, fields, request);
+    }
+
+    private static void writeLine(SequenceWriter lines, Object value) {
+        try {
+            lines.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Declare an index on a field of a dataset
+     *
+     * PUT /api/dataset/{datasetName}/index/{field}
+     *
+     * Existing records are indexed before the response; later group-by, sort-by and
+     * filter queries on the field read the index
+     *
+     * The index structures of a field are shared by all datasets and kept until the last
+     * dataset declaring it is dropped; on H2 they are generated columns that every insert
+     * into any dataset computes
+     *
+     * @param datasetName the name of the dataset
+     * @param field       the field or dotted path to index
+     * @return 201 when the index was declared, 200 when it already existed
+     */
+    @PutMapping("/{datasetName}/index/{field}")
+    public ResponseEntity<DatasetDTO.FieldIndexResponse> createFieldIndex(
+            @PathVariable String datasetName,
+            @PathVariable String field) {
+
+        log.info("PUT /api/dataset/{}/index/{} - Declaring field index", datasetName, field);
+
+        DatasetDTO.FieldIndexResponse response = datasetService.createFieldIndex(datasetName, field);
+
+        return new ResponseEntity<>(response, response.isCreated() ? HttpStatus.CREATED : HttpStatus.OK);
+    }
+
+    /**
+     * List the indexed fields of a dataset
+     *
+     * GET /api/dataset/{datasetName}/index
+     *
+     * @param datasetName the name of the dataset
+     * @return indexed fields in declaration order
+     */
+    @GetMapping("/{datasetName}/index")
+    public ResponseEntity<DatasetDTO.FieldIndexesResponse> getFieldIndexes(@PathVariable String datasetName) {
+        return ResponseEntity.ok(datasetService.getFieldIndexes(datasetName));
+    }
+
+    /**
+     * Register a materialized group-by view, maintained on every insert
+     *
+     * PUT /api/dataset/{datasetName}/views?groupBy=category
+     * PUT /api/dataset/{datasetName}/views?groupBy=category&aggregate=count,sum:amount
+     *
+     * Queries with the same groupBy and aggregate parameters and no filter are answered
+     * from the view
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param aggregate   optional aggregates; the view then keeps only per-group aggregates
+     * @return 201 when the view was registered, 200 when it already existed
+     */
+    @PutMapping("/{datasetName}/views")
+    public ResponseEntity<DatasetDTO.GroupByViewResponse> createGroupByView(
+            @PathVariable String datasetName,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String aggregate) {
+
+        log.info("PUT /api/dataset/{}/views - groupBy: {}, aggregate: {}", datasetName, groupBy, aggregate);
+
+        DatasetDTO.GroupByViewResponse response = datasetService.createGroupByView(datasetName, groupBy, aggregate);
+
+        return new ResponseEntity<>(response,
+                Boolean.TRUE.equals(response.getCreated()) ? HttpStatus.CREATED : HttpStatus.OK);
+    }
+
+    /**
+     * List the materialized group-by views of a dataset
+     *
+     * GET /api/dataset/{datasetName}/views
+     *
+     * @param datasetName the name of the dataset
+     * @return views with their current number of groups and records
+     */
+    @GetMapping("/{datasetName}/views")
+    public ResponseEntity<DatasetDTO.GroupByViewsResponse> getGroupByViews(@PathVariable String datasetName) {
+        return ResponseEntity.ok(datasetService.getGroupByViews(datasetName));
+    }
+
+    /**
+     * Convert a dataset's records to another storage format
+     *
+     * PUT /api/dataset/{datasetName}/storage?format=binary
+     *
+     * Inserts and queries on the dataset wait while its records are rewritten
+     *
+     * @param datasetName the name of the dataset
+     * @param format      json or binary
+     * @return the dataset's format and the number of records converted
+     */
+    @PutMapping("/{datasetName}/storage")
+    public ResponseEntity<DatasetDTO.StorageFormatResponse> convertStorage(
+            @PathVariable String datasetName,
+            @RequestParam(required = false) String format) {
+
+        log.info("PUT /api/dataset/{}/storage - format: {}", datasetName, format);
+
+        return ResponseEntity.ok(datasetService.convertStorage(datasetName, format));
+    }
+
+    /**
+     * Remove all records of a dataset, keeping its field indexes and group-by views
+     *
+     * DELETE /api/dataset/{datasetName}/records
+     *
+     * With dataset.storage.partitioned the dataset's partition is truncated
+     *
+     * @param datasetName the name of the dataset
+     * @return confirmation; 404 when the dataset does not exist
+     */
+    @DeleteMapping("/{datasetName}/records")
+    public ResponseEntity<DatasetDTO.DeleteDatasetResponse> truncateDataset(@PathVariable String datasetName) {
+        log.info("DELETE /api/dataset/{}/records", datasetName);
+
+        return ResponseEntity.ok(datasetService.truncateDataset(datasetName));
+    }
+
+    /**
+     * Remove a dataset with its records, field indexes and group-by views
+     *
+     * DELETE /api/dataset/{datasetName}
+     *
+     * With dataset.storage.partitioned the dataset's partition is dropped
+     *
+     * @param datasetName the name of the dataset
+     * @return confirmation; 404 when the dataset does not exist
+     */
+    @DeleteMapping("/{datasetName}")
+    public ResponseEntity<DatasetDTO.DeleteDatasetResponse> dropDataset(@PathVariable String datasetName) {
+        log.info("DELETE /api/dataset/{}", datasetName);
+
+        return ResponseEntity.ok(datasetService.dropDataset(datasetName));
+    }
+
+    /**
+     * Columnar cache statistics
+     *
+     * GET /api/dataset/cache/stats
+     *
+     * @return hit/miss counters, evictions and estimated memory use
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<DatasetDTO.CacheStatsResponse> cacheStats() {
+        return ResponseEntity.ok(datasetCache.stats());
     }
 
     /**
@@ -26,6 +26,23 @@ public class DatasetDTO {
         private String message;
         private String dataset;
         private Object recordId;
+        private Boolean queued;
+    }
+
+    /**
+     * Response for bulk record insertion
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkInsertResponse {
+        private String message;
+        private String dataset;
+        private Long recordsInserted;
+        private List<Integer> batches;
+        private Long elapsedMillis;
+        private Double recordsPerSecond;
     }
 
     /**
@@ -46,8 +63,125 @@ public class DatasetDTO {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class SortedRecordsResponse {
         private List<Map<String, Object>> sortedRecords;
+        private String nextCursor;
+    }
+
+    /**
+     * Response for aggregate queries: aggregate values per group key, without records
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AggregatedRecordsResponse {
+        private Map<String, Map<String, Object>> aggregates;
+    }
+
+    /**
+     * Columnar cache statistics
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheStatsResponse {
+        private boolean enabled;
+        private int datasets;
+        private long estimatedBytes;
+        private long maxBytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private double hitRatio;
+    }
+
+    /**
+     * Response for declaring a field index
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldIndexResponse {
+        private String message;
+        private String dataset;
+        private String field;
+        private boolean created;
+    }
+
+    /**
+     * Fields indexed for a dataset
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldIndexesResponse {
+        private String dataset;
+        private List<String> fields;
+    }
+
+    /**
+     * A materialized group-by view and its current size
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class GroupByViewResponse {
+        private String message;
+        private String dataset;
+        private String groupBy;
+        private String aggregate;
+        private Boolean created;
+        private boolean ready;
+        private int groups;
+        private long records;
+    }
+
+    /**
+     * Materialized group-by views of a dataset
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GroupByViewsResponse {
+        private String dataset;
+        private List<GroupByViewResponse> views;
+    }
+
+    /**
+     * Storage format of a dataset after a conversion request
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StorageFormatResponse {
+        private String message;
+        private String dataset;
+        private String format;
+        private Boolean converted;
+        private long recordsConverted;
+    }
+
+    /**
+     * Result of dropping or truncating a dataset
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeleteDatasetResponse {
+        private String message;
+        private String dataset;
+        private Boolean dropped;
+        private Boolean partitioned;
     }
 
     /**
@@ -57,11 +191,15 @@ public class DatasetDTO {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class ErrorResponse {
         private String error;
         private String message;
         private Integer status;
         private String timestamp;
+        // Set when a bulk insert failed after committing earlier batches
+        private Long recordsCommitted;
+        private List<Integer> batches;
     }
 
     /**
@@ -75,5 +213,7 @@ public class DatasetDTO {
         private String groupBy;
         private String sortBy;
         private String order; // asc or desc
+        private Integer limit;
+        private String cursor;
     }
 }
@@ -0,0 +1,42 @@
+package com.assignment.dataset.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording a field index declared for a dataset
+ * Declarations are reapplied at startup so queries keep using the indexes
+ */
+@Entity
+@Table(name = "dataset_field_indexes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_dataset_field_index", columnNames = {"dataset_name", "field_name"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasetFieldIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dataset_name", nullable = false)
+    private String datasetName;
+
+    @Column(name = "field_name", nullable = false)
+    private String fieldName;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
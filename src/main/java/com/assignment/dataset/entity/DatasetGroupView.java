@@ -0,0 +1,51 @@
+package com.assignment.dataset.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording a materialized group-by view registered for a dataset
+ * Views are rebuilt from the records at startup
+ */
+@Entity
+@Table(name = "dataset_group_views", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_dataset_group_view", columnNames = {"dataset_name", "group_by_fields", "aggregates"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasetGroupView {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dataset_name", nullable = false)
+    private String datasetName;
+
+    /**
+     * Normalized comma-separated group-by fields
+     */
+    @Column(name = "group_by_fields", nullable = false)
+    private String groupByFields;
+
+    /**
+     * Normalized comma-separated aggregates, empty for a view of grouped records
+     */
+    @Column(name = "aggregates", nullable = false)
+    private String aggregates;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -1,10 +1,14 @@
 package com.assignment.dataset.entity;
 
+import com.assignment.dataset.codec.FieldSelection;
+import com.assignment.dataset.codec.JsonRecordParser;
+import com.assignment.dataset.codec.RecordCodec;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.Length;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -13,7 +17,8 @@ import java.util.Map;
 
 /**
  * Entity representing a JSON record in a dataset
- * Uses JSON column type for flexible schema storage
+ * Uses JSON column type for flexible schema storage, or the compact binary encoding of
+ * RecordCodec for datasets stored as binary
  */
 @Entity
 @Table(name = "dataset_records", indexes = {
@@ -25,17 +30,41 @@ import java.util.Map;
 @Builder
 public class DatasetRecord {
 
+    /**
+     * Longest dataset name the dataset_name column holds
+     */
+    public static final int MAX_DATASET_NAME_LENGTH = 255;
+
+    /**
+     * Sequence-generated with a pooled optimizer so inserts can be JDBC-batched
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dataset_records_seq")
+    @SequenceGenerator(name = "dataset_records_seq", sequenceName = "dataset_records_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "dataset_name", nullable = false)
+    @Column(name = "dataset_name", nullable = false, length = MAX_DATASET_NAME_LENGTH)
     private String datasetName;
 
-    @Column(name = "record_data", columnDefinition = "json", nullable = false)
+    /**
+     * Record as JSON; null when the record is stored in binary
+     */
+    @Column(name = "record_data", columnDefinition = "json")
     @JdbcTypeCode(SqlTypes.JSON)
     private Map<String, Object> recordData;
 
+    /**
+     * Record in the binary encoding; null when the record is stored as JSON
+     */
+    @Column(name = "record_binary", length = Length.LONG32)
+    private byte[] recordBinary;
+
+    /**
+     * Record as JSON text when read without parsing; fields are then parsed on demand
+     */
+    @Transient
+    private String recordJson;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -43,4 +72,40 @@ public class DatasetRecord {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    /**
+     * The record's fields, decoded on each call from the binary encoding or the unparsed JSON text
+     */
+    public Map<String, Object> getRecordData() {
+        if (recordData == null) {
+            if (recordBinary != null) {
+                return RecordCodec.decode(recordBinary);
+            }
+            if (recordJson != null) {
+                return JsonRecordParser.parse(recordJson);
+            }
+        }
+        return recordData;
+    }
+
+    /**
+     * The selected fields of the record; binary and unparsed JSON records decode only those fields
+     *
+     * @param selection the fields to keep, or null for the whole record
+     */
+    public Map<String, Object> getRecordData(FieldSelection selection) {
+        if (selection == null) {
+            return getRecordData();
+        }
+        if (recordData == null) {
+            if (recordBinary != null) {
+                return RecordCodec.decode(recordBinary, selection);
+            }
+            if (recordJson != null) {
+                return JsonRecordParser.parse(recordJson, selection);
+            }
+            return null;
+        }
+        return selection.apply(recordData);
+    }
 }
@@ -0,0 +1,17 @@
+package com.assignment.dataset.entity;
+
+/**
+ * How the records of a dataset are stored
+ */
+public enum RecordFormat {
+
+    /**
+     * JSON text in record_data; group, sort and filter can run in the database
+     */
+    JSON,
+
+    /**
+     * Compact binary encoding in record_binary; single fields are read without decoding the record
+     */
+    BINARY
+}
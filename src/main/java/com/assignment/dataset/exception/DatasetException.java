@@ -1,5 +1,7 @@
 package com.assignment.dataset.exception;
 
+import java.util.List;
+
 /**
  * Custom exceptions for the application
  */
@@ -31,6 +33,29 @@ public class DatasetException extends RuntimeException {
         }
     }
 
+    /**
+     * Exception thrown when a bulk insert stops at an invalid record after earlier batches were committed
+     */
+    public static class PartialInsertException extends InvalidRecordException {
+        private final long recordsCommitted;
+        private final List<Integer> batches;
+
+        public PartialInsertException(String message, long recordsCommitted, List<Integer> batches) {
+            super(message + ". " + recordsCommitted + " records before it were committed in "
+                    + batches.size() + " batches");
+            this.recordsCommitted = recordsCommitted;
+            this.batches = List.copyOf(batches);
+        }
+
+        public long getRecordsCommitted() {
+            return recordsCommitted;
+        }
+
+        public List<Integer> getBatches() {
+            return batches;
+        }
+    }
+
     /**
      * Exception thrown for invalid query parameters
      */
@@ -48,4 +73,22 @@ public class DatasetException extends RuntimeException {
             super("Field not found in records: " + fieldName);
         }
     }
+
+    /**
+     * Exception thrown when a dataset has too many queries running and queued
+     */
+    public static class TooManyQueriesException extends DatasetException {
+        public TooManyQueriesException(String datasetName) {
+            super("Too many concurrent queries on dataset: " + datasetName + ". Retry later");
+        }
+    }
+
+    /**
+     * Exception thrown when the write-behind queue cannot take or commit records in time
+     */
+    public static class IngestUnavailableException extends DatasetException {
+        public IngestUnavailableException(String message) {
+            super(message);
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package com.assignment.dataset.exception;
 
 import com.assignment.dataset.dto.DatasetDTO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
@@ -39,6 +41,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DatasetException.PartialInsertException.class)
+    public ResponseEntity<DatasetDTO.ErrorResponse> handlePartialInsert(
+            DatasetException.PartialInsertException ex, WebRequest request) {
+        DatasetDTO.ErrorResponse errorResponse = DatasetDTO.ErrorResponse.builder()
+                .error("Invalid Record")
+                .message(ex.getMessage())
+                .status(HttpStatus.BAD_REQUEST.value())
+                .timestamp(LocalDateTime.now().toString())
+                .recordsCommitted(ex.getRecordsCommitted())
+                .batches(ex.getBatches())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(DatasetException.InvalidQueryException.class)
     public ResponseEntity<DatasetDTO.ErrorResponse> handleInvalidQuery(
             DatasetException.InvalidQueryException ex, WebRequest request) {
@@ -63,6 +79,46 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DatasetException.TooManyQueriesException.class)
+    public ResponseEntity<DatasetDTO.ErrorResponse> handleTooManyQueries(
+            DatasetException.TooManyQueriesException ex, WebRequest request) {
+        DatasetDTO.ErrorResponse errorResponse = DatasetDTO.ErrorResponse.builder()
+                .error("Too Many Requests")
+                .message(ex.getMessage())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(DatasetException.IngestUnavailableException.class)
+    public ResponseEntity<DatasetDTO.ErrorResponse> handleIngestUnavailable(
+            DatasetException.IngestUnavailableException ex, WebRequest request) {
+        DatasetDTO.ErrorResponse errorResponse = DatasetDTO.ErrorResponse.builder()
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<DatasetDTO.ErrorResponse> handleUnreadableMessage(
+            HttpMessageNotReadableException ex, WebRequest request) {
+        DatasetDTO.ErrorResponse errorResponse = DatasetDTO.ErrorResponse.builder()
+                .error("Malformed Request")
+                .message(ex.getMessage())
+                .status(HttpStatus.BAD_REQUEST.value())
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<DatasetDTO.ErrorResponse> handleGenericException(
             Exception ex, WebRequest request) {
@@ -0,0 +1,132 @@
+package com.assignment.dataset.metrics;
+
+import com.assignment.dataset.config.DatasetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the stages of dataset queries
+ *
+ * Every meter is tagged with the dataset and the operation (group, aggregate, sort):
+ * - dataset.query.stage: timer with histogram per stage (fetch, decode, filter, group,
+ *   aggregate, sort, view, serialize)
+ * - dataset.query.records.scanned / dataset.query.records.returned: records read by the
+ *   application and records put into responses
+ * - dataset.query.groups: number of groups per grouped query
+ * - dataset.query.records.missing.key: records grouped under "null" for lack of a groupBy value
+ * Datasets beyond dataset.metrics.max-datasets are not tagged, keeping the number of series bounded
+ */
+@Component
+public class QueryMetrics {
+
+    private static final String PREFIX = "dataset.query";
+    private static final String STAGE = PREFIX + ".stage";
+    private static final String SCANNED = PREFIX + ".records.scanned";
+    private static final String RETURNED = PREFIX + ".records.returned";
+    private static final String GROUPS = PREFIX + ".groups";
+    private static final String MISSING_KEYS = PREFIX + ".records.missing.key";
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public QueryMetrics(ObjectProvider<MeterRegistry> registry, DatasetProperties properties) {
+        this(registry.getIfAvailable(SimpleMeterRegistry::new), properties);
+    }
+
+    public QueryMetrics(MeterRegistry registry, DatasetProperties properties) {
+        this.registry = registry;
+        registry.config().meterFilter(MeterFilter.maximumAllowableTags(
+                PREFIX, "dataset", properties.getMetrics().getMaxDatasets(), MeterFilter.deny()));
+    }
+
+    /**
+     * Meters of one query
+     *
+     * @param operation group, aggregate or sort
+     */
+    public Query query(String datasetName, String operation) {
+        return new Query(Tags.of("dataset", datasetName, "operation", operation));
+    }
+
+    /**
+     * Records the stages and counts of one query
+     */
+    public final class Query {
+
+        private final Tags tags;
+
+        private Query(Tags tags) {
+            this.tags = tags;
+        }
+
+        /**
+         * Run one stage and record its duration
+         */
+        public <T> T time(String stage, Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                record(stage, System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Record the duration of a stage measured by the caller
+         */
+        public void record(String stage, long nanos) {
+            Timer.builder(STAGE)
+                    .description("Time spent in one stage of a dataset query")
+                    .tags(tags)
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry)
+                    .record(Duration.ofNanos(nanos));
+        }
+
+        public void scanned(long records) {
+            Counter.builder(SCANNED)
+                    .description("Records read by dataset queries")
+                    .tags(tags)
+                    .register(registry)
+                    .increment(records);
+        }
+
+        public void returned(long records) {
+            Counter.builder(RETURNED)
+                    .description("Records returned by dataset queries")
+                    .tags(tags)
+                    .register(registry)
+                    .increment(records);
+        }
+
+        public void missingKeys(long records) {
+            Counter.builder(MISSING_KEYS)
+                    .description("Records without a value for a groupBy field")
+                    .tags(tags)
+                    .register(registry)
+                    .increment(records);
+        }
+
+        public void groups(long groups) {
+            DistributionSummary.builder(GROUPS)
+                    .description("Groups per grouped dataset query")
+                    .tags(tags)
+                    .register(registry)
+                    .record(groups);
+        }
+    }
+}
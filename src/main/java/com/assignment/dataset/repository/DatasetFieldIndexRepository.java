@@ -0,0 +1,46 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.entity.DatasetFieldIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for declared field indexes
+ */
+@Repository
+public interface DatasetFieldIndexRepository extends JpaRepository<DatasetFieldIndex, Long> {
+
+    /**
+     * Find the indexes declared for a dataset in declaration order
+     *
+     * @param datasetName the name of the dataset
+     * @return declared field indexes
+     */
+    List<DatasetFieldIndex> findByDatasetNameOrderByIdAsc(String datasetName);
+
+    /**
+     * Check if a field index is declared for a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @param fieldName   the indexed field
+     * @return true if declared
+     */
+    boolean existsByDatasetNameAndFieldName(String datasetName, String fieldName);
+
+    /**
+     * Check if any dataset declares an index on a field
+     *
+     * @param fieldName the indexed field
+     * @return true if declared by at least one dataset
+     */
+    boolean existsByFieldName(String fieldName);
+
+    /**
+     * Remove the indexes declared for a dataset
+     *
+     * @param datasetName the name of the dataset
+     */
+    void deleteByDatasetName(String datasetName);
+}
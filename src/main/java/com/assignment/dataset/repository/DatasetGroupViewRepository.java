@@ -0,0 +1,30 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.entity.DatasetGroupView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for registered materialized group-by views
+ */
+@Repository
+public interface DatasetGroupViewRepository extends JpaRepository<DatasetGroupView, Long> {
+
+    /**
+     * Check if a view is registered
+     *
+     * @param datasetName   the name of the dataset
+     * @param groupByFields normalized group-by fields
+     * @param aggregates    normalized aggregates, empty for grouped records
+     * @return true if registered
+     */
+    boolean existsByDatasetNameAndGroupByFieldsAndAggregates(String datasetName, String groupByFields,
+                                                             String aggregates);
+
+    /**
+     * Remove the views registered for a dataset
+     *
+     * @param datasetName the name of the dataset
+     */
+    void deleteByDatasetName(String datasetName);
+}
@@ -1,16 +1,25 @@
 package com.assignment.dataset.repository;
 
 import com.assignment.dataset.entity.DatasetRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for DatasetRecord entity
  */
 @Repository
-public interface DatasetRecordRepository extends JpaRepository<DatasetRecord, Long> {
+public interface DatasetRecordRepository
+        extends JpaRepository<DatasetRecord, Long>, DatasetRecordRepositoryCustom, RecordRepository {
+
+    @Override
+    <S extends DatasetRecord> S save(S record);
+
+    @Override
+    <S extends DatasetRecord> List<S> saveAll(Iterable<S> records);
 
     /**
      * Find all records for a specific dataset
@@ -20,6 +29,25 @@ public interface DatasetRecordRepository extends JpaRepository<DatasetRecord, Lo
      */
     List<DatasetRecord> findByDatasetName(String datasetName);
 
+    /**
+     * Read the next batch of a dataset's records in ID order
+     *
+     * @param datasetName the name of the dataset
+     * @param afterId     the last ID of the previous batch
+     * @param batch       the batch size
+     * @return records with an ID above afterId
+     */
+    List<DatasetRecord> findByDatasetNameAndIdGreaterThanOrderByIdAsc(String datasetName, Long afterId,
+                                                                      Pageable batch);
+
+    /**
+     * Find any one record of a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return a record, or empty when the dataset has none
+     */
+    Optional<DatasetRecord> findFirstByDatasetName(String datasetName);
+
     /**
      * Check if a dataset exists
      *
@@ -35,4 +63,12 @@ public interface DatasetRecordRepository extends JpaRepository<DatasetRecord, Lo
      * @return number of records
      */
     long countByDatasetName(String datasetName);
+
+    /**
+     * This repository, when the connected database can evaluate JSON field expressions
+     */
+    @Override
+    default Optional<DatasetRecordRepositoryCustom> jsonPushdown() {
+        return supportsJsonPushdown() ? Optional.of(this) : Optional.empty();
+    }
 }
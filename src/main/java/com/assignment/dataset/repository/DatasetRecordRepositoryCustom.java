@@ -0,0 +1,220 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Custom repository operations that evaluate JSON fields inside the database
+ */
+public interface DatasetRecordRepositoryCustom {
+
+    /**
+     * Separator between the values of a multi-field group key
+     */
+    String GROUP_KEY_SEPARATOR = "|";
+
+    /**
+     * Check whether the connected database can evaluate JSON field expressions
+     *
+     * @return true if group/sort work can be pushed down into SQL
+     */
+    boolean supportsJsonPushdown();
+
+    /**
+     * Create the index structures for a field and use them in this dataset's queries
+     * Idempotent; existing rows are indexed before the call returns
+     *
+     * @param datasetName the dataset declaring the index
+     * @param field       the field or dotted path to index
+     */
+    void createFieldIndex(String datasetName, String field);
+
+    /**
+     * Drop the index structures of a field, once no dataset declares an index on it
+     * The structures are shared by all datasets indexing the field
+     *
+     * @param field the field or dotted path no longer indexed
+     */
+    void dropFieldIndex(String field);
+
+    /**
+     * Fields whose indexes are used in a dataset's queries
+     *
+     * @param datasetName the name of the dataset
+     * @return the indexed fields, empty when none are declared
+     */
+    Set<String> indexedFields(String datasetName);
+
+    /**
+     * Check whether each dataset's records are kept in a partition of their own
+     *
+     * @return true if dataset.storage.partitioned is set and the database supports partitions
+     */
+    boolean isPartitioned();
+
+    /**
+     * Create the partition of a dataset before its first insert; idempotent, and a no-op
+     * without partitioning. The partition is known to exist once the current transaction commits
+     *
+     * @param datasetName the name of the dataset
+     */
+    void preparePartition(String datasetName);
+
+    /**
+     * Remove all records of a dataset, truncating its partition when partitioned
+     *
+     * @param datasetName the name of the dataset
+     */
+    void truncateDataset(String datasetName);
+
+    /**
+     * Remove all records of a dataset and the structures kept for it: its partition when
+     * partitioned, and the field indexes its queries use
+     *
+     * @param datasetName the name of the dataset
+     */
+    void dropDataset(String datasetName);
+
+    /**
+     * Read the records of a dataset without parsing their JSON
+     * JSON records carry their data as text in recordJson and binary records their
+     * encoding, so scans parse only the fields they evaluate and full records are built
+     * only for the rows returned. The records are not managed by the persistence context
+     *
+     * @param datasetName the name of the dataset
+     * @return the dataset's records
+     */
+    List<DatasetRecord> findUnparsedByDatasetName(String datasetName);
+
+    /**
+     * Stream the records of a dataset grouped by one or more JSON fields
+     * Rows arrive group by group, groups ordered by their first record and
+     * records ordered by ID inside each group. Fields may be dotted paths into
+     * nested objects; the group key joins the field values with GROUP_KEY_SEPARATOR
+     *
+     * @param datasetName   the name of the dataset
+     * @param groupByFields the fields to group by
+     * @param filters       conditions every returned record must meet
+     * @param handler       callback invoked for every row
+     */
+    void scanGroupedByFields(String datasetName, List<String> groupByFields, List<FieldPredicate> filters,
+                             GroupedRowHandler handler);
+
+    /**
+     * Aggregate the numeric values of JSON fields per group with SQL GROUP BY
+     * Groups arrive ordered by their first record; only numeric values are aggregated
+     *
+     * @param datasetName   the name of the dataset
+     * @param groupByFields the fields to group by, as for scanGroupedByFields
+     * @param valueFields   the fields to summarize
+     * @param filters       conditions a record must meet to be aggregated
+     * @param handler       callback invoked once per group
+     */
+    void scanAggregatedByFields(String datasetName, List<String> groupByFields, List<String> valueFields,
+                                List<FieldPredicate> filters, AggregateRowHandler handler);
+
+    /**
+     * Stream the records of a dataset ordered by a JSON field using keyset pagination
+     * Numbers sort before other values and missing values sort last (first when descending);
+     * ties are broken by ascending record ID. The field may be a dotted path
+     *
+     * @param datasetName the name of the dataset
+     * @param sortByField the field to sort by
+     * @param ascending   true for ascending order
+     * @param after       position to continue after, or null to start from the beginning
+     * @param limit       maximum number of rows, or null for all rows
+     * @param filters     conditions every returned record must meet
+     * @param handler     callback invoked for every row
+     */
+    void scanSortedByField(String datasetName, String sortByField, boolean ascending,
+                           KeysetPosition after, Integer limit, List<FieldPredicate> filters,
+                           SortedRowHandler handler);
+
+    /**
+     * Callback receiving grouped rows as they are read from the database
+     */
+    @FunctionalInterface
+    interface GroupedRowHandler {
+        void handle(String groupKey, Long id, Map<String, Object> recordData);
+    }
+
+    /**
+     * Callback receiving one group with its record count and a summary per value field
+     */
+    @FunctionalInterface
+    interface AggregateRowHandler {
+        void handle(String groupKey, long count, List<FieldSummary> summaries);
+    }
+
+    /**
+     * Callback receiving sorted rows together with their keyset position
+     */
+    @FunctionalInterface
+    interface SortedRowHandler {
+        void handle(KeysetPosition position, Map<String, Object> recordData);
+    }
+
+    /**
+     * Position of a row in a sorted scan: value class (0 number, 1 other, 2 missing),
+     * the sort value and the record ID used as tie-breaker
+     */
+    @Value
+    class KeysetPosition {
+        public static final int NUMBER = 0;
+        public static final int OTHER = 1;
+        public static final int MISSING = 2;
+
+        int valueClass;
+        BigDecimal number;
+        String text;
+        long id;
+    }
+
+    /**
+     * Numeric summary of one field within a group; sum, min and max are null
+     * when the group has no numeric values for the field
+     */
+    @Value
+    class FieldSummary {
+        long count;
+        BigDecimal sum;
+        BigDecimal min;
+        BigDecimal max;
+    }
+
+    /**
+     * Condition on a JSON field
+     * Numeric fields match values written as JSON numbers, compared numerically; other
+     * fields match by their text. Ranges compare numbers with numbers and text with text
+     */
+    @Value
+    class FieldPredicate {
+        private static final Pattern JSON_NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+        String field;
+        FilterOperator operator;
+        List<String> values;
+
+        /**
+         * Parse a filter value written as a JSON number
+         *
+         * @return the number, or null when the value is not a JSON number
+         */
+        public static BigDecimal numberOf(String value) {
+            return JSON_NUMBER.matcher(value).matches() ? new BigDecimal(value) : null;
+        }
+    }
+
+    /**
+     * Filter operators; IN takes one or more values, EXISTS takes an optional true/false
+     */
+    enum FilterOperator {
+        EQ, GT, GTE, LT, LTE, IN, EXISTS
+    }
+}
@@ -0,0 +1,435 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.config.TransactionHooks;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.metrics.QueryMetrics;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDBC implementation of the custom repository operations
+ * Builds dialect-specific native SQL over the record_data JSON column
+ */
+@Slf4j
+public class DatasetRecordRepositoryImpl implements DatasetRecordRepositoryCustom {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final JsonSqlDialect dialect;
+    private final boolean pushdownEnabled;
+    private final boolean partitioned;
+    private final QueryMetrics metrics;
+
+    /**
+     * Declared field indexes per dataset; queries render the indexed expressions for these fields
+     */
+    private final Map<String, Set<String>> fieldIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Datasets whose partition is known to exist
+     */
+    private final Set<String> partitions = ConcurrentHashMap.newKeySet();
+
+    public DatasetRecordRepositoryImpl(DataSource dataSource,
+                                       ObjectProvider<ObjectMapper> objectMapper,
+                                       ObjectProvider<QueryMetrics> metrics,
+                                       DatasetProperties properties) {
+        // Bounded fetch size so large scans are read from a cursor instead of buffered by the driver
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getQuery().getFetchSize());
+        this.objectMapper = objectMapper.getIfAvailable(ObjectMapper::new);
+        this.metrics = metrics.getIfAvailable(() -> new QueryMetrics(new SimpleMeterRegistry(), properties));
+        this.dialect = JsonSqlDialect.fromProductName(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        Boolean pushdown = properties.getQuery().getPushdownEnabled();
+        this.pushdownEnabled = pushdown != null ? pushdown : dialect.pushdownByDefault();
+
+        if (pushdownEnabled && dialect.supportsJsonExpressions()) {
+            dialect.initialize(jdbcTemplate);
+        }
+        log.info("JSON query pushdown: {} (dialect: {})", supportsJsonPushdown(), dialect);
+
+        this.partitioned = properties.getStorage().isPartitioned() && dialect.supportsPartitions();
+        if (properties.getStorage().isPartitioned() && !partitioned) {
+            log.warn("Dataset partitions are not supported by {}; datasets share one table", dialect);
+        }
+        if (partitioned) {
+            dialect.initializePartitions(jdbcTemplate);
+        }
+        log.info("Dataset partitions: {}", partitioned);
+    }
+
+    @Override
+    public boolean supportsJsonPushdown() {
+        return pushdownEnabled && dialect.supportsJsonExpressions();
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    @Override
+    public void preparePartition(String datasetName) {
+        if (!partitioned || partitions.contains(datasetName)) {
+            return;
+        }
+        dialect.createPartition(jdbcTemplate, datasetName);
+        TransactionHooks.afterCommit(() -> partitions.add(datasetName));
+    }
+
+    @Override
+    public void truncateDataset(String datasetName) {
+        if (partitioned) {
+            dialect.truncatePartition(jdbcTemplate, datasetName);
+        } else {
+            jdbcTemplate.update("DELETE FROM dataset_records WHERE dataset_name = ?", datasetName);
+        }
+    }
+
+    @Override
+    public void dropDataset(String datasetName) {
+        if (partitioned) {
+            dialect.dropPartition(jdbcTemplate, datasetName);
+        } else {
+            jdbcTemplate.update("DELETE FROM dataset_records WHERE dataset_name = ?", datasetName);
+        }
+        TransactionHooks.afterCommit(() -> {
+            partitions.remove(datasetName);
+            fieldIndexes.remove(datasetName);
+        });
+    }
+
+    @Override
+    public void createFieldIndex(String datasetName, String field) {
+        dialect.createFieldIndex(jdbcTemplate, "record_data", field);
+        fieldIndexes.computeIfAbsent(datasetName, k -> ConcurrentHashMap.newKeySet()).add(field);
+        log.info("Field index on {} is used for dataset: {}", field, datasetName);
+    }
+
+    @Override
+    public void dropFieldIndex(String field) {
+        dialect.dropFieldIndex(jdbcTemplate, field);
+        log.info("Field index on {} is no longer declared by any dataset; dropped", field);
+    }
+
+    @Override
+    public Set<String> indexedFields(String datasetName) {
+        Set<String> fields = fieldIndexes.get(datasetName);
+        return fields != null ? Set.copyOf(fields) : Set.of();
+    }
+
+    @Override
+    public List<DatasetRecord> findUnparsedByDatasetName(String datasetName) {
+        String sql = "SELECT id, " + dialect.jsonText("record_data") + " AS record_json, record_binary, created_at "
+                + "FROM dataset_records WHERE dataset_name = ?";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp(4);
+            return DatasetRecord.builder()
+                    .id(rs.getLong(1))
+                    .datasetName(datasetName)
+                    .recordJson(rs.getString(2))
+                    .recordBinary(rs.getBytes(3))
+                    .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                    .build();
+        }, datasetName);
+    }
+
+    @Override
+    public void scanGroupedByFields(String datasetName, List<String> groupByFields, List<FieldPredicate> filters,
+                                    GroupedRowHandler handler) {
+        List<Object> args = new ArrayList<>();
+        args.add(datasetName);
+
+        String groupKey = groupKeyExpression(groupByFields);
+        String sql = "SELECT g.group_key, g.id, g.record_json FROM ("
+                + "SELECT " + groupKey + " AS group_key, id, "
+                + dialect.jsonText("record_data") + " AS record_json, "
+                + "MIN(id) OVER (PARTITION BY " + groupKey + ") AS first_id "
+                + "FROM dataset_records WHERE dataset_name = ?" + filterCondition(datasetName, filters, args) + ") g "
+                + "ORDER BY g.first_id, g.id";
+
+        ScanTimer timer = new ScanTimer();
+        jdbcTemplate.query(sql, rs -> {
+            String rowGroupKey = rs.getString(1);
+            long id = rs.getLong(2);
+            Map<String, Object> data = timer.decode(rs.getString(3));
+            timer.handle(() -> handler.handle(rowGroupKey, id, data));
+        }, args.toArray());
+        timer.record(datasetName, "group");
+    }
+
+    @Override
+    public void scanAggregatedByFields(String datasetName, List<String> groupByFields, List<String> valueFields,
+                                       List<FieldPredicate> filters, AggregateRowHandler handler) {
+        List<Object> args = new ArrayList<>();
+        args.add(datasetName);
+
+        StringBuilder inner = new StringBuilder("SELECT ")
+                .append(groupKeyExpression(groupByFields)).append(" AS group_key, id");
+        StringBuilder outer = new StringBuilder("SELECT a.group_key, COUNT(*)");
+        for (int i = 0; i < valueFields.size(); i++) {
+            inner.append(", ").append(numberValue(datasetName, valueFields.get(i))).append(" AS v").append(i);
+            outer.append(", COUNT(a.v").append(i).append("), SUM(a.v").append(i)
+                    .append("), MIN(a.v").append(i).append("), MAX(a.v").append(i).append(")");
+        }
+        inner.append(" FROM dataset_records WHERE dataset_name = ?")
+                .append(filterCondition(datasetName, filters, args));
+        String sql = outer + " FROM (" + inner + ") a GROUP BY a.group_key ORDER BY MIN(a.id)";
+
+        // Records are aggregated in the database, so they count as scanned without being decoded
+        ScanTimer timer = new ScanTimer();
+        jdbcTemplate.query(sql, rs -> {
+            List<FieldSummary> summaries = new ArrayList<>(valueFields.size());
+            for (int i = 0; i < valueFields.size(); i++) {
+                int column = 3 + i * 4;
+                summaries.add(new FieldSummary(rs.getLong(column), rs.getBigDecimal(column + 1),
+                        rs.getBigDecimal(column + 2), rs.getBigDecimal(column + 3)));
+            }
+            String groupKey = rs.getString(1);
+            long count = rs.getLong(2);
+            timer.rows += count;
+            timer.handle(() -> handler.handle(groupKey, count, summaries));
+        }, args.toArray());
+        timer.record(datasetName, "aggregate");
+    }
+
+    @Override
+    public void scanSortedByField(String datasetName, String sortByField, boolean ascending,
+                                  KeysetPosition after, Integer limit, List<FieldPredicate> filters,
+                                  SortedRowHandler handler) {
+        String valueClass =
+                "(CASE WHEN s.sort_number IS NOT NULL THEN 0 WHEN s.sort_text IS NOT NULL THEN 1 ELSE 2 END)";
+        String direction = ascending ? " ASC" : " DESC";
+        List<Object> args = new ArrayList<>();
+        args.add(datasetName);
+
+        StringBuilder sql = new StringBuilder("SELECT s.id, s.record_json, s.sort_number, s.sort_text FROM (")
+                .append("SELECT id, ").append(dialect.jsonText("record_data")).append(" AS record_json, ")
+                .append(numberValue(datasetName, sortByField)).append(" AS sort_number, ")
+                .append(stringValue(datasetName, sortByField)).append(" AS sort_text ")
+                .append("FROM dataset_records WHERE dataset_name = ?")
+                .append(filterCondition(datasetName, filters, args)).append(") s");
+
+        if (after != null) {
+            sql.append(" WHERE ").append(keysetPredicate(valueClass, ascending, after, args));
+        }
+
+        sql.append(" ORDER BY ").append(valueClass).append(direction)
+                .append(", s.sort_number").append(direction)
+                .append(", s.sort_text").append(direction)
+                .append(", s.id ASC");
+
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+
+        ScanTimer timer = new ScanTimer();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            BigDecimal number = rs.getBigDecimal(3);
+            String text = rs.getString(4);
+            int rowClass = number != null ? KeysetPosition.NUMBER
+                    : text != null ? KeysetPosition.OTHER : KeysetPosition.MISSING;
+            KeysetPosition position = new KeysetPosition(rowClass, number, text, rs.getLong(1));
+            Map<String, Object> data = timer.decode(rs.getString(2));
+            timer.handle(() -> handler.handle(position, data));
+        }, args.toArray());
+        timer.record(datasetName, "sort");
+    }
+
+    /**
+     * SQL expression for the group key: field values as key text, "null" when missing,
+     * joined with the group key separator
+     * Key text is computed from the JSON value rather than read from an index, so it matches
+     * the in-memory grouping
+     */
+    private String groupKeyExpression(List<String> groupByFields) {
+        StringJoiner keyParts = new StringJoiner(" || " + JsonSqlDialect.literal(GROUP_KEY_SEPARATOR) + " || ");
+        for (String field : groupByFields) {
+            keyParts.add("COALESCE(" + dialect.keyValue("record_data", field) + ", 'null')");
+        }
+        return keyParts.toString();
+    }
+
+    /**
+     * Field expressions of a dataset, reading the declared index where there is one
+     */
+    private String textValue(String datasetName, String field) {
+        return isIndexed(datasetName, field)
+                ? dialect.indexedTextValue("record_data", field)
+                : dialect.textValue("record_data", field);
+    }
+
+    private String numberValue(String datasetName, String field) {
+        return isIndexed(datasetName, field)
+                ? dialect.indexedNumberValue("record_data", field)
+                : dialect.numberValue("record_data", field);
+    }
+
+    private String stringValue(String datasetName, String field) {
+        return isIndexed(datasetName, field)
+                ? dialect.indexedStringValue("record_data", field)
+                : dialect.stringValue("record_data", field);
+    }
+
+    private boolean isIndexed(String datasetName, String field) {
+        Set<String> fields = fieldIndexes.get(datasetName);
+        return fields != null && fields.contains(field);
+    }
+
+    /**
+     * Render filters as additional WHERE conditions, appending their arguments
+     *
+     * @return " AND ..." for each filter, or an empty string without filters
+     */
+    private String filterCondition(String datasetName, List<FieldPredicate> filters, List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        for (FieldPredicate filter : filters) {
+            condition.append(" AND ").append(filterPredicate(datasetName, filter, args));
+        }
+        return condition.toString();
+    }
+
+    /**
+     * Render one filter; the same comparisons as the in-memory filter, evaluated on the
+     * number and text projections of the field. Text equality is written against the
+     * plain text projection so a declared index can serve it
+     */
+    private String filterPredicate(String datasetName, FieldPredicate filter, List<Object> args) {
+        String field = filter.getField();
+
+        switch (filter.getOperator()) {
+            case EXISTS:
+                boolean exists = filter.getValues().isEmpty() || Boolean.parseBoolean(filter.getValues().get(0));
+                return textValue(datasetName, field) + (exists ? " IS NOT NULL" : " IS NULL");
+            case EQ:
+            case IN:
+                StringJoiner matches = new StringJoiner(" OR ", "(", ")");
+                for (String value : filter.getValues()) {
+                    BigDecimal number = FieldPredicate.numberOf(value);
+                    if (number != null) {
+                        matches.add(numberValue(datasetName, field) + " = ?");
+                        args.add(number);
+                    }
+                    matches.add("(" + textValue(datasetName, field) + " = ? AND "
+                            + numberValue(datasetName, field) + " IS NULL)");
+                    args.add(value);
+                }
+                return matches.toString();
+            default:
+                String value = filter.getValues().get(0);
+                BigDecimal number = FieldPredicate.numberOf(value);
+                args.add(number != null ? number : value);
+                return (number != null ? numberValue(datasetName, field) : stringValue(datasetName, field))
+                        + comparison(filter.getOperator()) + "?";
+        }
+    }
+
+    private static String comparison(FilterOperator operator) {
+        return switch (operator) {
+            case GT -> " > ";
+            case GTE -> " >= ";
+            case LT -> " < ";
+            case LTE -> " <= ";
+            default -> throw new IllegalArgumentException("Not a comparison: " + operator);
+        };
+    }
+
+    /**
+     * Build the seek predicate selecting rows strictly after the given position
+     * Only the branch for the position's value class is rendered
+     */
+    private String keysetPredicate(String valueClass, boolean ascending, KeysetPosition after, List<Object> args) {
+        String compare = ascending ? " > " : " < ";
+        String laterClasses = valueClass + compare + after.getValueClass();
+
+        switch (after.getValueClass()) {
+            case KeysetPosition.NUMBER:
+                args.add(after.getNumber());
+                args.add(after.getNumber());
+                args.add(after.getId());
+                return "(" + (ascending ? laterClasses + " OR " : "")
+                        + "s.sort_number" + compare + "? OR (s.sort_number = ? AND s.id > ?))";
+            case KeysetPosition.OTHER:
+                args.add(after.getText());
+                args.add(after.getText());
+                args.add(after.getId());
+                return "(" + laterClasses + " OR (" + valueClass + " = 1 AND (s.sort_text" + compare
+                        + "? OR (s.sort_text = ? AND s.id > ?))))";
+            default:
+                args.add(after.getId());
+                return "(" + (ascending ? "" : laterClasses + " OR ") + "(" + valueClass + " = 2 AND s.id > ?))";
+        }
+    }
+
+    private Map<String, Object> readRecord(String json) {
+        try {
+            return objectMapper.readValue(json, RECORD_TYPE);
+        } catch (IOException e) {
+            throw new DatasetException("Failed to read record data", e);
+        }
+    }
+
+    /**
+     * Splits the time of a record scan into fetching rows and decoding their JSON; time spent
+     * in the caller's row handler belongs to the caller and is left out
+     */
+    private final class ScanTimer {
+
+        private final long start = System.nanoTime();
+        private long decodeNanos;
+        private long handlerNanos;
+        private long rows;
+
+        private Map<String, Object> decode(String json) {
+            long decodeStart = System.nanoTime();
+            try {
+                return readRecord(json);
+            } finally {
+                decodeNanos += System.nanoTime() - decodeStart;
+                rows++;
+            }
+        }
+
+        private void handle(Runnable handler) {
+            long handlerStart = System.nanoTime();
+            try {
+                handler.run();
+            } finally {
+                handlerNanos += System.nanoTime() - handlerStart;
+            }
+        }
+
+        private void record(String datasetName, String operation) {
+            QueryMetrics.Query query = metrics.query(datasetName, operation);
+            query.record("fetch", System.nanoTime() - start - decodeNanos - handlerNanos);
+            if (decodeNanos > 0) {
+                query.record("decode", decodeNanos);
+            }
+            query.scanned(rows);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.codec.JsonRecordParser;
+import com.assignment.dataset.config.TransactionHooks;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.store.DatasetStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * RecordRepository over a DatasetStore, used in place of the database when
+ * dataset.storage.engine=embedded
+ *
+ * Saved records are numbered right away and appended once the transaction commits, so a
+ * rollback leaves nothing behind. The store evaluates no JSON expressions, so group, sort
+ * and filter queries run in memory on sequential scans and field indexes are rejected
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(prefix = "dataset.storage", name = "engine", havingValue = "embedded")
+@RequiredArgsConstructor
+public class DatasetStoreRepository implements RecordRepository {
+
+    private final DatasetStore store;
+    private final Map<String, ReentrantLock> appendLocks = new ConcurrentHashMap<>();
+
+    @Override
+    public <S extends DatasetRecord> S save(S record) {
+        append(record.getDatasetName(), List.of(record));
+        return record;
+    }
+
+    @Override
+    public <S extends DatasetRecord> List<S> saveAll(Iterable<S> records) {
+        List<S> saved = new ArrayList<>();
+        Map<String, List<DatasetRecord>> byDataset = new LinkedHashMap<>();
+        for (S record : records) {
+            byDataset.computeIfAbsent(record.getDatasetName(), k -> new ArrayList<>()).add(record);
+            saved.add(record);
+        }
+        byDataset.forEach(this::append);
+        return saved;
+    }
+
+    @Override
+    public List<DatasetRecord> findByDatasetName(String datasetName) {
+        try (Stream<DatasetRecord> records = store.scan(datasetName)) {
+            return records.map(DatasetStoreRepository::parsed).toList();
+        }
+    }
+
+    @Override
+    public List<DatasetRecord> findByDatasetNameAndIdGreaterThanOrderByIdAsc(String datasetName, Long afterId,
+                                                                             Pageable batch) {
+        try (Stream<DatasetRecord> records = store.scan(datasetName)) {
+            Stream<DatasetRecord> after = records.filter(record -> record.getId() > afterId);
+            if (batch.isPaged()) {
+                after = after.limit(batch.getPageSize());
+            }
+            return after.map(DatasetStoreRepository::parsed).toList();
+        }
+    }
+
+    @Override
+    public Optional<DatasetRecord> findFirstByDatasetName(String datasetName) {
+        try (Stream<DatasetRecord> records = store.scan(datasetName)) {
+            return records.findFirst();
+        }
+    }
+
+    @Override
+    public boolean existsByDatasetName(String datasetName) {
+        return store.count(datasetName) > 0;
+    }
+
+    @Override
+    public long countByDatasetName(String datasetName) {
+        return store.count(datasetName);
+    }
+
+    @Override
+    public List<DatasetRecord> findUnparsedByDatasetName(String datasetName) {
+        try (Stream<DatasetRecord> records = store.scan(datasetName)) {
+            return records.toList();
+        }
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return true;
+    }
+
+    @Override
+    public void preparePartition(String datasetName) {
+        // Every dataset has a log of its own, started by its first append
+    }
+
+    @Override
+    public void truncateDataset(String datasetName) {
+        TransactionHooks.afterCommit(() -> store.delete(datasetName));
+    }
+
+    @Override
+    public void dropDataset(String datasetName) {
+        TransactionHooks.afterCommit(() -> store.delete(datasetName));
+    }
+
+    @Override
+    public Optional<DatasetRecordRepositoryCustom> jsonPushdown() {
+        return Optional.empty();
+    }
+
+    /**
+     * Number records now and append them once the transaction commits, or right away without one
+     * The dataset's appends wait for the transaction to complete, so its log stays in ID order
+     */
+    private void append(String datasetName, List<DatasetRecord> records) {
+        ReentrantLock lock = appendLocks.computeIfAbsent(datasetName, k -> new ReentrantLock());
+        if (!TransactionHooks.inTransaction()) {
+            lock.lock();
+            try {
+                store.append(datasetName, records);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        if (!lock.isHeldByCurrentThread()) {
+            lock.lock();
+            try {
+                TransactionHooks.afterCompletion(committed -> lock.unlock());
+            } catch (RuntimeException e) {
+                lock.unlock();
+                throw e;
+            }
+        }
+        store.assignIds(records);
+        TransactionHooks.afterCommit(() -> store.append(datasetName, records));
+    }
+
+    /**
+     * The record with its JSON parsed once, as the JPA repository returns it
+     */
+    private static DatasetRecord parsed(DatasetRecord record) {
+        if (record.getRecordJson() != null) {
+            record.setRecordData(JsonRecordParser.parse(record.getRecordJson()));
+            record.setRecordJson(null);
+        }
+        return record;
+    }
+}
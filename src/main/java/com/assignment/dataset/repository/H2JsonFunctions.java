@@ -0,0 +1,99 @@
+package com.assignment.dataset.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+
+/**
+ * Java functions registered as H2 aliases to evaluate JSON fields in SQL
+ * Mirrors the semantics of PostgreSQL's JSON operators; fields may be dotted paths
+ * as described in JsonSqlDialect
+ */
+public final class H2JsonFunctions {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private H2JsonFunctions() {
+    }
+
+    /**
+     * Return a field of a JSON document as text
+     *
+     * @param json  the JSON document
+     * @param field the field name
+     * @return the field as text, or null when missing or JSON null
+     */
+    public static String text(String json, String field) {
+        JsonNode value = field(json, field);
+        return value != null ? asText(value) : null;
+    }
+
+    /**
+     * Return a field of a JSON document if it is a number
+     *
+     * @param json  the JSON document
+     * @param field the field name
+     * @return the numeric value, or null when the field is not a number
+     */
+    public static BigDecimal number(String json, String field) {
+        JsonNode value = field(json, field);
+        return value != null && value.isNumber() ? value.decimalValue() : null;
+    }
+
+    /**
+     * Return a field of a JSON document as text if it is not a number
+     *
+     * @param json  the JSON document
+     * @param field the field name
+     * @return the field as text, or null when missing, JSON null or a number
+     */
+    public static String string(String json, String field) {
+        JsonNode value = field(json, field);
+        return value != null && !value.isNumber() ? asText(value) : null;
+    }
+
+    /**
+     * Return a field of a JSON document as group key text
+     *
+     * @param json  the JSON document
+     * @param field the field name
+     * @return numbers as plain decimals without trailing zeros, objects and arrays as compact
+     *         JSON, other values as text; null when missing or JSON null
+     */
+    public static String key(String json, String field) {
+        JsonNode value = field(json, field);
+        if (value == null) {
+            return null;
+        }
+        return value.isNumber() ? value.decimalValue().stripTrailingZeros().toPlainString() : asText(value);
+    }
+
+    private static String asText(JsonNode value) {
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    private static JsonNode field(String json, String field) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JsonNode root = MAPPER.readTree(json);
+            JsonNode value = root.get(field);
+            if (value == null && JsonSqlDialect.isPath(field)) {
+                value = root;
+                for (String segment : JsonSqlDialect.pathSegments(field)) {
+                    value = value.get(segment);
+                    if (value == null) {
+                        break;
+                    }
+                }
+            }
+            return value == null || value.isNull() ? null : value;
+        } catch (JsonProcessingException e) {
+            // Not a JSON document, so it has no fields
+            return null;
+        }
+    }
+}
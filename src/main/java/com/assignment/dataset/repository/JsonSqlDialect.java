@@ -0,0 +1,495 @@
+package com.assignment.dataset.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.zip.CRC32;
+
+/**
+ * SQL dialects that can evaluate JSON field expressions on the record_data column
+ * Used by the custom repository to push group-by work down into the database
+ *
+ * A field containing dots is a path into nested objects, unless the document has a
+ * top-level key with that exact name
+ *
+ * Declared field indexes cover the text and number projections of a field for all
+ * datasets, keyed by dataset name first
+ *
+ * Where the database supports it, dataset_records can be list-partitioned by dataset name,
+ * one partition per dataset
+ */
+public enum JsonSqlDialect {
+
+    /**
+     * PostgreSQL native JSON operators
+     */
+    POSTGRESQL {
+        @Override
+        public String textValue(String column, String field) {
+            if (!isPath(field)) {
+                return "(" + column + " ->> " + literal(field) + ")";
+            }
+            return "(" + jsonValue(column, field) + " #>> '{}')";
+        }
+
+        @Override
+        public String numberValue(String column, String field) {
+            return "(CASE WHEN json_typeof(" + jsonValue(column, field) + ") = 'number' THEN CAST("
+                    + textValue(column, field) + " AS NUMERIC) END)";
+        }
+
+        @Override
+        public String stringValue(String column, String field) {
+            // Binary collation so text ordering matches Java's String.compareTo
+            return "(CASE WHEN json_typeof(" + jsonValue(column, field) + ") NOT IN ('number', 'null') THEN "
+                    + textValue(column, field) + " END) COLLATE \"C\"";
+        }
+
+        /**
+         * Numbers are cast and stripped of trailing fraction zeros, so 1.50 and 1e3 key as 1.5
+         * and 1000; objects and arrays keep the text the application wrote, which is compact JSON
+         */
+        @Override
+        public String keyValue(String column, String field) {
+            String number = "CAST(CAST(" + textValue(column, field) + " AS NUMERIC) AS TEXT)";
+            return "(CASE WHEN json_typeof(" + jsonValue(column, field) + ") = 'number' THEN regexp_replace("
+                    + number + ", '(\\.[0-9]*[1-9])0+$|\\.0+$', '\\1') ELSE " + textValue(column, field) + " END)";
+        }
+
+        /**
+         * JSON value of a field; a path is only followed when no top-level key matches it
+         */
+        private String jsonValue(String column, String field) {
+            String topLevel = column + " -> " + literal(field);
+            if (!isPath(field)) {
+                return topLevel;
+            }
+            StringJoiner segments = new StringJoiner(", ", "ARRAY[", "]");
+            for (String segment : pathSegments(field)) {
+                segments.add(literal(segment));
+            }
+            return "COALESCE(" + topLevel + ", " + column + " #> " + segments + ")";
+        }
+
+        @Override
+        public String jsonText(String column) {
+            return "CAST(" + column + " AS TEXT)";
+        }
+
+        /**
+         * Expression indexes over exactly the expressions queries render, so the planner can match them
+         */
+        @Override
+        public void createFieldIndex(JdbcTemplate jdbcTemplate, String column, String field) {
+            String name = fieldIndexName(field);
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + "_t ON dataset_records (dataset_name, "
+                    + textValue(column, field) + ")");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + "_n ON dataset_records (dataset_name, "
+                    + numberValue(column, field) + ")");
+        }
+
+        @Override
+        public void dropFieldIndex(JdbcTemplate jdbcTemplate, String field) {
+            String name = fieldIndexName(field);
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + name + "_t");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + name + "_n");
+        }
+
+        @Override
+        public boolean supportsPartitions() {
+            return true;
+        }
+
+        /**
+         * Turn a plain dataset_records table, as created from the entity mapping, into a table
+         * partitioned by dataset name, moving existing records into one partition per dataset.
+         * The primary key of a partitioned table must include the partition key
+         */
+        @Override
+        public void initializePartitions(JdbcTemplate jdbcTemplate) {
+            String kind = jdbcTemplate.queryForObject(
+                    "SELECT CAST(relkind AS TEXT) FROM pg_class WHERE oid = to_regclass('dataset_records')",
+                    String.class);
+            if (!"r".equals(kind)) {
+                return;
+            }
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LOCK TABLE dataset_records IN ACCESS EXCLUSIVE MODE");
+                    statement.execute("ALTER TABLE dataset_records RENAME TO dataset_records_unpartitioned");
+                    statement.execute("CREATE TABLE dataset_records (LIKE dataset_records_unpartitioned "
+                            + "INCLUDING DEFAULTS) PARTITION BY LIST (dataset_name)");
+                    List<String> datasetNames = new ArrayList<>();
+                    try (ResultSet rs = statement.executeQuery(
+                            "SELECT DISTINCT dataset_name FROM dataset_records_unpartitioned")) {
+                        while (rs.next()) {
+                            datasetNames.add(rs.getString(1));
+                        }
+                    }
+                    for (String datasetName : datasetNames) {
+                        statement.execute(createPartitionSql(datasetName));
+                    }
+                    statement.execute("INSERT INTO dataset_records SELECT * FROM dataset_records_unpartitioned");
+                    statement.execute("DROP TABLE dataset_records_unpartitioned");
+                    statement.execute("ALTER TABLE dataset_records ADD PRIMARY KEY (id, dataset_name)");
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Concurrent creators of the same partition are serialized by a transaction-scoped advisory lock
+         */
+        @Override
+        public void createPartition(JdbcTemplate jdbcTemplate, String datasetName) {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext('dataset_records'), hashtext(?))",
+                    datasetName);
+            jdbcTemplate.execute(createPartitionSql(datasetName));
+        }
+
+        /**
+         * A dataset known only by its field indexes or views has no partition to truncate yet
+         */
+        @Override
+        public void truncatePartition(JdbcTemplate jdbcTemplate, String datasetName) {
+            String partition = partitionName(datasetName);
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(CAST(? AS text)) IS NOT NULL",
+                    Boolean.class, partition))) {
+                jdbcTemplate.execute("TRUNCATE TABLE " + partition);
+            }
+        }
+
+        @Override
+        public void dropPartition(JdbcTemplate jdbcTemplate, String datasetName) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(datasetName));
+        }
+
+        private String createPartitionSql(String datasetName) {
+            return "CREATE TABLE IF NOT EXISTS " + partitionName(datasetName)
+                    + " PARTITION OF dataset_records FOR VALUES IN (" + literal(datasetName) + ")";
+        }
+    },
+
+    /**
+     * H2 has no JSON path operators, so field extraction goes through a Java function alias
+     */
+    H2 {
+        @Override
+        public String textValue(String column, String field) {
+            return "DATASET_JSON_TEXT(" + column + ", " + literal(field) + ")";
+        }
+
+        @Override
+        public String numberValue(String column, String field) {
+            return "DATASET_JSON_NUMBER(" + column + ", " + literal(field) + ")";
+        }
+
+        @Override
+        public String stringValue(String column, String field) {
+            return "DATASET_JSON_STRING(" + column + ", " + literal(field) + ")";
+        }
+
+        @Override
+        public String keyValue(String column, String field) {
+            return "DATASET_JSON_KEY(" + column + ", " + literal(field) + ")";
+        }
+
+        @Override
+        public String jsonText(String column) {
+            return "CAST(" + column + " AS VARCHAR)";
+        }
+
+        /**
+         * H2 cannot index expressions, so indexed fields read their generated columns
+         */
+        @Override
+        public String indexedTextValue(String column, String field) {
+            return fieldIndexName(field) + "_t";
+        }
+
+        @Override
+        public String indexedNumberValue(String column, String field) {
+            return fieldIndexName(field) + "_n";
+        }
+
+        @Override
+        public String indexedStringValue(String column, String field) {
+            String name = fieldIndexName(field);
+            return "(CASE WHEN " + name + "_n IS NULL THEN " + name + "_t END)";
+        }
+
+        @Override
+        public void initialize(JdbcTemplate jdbcTemplate) {
+            createAlias(jdbcTemplate, "DATASET_JSON_TEXT", "text");
+            createAlias(jdbcTemplate, "DATASET_JSON_NUMBER", "number");
+            createAlias(jdbcTemplate, "DATASET_JSON_STRING", "string");
+            createAlias(jdbcTemplate, "DATASET_JSON_KEY", "key");
+        }
+
+        /**
+         * Generated columns holding the field's text and number, computed for existing rows
+         * when added and maintained by H2 on every insert, each with an index
+         *
+         * The columns belong to the one dataset_records table, so every dataset pays for them:
+         * each insert into any dataset evaluates the field and adding them rewrites all rows
+         */
+        @Override
+        public void createFieldIndex(JdbcTemplate jdbcTemplate, String column, String field) {
+            String name = fieldIndexName(field);
+            jdbcTemplate.execute("ALTER TABLE dataset_records ADD COLUMN IF NOT EXISTS " + name
+                    + "_t VARCHAR GENERATED ALWAYS AS (" + textValue(column, field) + ")");
+            jdbcTemplate.execute("ALTER TABLE dataset_records ADD COLUMN IF NOT EXISTS " + name
+                    + "_n NUMERIC GENERATED ALWAYS AS (" + numberValue(column, field) + ")");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + "_t_idx ON dataset_records (dataset_name, "
+                    + name + "_t)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + "_n_idx ON dataset_records (dataset_name, "
+                    + name + "_n)");
+        }
+
+        @Override
+        public void dropFieldIndex(JdbcTemplate jdbcTemplate, String field) {
+            String name = fieldIndexName(field);
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + name + "_t_idx");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + name + "_n_idx");
+            jdbcTemplate.execute("ALTER TABLE dataset_records DROP COLUMN IF EXISTS " + name + "_t");
+            jdbcTemplate.execute("ALTER TABLE dataset_records DROP COLUMN IF EXISTS " + name + "_n");
+        }
+
+        private void createAlias(JdbcTemplate jdbcTemplate, String alias, String method) {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS " + alias + " DETERMINISTIC FOR '"
+                    + H2JsonFunctions.class.getName() + "." + method + "'");
+        }
+    },
+
+    /**
+     * Any other database; queries fall back to in-memory processing
+     */
+    UNSUPPORTED {
+        @Override
+        public String textValue(String column, String field) {
+            throw new UnsupportedOperationException("JSON expressions are not supported for this database");
+        }
+
+        @Override
+        public String numberValue(String column, String field) {
+            throw new UnsupportedOperationException("JSON expressions are not supported for this database");
+        }
+
+        @Override
+        public String stringValue(String column, String field) {
+            throw new UnsupportedOperationException("JSON expressions are not supported for this database");
+        }
+
+        @Override
+        public String jsonText(String column) {
+            return column;
+        }
+    };
+
+    /**
+     * SQL expression returning a JSON field as text, or NULL when missing or JSON null
+     */
+    public abstract String textValue(String column, String field);
+
+    /**
+     * SQL expression returning a JSON field as a number, or NULL when it is not a number
+     */
+    public abstract String numberValue(String column, String field);
+
+    /**
+     * SQL expression returning a non-numeric JSON field as text, or NULL when missing,
+     * JSON null or a number
+     */
+    public abstract String stringValue(String column, String field);
+
+    /**
+     * SQL expression returning a JSON field as group key text, or NULL when missing or JSON null
+     * Keys match FieldPath.keyText on the decoded value: numbers as plain decimals without
+     * trailing zeros, objects and arrays as compact JSON
+     */
+    public String keyValue(String column, String field) {
+        return textValue(column, field);
+    }
+
+    /**
+     * SQL expression returning the whole JSON document as text
+     */
+    public abstract String jsonText(String column);
+
+    /**
+     * Text expression for a field with a declared index; reads the indexed form where
+     * the dialect stores one
+     */
+    public String indexedTextValue(String column, String field) {
+        return textValue(column, field);
+    }
+
+    /**
+     * Number expression for a field with a declared index
+     */
+    public String indexedNumberValue(String column, String field) {
+        return numberValue(column, field);
+    }
+
+    /**
+     * Non-numeric text expression for a field with a declared index
+     */
+    public String indexedStringValue(String column, String field) {
+        return stringValue(column, field);
+    }
+
+    /**
+     * Create the index structures for a field if they do not exist yet; existing rows are
+     * indexed as part of the DDL
+     */
+    public void createFieldIndex(JdbcTemplate jdbcTemplate, String column, String field) {
+        throw new UnsupportedOperationException("Field indexes are not supported for this database");
+    }
+
+    /**
+     * Drop the index structures of a field if they exist
+     */
+    public void dropFieldIndex(JdbcTemplate jdbcTemplate, String field) {
+        throw new UnsupportedOperationException("Field indexes are not supported for this database");
+    }
+
+    /**
+     * Check whether dataset_records can be list-partitioned by dataset name
+     */
+    public boolean supportsPartitions() {
+        return false;
+    }
+
+    /**
+     * Partition dataset_records by dataset name if it is not partitioned yet
+     */
+    public void initializePartitions(JdbcTemplate jdbcTemplate) {
+        throw new UnsupportedOperationException("Dataset partitions are not supported for this database");
+    }
+
+    /**
+     * Create the partition of a dataset if it does not exist yet
+     */
+    public void createPartition(JdbcTemplate jdbcTemplate, String datasetName) {
+        throw new UnsupportedOperationException("Dataset partitions are not supported for this database");
+    }
+
+    /**
+     * Remove all records of a dataset, keeping its partition; a no-op when it has none yet
+     */
+    public void truncatePartition(JdbcTemplate jdbcTemplate, String datasetName) {
+        throw new UnsupportedOperationException("Dataset partitions are not supported for this database");
+    }
+
+    /**
+     * Drop the partition of a dataset with its records
+     */
+    public void dropPartition(JdbcTemplate jdbcTemplate, String datasetName) {
+        throw new UnsupportedOperationException("Dataset partitions are not supported for this database");
+    }
+
+    /**
+     * Prepare the database for this dialect's expressions (functions, aliases)
+     */
+    public void initialize(JdbcTemplate jdbcTemplate) {
+    }
+
+    public boolean supportsJsonExpressions() {
+        return this != UNSUPPORTED;
+    }
+
+    /**
+     * Whether pushdown beats in-memory evaluation without being asked for
+     * H2 evaluates every field expression through an alias that parses the whole document again
+     */
+    public boolean pushdownByDefault() {
+        return this == POSTGRESQL;
+    }
+
+    /**
+     * Resolve the dialect from the JDBC database product name
+     */
+    public static JsonSqlDialect fromProductName(String productName) {
+        if (productName == null) {
+            return UNSUPPORTED;
+        }
+        String name = productName.toLowerCase();
+        if (name.contains("postgresql")) {
+            return POSTGRESQL;
+        }
+        if (name.equals("h2")) {
+            return H2;
+        }
+        return UNSUPPORTED;
+    }
+
+    /**
+     * Check whether a field name can be read as a dotted path
+     */
+    static boolean isPath(String field) {
+        return field.indexOf('.') >= 0 && pathSegments(field).length > 1;
+    }
+
+    /**
+     * Split a dotted path into its segments, or return the field itself if any segment is empty
+     */
+    static String[] pathSegments(String field) {
+        String[] segments = field.split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                return new String[]{field};
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Identifier prefix of the index structures of a field
+     */
+    static String fieldIndexName(String field) {
+        return identifier("jf_", field);
+    }
+
+    /**
+     * Table name of a dataset's partition
+     */
+    static String partitionName(String datasetName) {
+        return identifier("dataset_records_", datasetName);
+    }
+
+    /**
+     * SQL identifier for a name: a readable part of the name plus a checksum of the full name
+     */
+    private static String identifier(String prefix, String name) {
+        String readable = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_");
+        if (readable.length() > 24) {
+            readable = readable.substring(0, 24);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(name.getBytes(StandardCharsets.UTF_8));
+        return prefix + readable + "_" + Long.toHexString(checksum.getValue());
+    }
+
+    /**
+     * Render a field name as an SQL string literal
+     */
+    static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,119 @@
+package com.assignment.dataset.repository;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Record operations the services run against a storage engine
+ * Implemented by DatasetRecordRepository over the database and by DatasetStoreRepository
+ * over the embedded record store
+ */
+public interface RecordRepository {
+
+    /**
+     * Save a record, giving it an ID
+     *
+     * @param record the record to save
+     * @return the saved record
+     */
+    <S extends DatasetRecord> S save(S record);
+
+    /**
+     * Save records, giving them IDs in order
+     *
+     * @param records the records to save
+     * @return the saved records
+     */
+    <S extends DatasetRecord> List<S> saveAll(Iterable<S> records);
+
+    /**
+     * Find all records for a specific dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return list of dataset records
+     */
+    List<DatasetRecord> findByDatasetName(String datasetName);
+
+    /**
+     * Read the next batch of a dataset's records in ID order
+     *
+     * @param datasetName the name of the dataset
+     * @param afterId     the last ID of the previous batch
+     * @param batch       the batch size
+     * @return records with an ID above afterId
+     */
+    List<DatasetRecord> findByDatasetNameAndIdGreaterThanOrderByIdAsc(String datasetName, Long afterId,
+                                                                      Pageable batch);
+
+    /**
+     * Find any one record of a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return a record, or empty when the dataset has none
+     */
+    Optional<DatasetRecord> findFirstByDatasetName(String datasetName);
+
+    /**
+     * Check if a dataset exists
+     *
+     * @param datasetName the name of the dataset
+     * @return true if dataset exists, false otherwise
+     */
+    boolean existsByDatasetName(String datasetName);
+
+    /**
+     * Count records in a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return number of records
+     */
+    long countByDatasetName(String datasetName);
+
+    /**
+     * Read the records of a dataset without parsing their JSON
+     * JSON records carry their data as text in recordJson and binary records their encoding
+     *
+     * @param datasetName the name of the dataset
+     * @return the dataset's records
+     */
+    List<DatasetRecord> findUnparsedByDatasetName(String datasetName);
+
+    /**
+     * Check whether each dataset's records are kept in a partition of their own
+     *
+     * @return true if dataset truncates and drops do not touch other datasets' records
+     */
+    boolean isPartitioned();
+
+    /**
+     * Prepare the storage of a dataset before its first insert; idempotent
+     *
+     * @param datasetName the name of the dataset
+     */
+    void preparePartition(String datasetName);
+
+    /**
+     * Remove all records of a dataset
+     *
+     * @param datasetName the name of the dataset
+     */
+    void truncateDataset(String datasetName);
+
+    /**
+     * Remove all records of a dataset and the structures kept for it
+     *
+     * @param datasetName the name of the dataset
+     */
+    void dropDataset(String datasetName);
+
+    /**
+     * Queries evaluated inside the database: group, sort and filter scans and field indexes
+     *
+     * @return the database-side operations, or empty when records are only read and
+     * evaluated in memory
+     */
+    Optional<DatasetRecordRepositoryCustom> jsonPushdown();
+}
@@ -0,0 +1,210 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom.FieldSummary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Aggregates requested with aggregate=count,sum:field,avg:field,min:field,max:field
+ * Each distinct value field is read once per record into primitive accumulators;
+ * only numeric values contribute, and sum/avg/min/max are null when a group has none
+ */
+final class Aggregation {
+
+    /**
+     * Largest magnitude at which every integer is exactly representable as a double
+     */
+    private static final double EXACT_INTEGER_LIMIT = 9007199254740992d;
+
+    private enum Function {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Function> functions = new ArrayList<>();
+    private final List<Integer> fieldIndexes = new ArrayList<>();
+    private final List<FieldPath> valueFields = new ArrayList<>();
+
+    private Aggregation() {
+    }
+
+    /**
+     * Parse an aggregate parameter
+     */
+    static Aggregation parse(String aggregate) {
+        Aggregation aggregation = new Aggregation();
+        Map<String, Integer> fieldIndexes = new LinkedHashMap<>();
+
+        for (String entry : FieldPath.splitList(aggregate, "aggregate")) {
+            int colon = entry.indexOf(':');
+            String functionName = (colon < 0 ? entry : entry.substring(0, colon)).trim();
+            String field = colon < 0 ? null : entry.substring(colon + 1).trim();
+
+            Function function;
+            try {
+                function = Function.valueOf(functionName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw invalid(entry);
+            }
+            if ((function == Function.COUNT) != (field == null) || (field != null && field.isEmpty())) {
+                throw invalid(entry);
+            }
+
+            int fieldIndex = -1;
+            if (field != null) {
+                fieldIndex = fieldIndexes.computeIfAbsent(field, f -> {
+                    aggregation.valueFields.add(FieldPath.compile(f));
+                    return aggregation.valueFields.size() - 1;
+                });
+            }
+            aggregation.names.add(field == null ? "count" : function.name().toLowerCase(Locale.ROOT) + ":" + field);
+            aggregation.functions.add(function);
+            aggregation.fieldIndexes.add(fieldIndex);
+        }
+        return aggregation;
+    }
+
+    /**
+     * Paths of the distinct fields the aggregates read
+     */
+    List<String> valueFieldPaths() {
+        return valueFields.stream().map(FieldPath::getPath).toList();
+    }
+
+    /**
+     * Normalized aggregate parameter, used to match queries against materialized views
+     */
+    String spec() {
+        return String.join(",", names);
+    }
+
+    Accumulator newAccumulator() {
+        return new Accumulator(valueFields.size());
+    }
+
+    /**
+     * Aggregate values of a group accumulated in memory
+     */
+    Map<String, Object> result(Accumulator accumulator) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            int field = fieldIndexes.get(i);
+            Object value = switch (functions.get(i)) {
+                case COUNT -> accumulator.count;
+                case SUM -> accumulator.counts[field] == 0 ? null : number(accumulator.sums[field]);
+                case AVG -> accumulator.counts[field] == 0 ? null : accumulator.sums[field] / accumulator.counts[field];
+                case MIN -> accumulator.counts[field] == 0 ? null : number(accumulator.mins[field]);
+                case MAX -> accumulator.counts[field] == 0 ? null : number(accumulator.maxes[field]);
+            };
+            result.put(names.get(i), value);
+        }
+        return result;
+    }
+
+    /**
+     * Aggregate values of a group summarized by the database
+     */
+    Map<String, Object> result(long count, List<FieldSummary> summaries) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            int field = fieldIndexes.get(i);
+            FieldSummary summary = field < 0 ? null : summaries.get(field);
+            Object value = switch (functions.get(i)) {
+                case COUNT -> count;
+                case SUM -> number(summary.getSum());
+                case AVG -> summary.getCount() == 0 ? null : summary.getSum().doubleValue() / summary.getCount();
+                case MIN -> number(summary.getMin());
+                case MAX -> number(summary.getMax());
+            };
+            result.put(names.get(i), value);
+        }
+        return result;
+    }
+
+    private static Object number(BigDecimal value) {
+        return value != null ? number(value.doubleValue()) : null;
+    }
+
+    /**
+     * Whole values are returned as longs so integer sums serialize without a fraction
+     */
+    private static Object number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < EXACT_INTEGER_LIMIT) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    private static DatasetException.InvalidQueryException invalid(String entry) {
+        return new DatasetException.InvalidQueryException("Invalid aggregate parameter '" + entry
+                + "'. Supported: count, sum:field, avg:field, min:field, max:field");
+    }
+
+    /**
+     * Running count, sum, min and max per value field for one group
+     */
+    final class Accumulator {
+        private long count;
+        private final long[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxes;
+
+        private Accumulator(int fields) {
+            counts = new long[fields];
+            sums = new double[fields];
+            mins = new double[fields];
+            maxes = new double[fields];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(Map<String, Object> data) {
+            count++;
+            for (int field = 0; field < counts.length; field++) {
+                addValue(field, valueFields.get(field).read(data));
+            }
+        }
+
+        /**
+         * Same as add(Map), reading only the value fields of binary records
+         */
+        void add(DatasetRecord record) {
+            count++;
+            for (int field = 0; field < counts.length; field++) {
+                addValue(field, valueFields.get(field).read(record));
+            }
+        }
+
+        private void addValue(int field, Object fieldValue) {
+            if (fieldValue instanceof Number number) {
+                double value = number.doubleValue();
+                counts[field]++;
+                sums[field] += value;
+                mins[field] = Math.min(mins[field], value);
+                maxes[field] = Math.max(maxes[field], value);
+            }
+        }
+
+        /**
+         * Fold in the accumulator of a later partition of the same group
+         */
+        void merge(Accumulator other) {
+            count += other.count;
+            for (int field = 0; field < counts.length; field++) {
+                counts[field] += other.counts[field];
+                sums[field] += other.sums[field];
+                mins[field] = Math.min(mins[field], other.mins[field]);
+                maxes[field] = Math.max(maxes[field], other.maxes[field]);
+            }
+        }
+    }
+}
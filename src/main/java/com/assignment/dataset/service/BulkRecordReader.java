@@ -0,0 +1,78 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.exception.DatasetException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads JSON records one at a time from a request body
+ * Accepts either a JSON array of objects or newline-delimited JSON objects,
+ * so the body never has to be held in memory as a whole
+ */
+class BulkRecordReader implements Iterator<Map<String, Object>>, Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {
+    };
+
+    private final JsonParser parser;
+    private final boolean array;
+    private JsonToken next;
+    private long position;
+
+    BulkRecordReader(InputStream body) {
+        try {
+            this.parser = MAPPER.getFactory().createParser(body);
+            JsonToken first = parser.nextToken();
+            this.array = first == JsonToken.START_ARRAY;
+            this.next = array ? parser.nextToken() : first;
+        } catch (IOException e) {
+            throw new DatasetException.InvalidRecordException("Malformed JSON body: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null && !(array && next == JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        if (next != JsonToken.START_OBJECT) {
+            throw new DatasetException.InvalidRecordException("Record " + position + " is not a JSON object");
+        }
+        try {
+            Map<String, Object> record = MAPPER.readValue(parser, RECORD_TYPE);
+            next = parser.nextToken();
+            return record;
+        } catch (IOException e) {
+            throw new DatasetException.InvalidRecordException(
+                    "Malformed JSON in record " + position + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Number of records read so far
+     */
+    long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -2,6 +2,8 @@ package com.assignment.dataset.service;
 
 import com.assignment.dataset.dto.DatasetDTO;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -11,21 +13,89 @@ public interface DatasetService {
 
     /**
      * Insert a new record into a dataset
+     * With write-behind enabled the record is queued and committed in the background
      *
      * @param datasetName the name of the dataset
      * @param recordData  the JSON record data
-     * @return insert response with record ID
+     * @return insert response with record ID, marked queued when not committed yet
+     * @throws com.assignment.dataset.exception.DatasetException.IngestUnavailableException if the write-behind
+     *         queue is full
      */
     DatasetDTO.InsertRecordResponse insertRecord(String datasetName, Map<String, Object> recordData);
 
+    /**
+     * Insert many records into a dataset, committing in batches
+     * Records are read from the body one at a time; batches committed before an
+     * invalid record is reached stay committed
+     *
+     * @param datasetName the name of the dataset
+     * @param body        a JSON array of records or newline-delimited JSON records
+     * @return bulk insert response with per-batch counts and throughput
+     */
+    DatasetDTO.BulkInsertResponse insertRecords(String datasetName, InputStream body);
+
     /**
      * Query dataset with group-by operation
      *
      * @param datasetName the name of the dataset
-     * @param groupBy     the field to group by
+     * @param groupBy     comma-separated fields or dotted paths to group by; multiple
+     *                    values are joined with "|" in the group key
+     * @return grouped records response
+     */
+    default DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy) {
+        return queryWithGroupBy(datasetName, groupBy, null);
+    }
+
+    /**
+     * Query dataset with group-by operation over the records matching the filters
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param filter      filters as field:op:value with op eq, gt, gte, lt, lte, in
+     *                    (values separated by "|") or exists; all must match, null for none
      * @return grouped records response
      */
-    DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy);
+    default DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy,
+                                                               List<String> filter) {
+        return queryWithGroupBy(datasetName, groupBy, filter, null);
+    }
+
+    /**
+     * Query dataset with group-by operation, returning only the selected fields of each record
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @param fields      comma-separated fields or dotted paths to return, or null for whole records
+     * @return grouped records response
+     */
+    DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy, List<String> filter,
+                                                       String fields);
+
+    /**
+     * Query per-group aggregates without returning the records
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param aggregate   comma-separated aggregates: count, sum:field, avg:field, min:field, max:field
+     * @return aggregate values per group
+     */
+    default DatasetDTO.AggregatedRecordsResponse queryWithAggregates(String datasetName, String groupBy,
+                                                                     String aggregate) {
+        return queryWithAggregates(datasetName, groupBy, aggregate, null);
+    }
+
+    /**
+     * Query per-group aggregates over the records matching the filters
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param aggregate   comma-separated aggregates: count, sum:field, avg:field, min:field, max:field
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @return aggregate values per group
+     */
+    DatasetDTO.AggregatedRecordsResponse queryWithAggregates(String datasetName, String groupBy, String aggregate,
+                                                             List<String> filter);
 
     /**
      * Query dataset with sort-by operation
@@ -35,5 +105,152 @@ public interface DatasetService {
      * @param order       sort order (asc or desc)
      * @return sorted records response
      */
-    DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order);
+    default DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order) {
+        return queryWithSortBy(datasetName, sortBy, order, null, null, null);
+    }
+
+    /**
+     * Query dataset with sort-by operation, one page at a time
+     *
+     * @param datasetName the name of the dataset
+     * @param sortBy      comma-separated fields or dotted paths to sort by, each optionally
+     *                    suffixed with :asc or :desc
+     * @param order       default sort order (asc or desc)
+     * @param limit       maximum number of records to return, or null for all
+     * @param cursor      opaque cursor from a previous page, or null for the first page
+     * @return sorted records response with the cursor of the next page
+     */
+    default DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order,
+                                                             Integer limit, String cursor) {
+        return queryWithSortBy(datasetName, sortBy, order, limit, cursor, null);
+    }
+
+    /**
+     * Query the records matching the filters with sort-by operation, one page at a time
+     * A cursor is only valid with the filters of the query that returned it
+     *
+     * @param datasetName the name of the dataset
+     * @param sortBy      comma-separated fields or dotted paths to sort by
+     * @param order       default sort order (asc or desc)
+     * @param limit       maximum number of records to return, or null for all
+     * @param cursor      opaque cursor from a previous page, or null for the first page
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @return sorted records response with the cursor of the next page
+     */
+    default DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order,
+                                                             Integer limit, String cursor, List<String> filter) {
+        return queryWithSortBy(datasetName, sortBy, order, limit, cursor, filter, null);
+    }
+
+    /**
+     * Query the records matching the filters with sort-by operation, returning only the
+     * selected fields of each record
+     *
+     * @param datasetName the name of the dataset
+     * @param sortBy      comma-separated fields or dotted paths to sort by
+     * @param order       default sort order (asc or desc)
+     * @param limit       maximum number of records to return, or null for all
+     * @param cursor      opaque cursor from a previous page, or null for the first page
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @param fields      comma-separated fields or dotted paths to return, or null for whole records
+     * @return sorted records response with the cursor of the next page
+     */
+    DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order,
+                                                     Integer limit, String cursor, List<String> filter,
+                                                     String fields);
+
+    /**
+     * Declare an index on a field of a dataset
+     * Existing records are indexed before this returns; group-by, sort-by and filters on
+     * the field then read the index in database queries
+     *
+     * @param datasetName the name of the dataset
+     * @param field       the field or dotted path to index
+     * @return index response telling whether the index was newly declared
+     */
+    DatasetDTO.FieldIndexResponse createFieldIndex(String datasetName, String field);
+
+    /**
+     * List the fields indexed for a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return indexed fields in declaration order
+     */
+    DatasetDTO.FieldIndexesResponse getFieldIndexes(String datasetName);
+
+    /**
+     * Register a materialized group-by view, kept current on every insert
+     * Group-by and aggregate queries with the same groupBy and aggregate parameters and
+     * no filter are then answered from the view without reading the records
+     * The dataset need not exist yet, so a view may be declared before its first insert
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     comma-separated fields or dotted paths to group by
+     * @param aggregate   optional aggregates; the view then keeps only per-group aggregates
+     * @return the view with its current size, telling whether it was newly registered
+     */
+    DatasetDTO.GroupByViewResponse createGroupByView(String datasetName, String groupBy, String aggregate);
+
+    /**
+     * List the materialized group-by views of a dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return views with their current size
+     */
+    DatasetDTO.GroupByViewsResponse getGroupByViews(String datasetName);
+
+    /**
+     * Convert the records of a dataset to another storage format
+     * Inserts and queries on the dataset wait until the conversion commits
+     *
+     * @param datasetName the name of the dataset
+     * @param format      json, or binary for the compact binary encoding
+     * @return the dataset's format and the number of converted records
+     */
+    DatasetDTO.StorageFormatResponse convertStorage(String datasetName, String format);
+
+    /**
+     * Remove all records of a dataset, keeping its field indexes and group-by views
+     * With partitioned storage the dataset's partition is truncated
+     *
+     * @param datasetName the name of the dataset
+     * @return confirmation
+     * @throws com.assignment.dataset.exception.DatasetException.DatasetNotFoundException if the dataset does not exist
+     */
+    DatasetDTO.DeleteDatasetResponse truncateDataset(String datasetName);
+
+    /**
+     * Remove a dataset: its records, field indexes and group-by views
+     * With partitioned storage the dataset's partition is dropped
+     *
+     * @param datasetName the name of the dataset
+     * @return confirmation
+     * @throws com.assignment.dataset.exception.DatasetException.DatasetNotFoundException if the dataset does not exist
+     */
+    DatasetDTO.DeleteDatasetResponse dropDataset(String datasetName);
+
+    /**
+     * Stream a group-by query, emitting each group key followed by its records
+     *
+     * @param datasetName the name of the dataset
+     * @param groupBy     the field to group by
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @param fields      fields to return as for queryWithGroupBy, or null for whole records
+     * @param handler     receiver of groups and records
+     */
+    void streamWithGroupBy(String datasetName, String groupBy, List<String> filter, String fields,
+                           RecordStreamHandler handler);
+
+    /**
+     * Stream a sort-by query, emitting records in sort order
+     *
+     * @param datasetName the name of the dataset
+     * @param sortBy      the field to sort by
+     * @param order       sort order (asc or desc)
+     * @param filter      filters as for queryWithGroupBy, or null for none
+     * @param fields      fields to return as for queryWithGroupBy, or null for whole records
+     * @param handler     receiver of records
+     */
+    void streamWithSortBy(String datasetName, String sortBy, String order, List<String> filter, String fields,
+                          RecordStreamHandler handler);
 }
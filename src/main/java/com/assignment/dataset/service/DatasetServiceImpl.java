@@ -1,16 +1,42 @@
 package com.assignment.dataset.service;
 
+import com.assignment.dataset.codec.FieldSelection;
+import com.assignment.dataset.codec.RecordCodec;
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.config.TransactionHooks;
 import com.assignment.dataset.dto.DatasetDTO;
+import com.assignment.dataset.entity.DatasetFieldIndex;
+import com.assignment.dataset.entity.DatasetGroupView;
 import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.entity.RecordFormat;
 import com.assignment.dataset.exception.DatasetException;
-import com.assignment.dataset.repository.DatasetRecordRepository;
+import com.assignment.dataset.metrics.QueryMetrics;
+import com.assignment.dataset.repository.DatasetFieldIndexRepository;
+import com.assignment.dataset.repository.DatasetGroupViewRepository;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom.KeysetPosition;
+import com.assignment.dataset.repository.RecordRepository;
+import com.assignment.dataset.service.cache.ColumnarDataset;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service implementation for dataset operations
@@ -21,7 +47,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DatasetServiceImpl implements DatasetService {
 
-    private final DatasetRecordRepository repository;
+    private final RecordRepository repository;
+    private final RecordBatchWriter batchWriter;
+    private final DatasetProperties properties;
+    private final ColumnarDatasetCache cache;
+    private final DatasetFieldIndexRepository fieldIndexRepository;
+    private final GroupByViews views;
+    private final DatasetGroupViewRepository viewRepository;
+    private final DatasetVersions versions;
+    private final RecordStorage storage;
+    private final QueryMetrics metrics;
+    private final WriteBehindQueue writeBehind;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
@@ -31,15 +70,29 @@ public class DatasetServiceImpl implements DatasetService {
         // Validate record data
         validateRecordData(recordData);
 
-        // Create and save the record
-        DatasetRecord record = DatasetRecord.builder()
-                .datasetName(datasetName)
-                .recordData(recordData)
-                .build();
+        // Acknowledge once queued; the writer commits it together with other queued records
+        if (writeBehind.isEnabled()) {
+            writeBehind.enqueue(datasetName, recordData);
+            return DatasetDTO.InsertRecordResponse.builder()
+                    .message("Record accepted")
+                    .dataset(datasetName)
+                    .recordId(recordData.get("id"))
+                    .queued(true)
+                    .build();
+        }
+
+        // Create and save the record in the dataset's storage format
+        DatasetRecord record = RecordStorage.newRecord(datasetName, recordData, storage.lockFormat(datasetName));
+        repository.preparePartition(datasetName);
 
         DatasetRecord savedRecord = repository.save(record);
         log.info("Record saved with ID: {}", savedRecord.getId());
 
+        // Keep a cached copy of the dataset current once this transaction commits
+        cache.onRecordInserted(datasetName, savedRecord.getId(), recordData);
+        views.onRecordInserted(datasetName, savedRecord.getId(), recordData);
+        versions.onRecordsInserted(datasetName);
+
         // Extract the record ID from the data if present, otherwise use entity ID
         Object recordId = recordData.get("id");
         if (recordId == null) {
@@ -53,13 +106,124 @@ public class DatasetServiceImpl implements DatasetService {
                 .build();
     }
 
+    @Override
+    public DatasetDTO.BulkInsertResponse insertRecords(String datasetName, InputStream body) {
+        log.info("Bulk inserting records into dataset: {}", datasetName);
+
+        int batchSize = properties.getIngest().getBatchSize();
+        long start = System.nanoTime();
+        long total = 0;
+        List<Integer> batchCounts = new ArrayList<>();
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+
+        try (BulkRecordReader reader = new BulkRecordReader(body)) {
+            while (reader.hasNext()) {
+                Map<String, Object> recordData = reader.next();
+                if (recordData == null || recordData.isEmpty()) {
+                    throw new DatasetException.InvalidRecordException(
+                            "Record " + reader.getPosition() + " cannot be null or empty");
+                }
+
+                batch.add(recordData);
+                if (batch.size() == batchSize) {
+                    total += writeBatch(datasetName, batch, batchCounts);
+                }
+            }
+            if (!batch.isEmpty()) {
+                total += writeBatch(datasetName, batch, batchCounts);
+            }
+        } catch (DatasetException.InvalidRecordException e) {
+            // Batches commit on their own, so tell the client which records are already stored
+            if (batchCounts.isEmpty()) {
+                throw e;
+            }
+            throw new DatasetException.PartialInsertException(e.getMessage(), total, batchCounts);
+        } catch (IOException e) {
+            throw new DatasetException("Failed to read request body", e);
+        }
+
+        if (total == 0) {
+            throw new DatasetException.InvalidRecordException("Request body contains no records");
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        double recordsPerSecond = total * 1_000_000_000d / elapsedNanos;
+        log.info("Inserted {} records into dataset: {} in {} batches ({} records/s)",
+                total, datasetName, batchCounts.size(), Math.round(recordsPerSecond));
+
+        return DatasetDTO.BulkInsertResponse.builder()
+                .message("Records added successfully")
+                .dataset(datasetName)
+                .recordsInserted(total)
+                .batches(batchCounts)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .recordsPerSecond(recordsPerSecond)
+                .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
-    public DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy) {
-        log.info("Querying dataset: {} with groupBy: {}", datasetName, groupBy);
+    public DatasetDTO.GroupedRecordsResponse queryWithGroupBy(String datasetName, String groupBy,
+                                                              List<String> filter, String fields) {
+        log.info("Querying dataset: {} with groupBy: {}, filter: {}, fields: {}", datasetName, groupBy, filter, fields);
+
+        List<FieldPath> groupFields = FieldPath.compileAll(groupBy, "groupBy");
+        RecordFilter recordFilter = RecordFilter.parse(filter);
+        FieldSelection selection = selectFields(fields);
+        QueryMetrics.Query metered = metrics.query(datasetName, "group");
+
+        // Answer from a materialized view registered for this query
+        GroupByView view = recordFilter.isEmpty() ? views.find(datasetName, GroupByView.key(groupFields), null) : null;
+        if (view != null) {
+            Map<String, List<Map<String, Object>>> groupedRecords =
+                    metered.time("view", () -> projectGroups(view.groupedRecords(), selection));
+            countGroups(metered, groupedRecords);
 
-        // Fetch all records for the dataset
-        List<DatasetRecord> records = repository.findByDatasetName(datasetName);
+            log.info("Grouped records into {} groups from a materialized view", groupedRecords.size());
+
+            return DatasetDTO.GroupedRecordsResponse.builder()
+                    .groupedRecords(groupedRecords)
+                    .build();
+        }
+
+        // Serve repeated queries from the columnar cache when it is enabled, unless an
+        // indexed filter lets the database read just the matching rows
+        if (cache.isEnabled() && !hasIndexedFilter(datasetName, recordFilter)) {
+            ColumnarDataset dataset = metered.time("fetch", () -> cache.get(datasetName));
+            Map<String, List<Map<String, Object>>> groupedRecords;
+            if (isSingleTopLevel(groupFields) && recordFilter.isEmpty()) {
+                String field = groupFields.get(0).getPath();
+                groupedRecords = metered.time("group", () -> projectGroups(dataset.groupBy(field), selection));
+            } else {
+                List<DatasetRecord> records = filterRecords(metered, dataset.records(), recordFilter);
+                groupedRecords = metered.time("group",
+                        () -> groupRecordsByField(metered, records, groupFields, selection));
+            }
+            countGroups(metered, groupedRecords);
+
+            log.info("Grouped records into {} groups from the cache", groupedRecords.size());
+
+            return DatasetDTO.GroupedRecordsResponse.builder()
+                    .groupedRecords(groupedRecords)
+                    .build();
+        }
+
+        // Let the database do the grouping when it can evaluate JSON fields
+        if (pushdown(datasetName)) {
+            Map<String, List<Map<String, Object>>> groupedRecords =
+                    groupRecordsInDatabase(datasetName, groupFields, recordFilter, selection);
+            countGroups(metered, groupedRecords);
+
+            log.info("Grouped records into {} groups in the database", groupedRecords.size());
+
+            return DatasetDTO.GroupedRecordsResponse.builder()
+                    .groupedRecords(groupedRecords)
+                    .build();
+        }
+
+        // Fetch all records for the dataset unparsed, keeping those that match the filters;
+        // only the filter and sort fields are read until records are returned
+        List<DatasetRecord> records = filterRecords(metered, fetchUnparsed(metered, datasetName), recordFilter);
 
         if (records.isEmpty()) {
             log.warn("No records found for dataset: {}", datasetName);
@@ -68,8 +232,10 @@ public class DatasetServiceImpl implements DatasetService {
                     .build();
         }
 
-        // Group records by the specified field
-        Map<String, List<Map<String, Object>>> groupedRecords = groupRecordsByField(records, groupBy);
+        // Group records by the specified field; records are decoded as they are grouped
+        Map<String, List<Map<String, Object>>> groupedRecords =
+                metered.time("group", () -> groupRecordsByField(metered, records, groupFields, selection));
+        countGroups(metered, groupedRecords);
 
         log.info("Grouped {} records into {} groups", records.size(), groupedRecords.size());
 
@@ -80,20 +246,115 @@ public class DatasetServiceImpl implements DatasetService {
 
     @Override
     @Transactional(readOnly = true)
-    public DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order) {
-        log.info("Querying dataset: {} with sortBy: {}, order: {}", datasetName, sortBy, order);
+    public DatasetDTO.AggregatedRecordsResponse queryWithAggregates(String datasetName, String groupBy,
+                                                                    String aggregate, List<String> filter) {
+        log.info("Querying dataset: {} with groupBy: {}, aggregate: {}, filter: {}",
+                datasetName, groupBy, aggregate, filter);
 
-        // Validate order parameter
-        if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+        if (groupBy == null) {
+            throw new DatasetException.InvalidQueryException("The aggregate parameter requires groupBy");
+        }
+
+        List<FieldPath> groupFields = FieldPath.compileAll(groupBy, "groupBy");
+        Aggregation aggregation = Aggregation.parse(aggregate);
+        RecordFilter recordFilter = RecordFilter.parse(filter);
+        QueryMetrics.Query metered = metrics.query(datasetName, "aggregate");
+
+        GroupByView view = recordFilter.isEmpty()
+                ? views.find(datasetName, GroupByView.key(groupFields), aggregation.spec())
+                : null;
+
+        Map<String, Map<String, Object>> aggregates;
+        if (view != null) {
+            aggregates = metered.time("view", view::aggregates);
+        } else if (cache.isEnabled() && !hasIndexedFilter(datasetName, recordFilter)) {
+            ColumnarDataset dataset = metered.time("fetch", () -> cache.get(datasetName));
+            List<DatasetRecord> records = filterRecords(metered, dataset.records(), recordFilter);
+            aggregates = metered.time("aggregate",
+                    () -> aggregateRecordsByField(metered, records, groupFields, aggregation));
+        } else if (pushdown(datasetName)) {
+            // Let the database compute the aggregates with GROUP BY
+            Map<String, Map<String, Object>> groups = new LinkedHashMap<>();
+            database().scanAggregatedByFields(datasetName, paths(groupFields), aggregation.valueFieldPaths(),
+                    recordFilter.predicates(),
+                    (groupKey, count, summaries) -> groups.put(groupKey, aggregation.result(count, summaries)));
+            aggregates = groups;
+        } else {
+            // Aggregates read only their group and value fields, so records are never parsed whole
+            List<DatasetRecord> records =
+                    filterRecords(metered, fetchUnparsed(metered, datasetName), recordFilter);
+            aggregates = metered.time("aggregate",
+                    () -> aggregateRecordsByField(metered, records, groupFields, aggregation));
+        }
+        metered.groups(aggregates.size());
+
+        log.info("Aggregated dataset: {} into {} groups", datasetName, aggregates.size());
+
+        return DatasetDTO.AggregatedRecordsResponse.builder()
+                .aggregates(aggregates)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DatasetDTO.SortedRecordsResponse queryWithSortBy(String datasetName, String sortBy, String order,
+                                                            Integer limit, String cursor, List<String> filter,
+                                                            String fields) {
+        log.info("Querying dataset: {} with sortBy: {}, order: {}, limit: {}, filter: {}, fields: {}",
+                datasetName, sortBy, order, limit, filter, fields);
+
+        String sortOrder = resolveSortOrder(order);
+
+        // Validate limit parameter
+        if (limit != null && limit < 1) {
             throw new DatasetException.InvalidQueryException(
-                    "Invalid order parameter. Must be 'asc' or 'desc'");
+                    "Invalid limit parameter. Must be a positive number");
         }
 
-        // Default to ascending if not specified
-        String sortOrder = order != null ? order.toLowerCase() : "asc";
+        List<SortSpec> sortKeys = SortSpec.parse(sortBy, sortOrder);
+        SortCursor after = cursor != null ? SortCursor.decode(cursor, sortBy, sortOrder) : null;
+        RecordFilter recordFilter = RecordFilter.parse(filter);
+        FieldSelection selection = selectFields(fields);
+        QueryMetrics.Query metered = metrics.query(datasetName, "sort");
 
-        // Fetch all records for the dataset
-        List<DatasetRecord> records = repository.findByDatasetName(datasetName);
+        // Serve repeated queries from the columnar cache when it is enabled, unless an
+        // indexed filter lets the database read just the matching rows
+        if (cache.isEnabled() && !(sortKeys.size() == 1 && hasIndexedFilter(datasetName, recordFilter))) {
+            ColumnarDataset dataset = metered.time("fetch", () -> cache.get(datasetName));
+            List<DatasetRecord> cachedRecords = filterRecords(metered, dataset.records(), recordFilter);
+            if (limit != null) {
+                return selectTopRecords(metered, cachedRecords, sortBy, sortOrder, sortKeys, limit, after, selection);
+            }
+
+            List<DatasetRecord> sortedRecords = metered.time("sort", () -> {
+                if (sortKeys.size() == 1 && sortKeys.get(0).getField().isTopLevel() && recordFilter.isEmpty()) {
+                    List<DatasetRecord> sorted =
+                            dataset.sortBy(sortKeys.get(0).getField().getPath(), sortKeys.get(0).isAscending());
+                    if (sorted != null) {
+                        return sorted;
+                    }
+                }
+                // Multiple keys, nested paths and mixed value types use the generic sort
+                return sortRecordsByField(cachedRecords, sortKeys);
+            });
+
+            log.info("Sorted {} records by field: {} from the cache", sortedRecords.size(), sortBy);
+
+            return pageSortedRecords(metered, sortedRecords, sortBy, sortOrder, sortKeys, limit, after, selection);
+        }
+
+        // Let the database order and page the records when it can evaluate JSON fields;
+        // keyset pagination covers a single sort key
+        if (sortKeys.size() == 1 && pushdown(datasetName)) {
+            DatasetDTO.SortedRecordsResponse response = sortRecordsInDatabase(datasetName, sortBy, sortOrder,
+                    sortKeys.get(0), limit, after != null ? after.position() : null, recordFilter, selection);
+            metered.returned(response.getSortedRecords().size());
+            return response;
+        }
+
+        // Fetch all records for the dataset unparsed, keeping those that match the filters;
+        // only the filter and sort fields are read until records are returned
+        List<DatasetRecord> records = filterRecords(metered, fetchUnparsed(metered, datasetName), recordFilter);
 
         if (records.isEmpty()) {
             log.warn("No records found for dataset: {}", datasetName);
@@ -102,16 +363,446 @@ public class DatasetServiceImpl implements DatasetService {
                     .build();
         }
 
+        // A page only needs its first records, which a bounded heap selects without a full sort
+        if (limit != null) {
+            return selectTopRecords(metered, records, sortBy, sortOrder, sortKeys, limit, after, selection);
+        }
+
         // Sort records by the specified field
-        List<Map<String, Object>> sortedRecords = sortRecordsByField(records, sortBy, sortOrder);
+        List<DatasetRecord> sortedRecords = metered.time("sort", () -> sortRecordsByField(records, sortKeys));
 
         log.info("Sorted {} records by field: {}", records.size(), sortBy);
 
-        return DatasetDTO.SortedRecordsResponse.builder()
-                .sortedRecords(sortedRecords)
+        return pageSortedRecords(metered, sortedRecords, sortBy, sortOrder, sortKeys, limit, after, selection);
+    }
+
+    @Override
+    public DatasetDTO.FieldIndexResponse createFieldIndex(String datasetName, String field) {
+        log.info("Declaring index on field: {} for dataset: {}", field, datasetName);
+
+        if (field == null || field.isBlank()) {
+            throw new DatasetException.InvalidQueryException("Invalid field. Field names must not be empty");
+        }
+        DatasetRecordRepositoryCustom database = repository.jsonPushdown()
+                .orElseThrow(() -> new DatasetException.InvalidQueryException(
+                        "Field indexes require a database that can evaluate JSON fields"));
+        if (storage.lockFormat(datasetName) != RecordFormat.JSON) {
+            throw new DatasetException.InvalidQueryException("Field indexes require a dataset stored as JSON");
+        }
+
+        // Build the index first so a declaration is never recorded without it
+        database.createFieldIndex(datasetName, field);
+
+        boolean created = false;
+        if (!fieldIndexRepository.existsByDatasetNameAndFieldName(datasetName, field)) {
+            try {
+                fieldIndexRepository.save(DatasetFieldIndex.builder()
+                        .datasetName(datasetName)
+                        .fieldName(field)
+                        .build());
+                created = true;
+            } catch (DataIntegrityViolationException e) {
+                // Declared concurrently by another request
+                log.debug("Field index on {} for dataset {} already declared", field, datasetName);
+            }
+        }
+
+        return DatasetDTO.FieldIndexResponse.builder()
+                .message(created ? "Field index created" : "Field index already exists")
+                .dataset(datasetName)
+                .field(field)
+                .created(created)
                 .build();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public DatasetDTO.FieldIndexesResponse getFieldIndexes(String datasetName) {
+        List<String> fields = fieldIndexRepository.findByDatasetNameOrderByIdAsc(datasetName).stream()
+                .map(DatasetFieldIndex::getFieldName)
+                .collect(Collectors.toList());
+
+        return DatasetDTO.FieldIndexesResponse.builder()
+                .dataset(datasetName)
+                .fields(fields)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public DatasetDTO.GroupByViewResponse createGroupByView(String datasetName, String groupBy, String aggregate) {
+        log.info("Registering group-by view on dataset: {} by {}, aggregate: {}", datasetName, groupBy, aggregate);
+
+        if (groupBy == null) {
+            throw new DatasetException.InvalidQueryException("The groupBy parameter is required");
+        }
+        List<FieldPath> groupFields = FieldPath.compileAll(groupBy, "groupBy");
+        Aggregation aggregation = aggregate != null ? Aggregation.parse(aggregate) : null;
+
+        // No existence check: a view may be declared before the dataset's first insert
+        GroupByViews.Registration registration = views.register(datasetName, groupFields, aggregation);
+        GroupByView view = registration.view();
+
+        boolean created = false;
+        if (registration.created()) {
+            // Only the request adding the view persists it, and drops it again if that fails
+            TransactionHooks.afterCompletion(committed -> {
+                if (!committed) {
+                    views.unregister(view);
+                }
+            });
+            String aggregates = view.getAggregate() != null ? view.getAggregate() : "";
+            if (!viewRepository.existsByDatasetNameAndGroupByFieldsAndAggregates(datasetName, view.getGroupBy(),
+                    aggregates)) {
+                try {
+                    viewRepository.save(DatasetGroupView.builder()
+                            .datasetName(datasetName)
+                            .groupByFields(view.getGroupBy())
+                            .aggregates(aggregates)
+                            .build());
+                } catch (RuntimeException e) {
+                    views.unregister(view);
+                    throw e;
+                }
+            }
+            created = true;
+        }
+
+        DatasetDTO.GroupByViewResponse response = toViewResponse(view);
+        response.setMessage(created ? "Group-by view created" : "Group-by view already exists");
+        response.setCreated(created);
+        return response;
+    }
+
+    @Override
+    public DatasetDTO.GroupByViewsResponse getGroupByViews(String datasetName) {
+        return DatasetDTO.GroupByViewsResponse.builder()
+                .dataset(datasetName)
+                .views(views.views(datasetName).stream().map(this::toViewResponse).collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * Rebuild registered group-by views from the records at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreGroupByViews() {
+        for (DatasetGroupView registered : viewRepository.findAll()) {
+            try {
+                views.register(registered.getDatasetName(),
+                        FieldPath.compileAll(registered.getGroupByFields(), "groupBy"),
+                        registered.getAggregates().isEmpty() ? null : Aggregation.parse(registered.getAggregates()));
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild group-by view on dataset: {} by {}",
+                        registered.getDatasetName(), registered.getGroupByFields(), e);
+            }
+        }
+    }
+
+    private DatasetDTO.GroupByViewResponse toViewResponse(GroupByView view) {
+        return DatasetDTO.GroupByViewResponse.builder()
+                .dataset(view.getDatasetName())
+                .groupBy(view.getGroupBy())
+                .aggregate(view.getAggregate())
+                .ready(view.isReady())
+                .groups(view.groupCount())
+                .records(view.recordCount())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public DatasetDTO.StorageFormatResponse convertStorage(String datasetName, String format) {
+        log.info("Converting dataset: {} to {} storage", datasetName, format);
+
+        RecordFormat target = parseFormat(format);
+        if (properties.getStorage().getEngine() == DatasetProperties.Storage.Engine.EMBEDDED) {
+            throw new DatasetException.InvalidQueryException(
+                    "Datasets in the embedded record store keep the format they were written in");
+        }
+        RecordFormat current = storage.lockForConversion(datasetName);
+        if (current == target) {
+            return DatasetDTO.StorageFormatResponse.builder()
+                    .message("Dataset already stored as " + target.name().toLowerCase())
+                    .dataset(datasetName)
+                    .format(target.name().toLowerCase())
+                    .converted(false)
+                    .recordsConverted(0)
+                    .build();
+        }
+        if (target == RecordFormat.BINARY
+                && !fieldIndexRepository.findByDatasetNameOrderByIdAsc(datasetName).isEmpty()) {
+            throw new DatasetException.InvalidQueryException(
+                    "Datasets with field indexes must stay stored as JSON");
+        }
+
+        // Rewrite the records in ID-ordered batches, clearing the persistence context between them
+        int batchSize = properties.getIngest().getBatchSize();
+        long converted = 0;
+        Long lastId = 0L;
+        List<DatasetRecord> batch;
+        do {
+            batch = repository.findByDatasetNameAndIdGreaterThanOrderByIdAsc(datasetName, lastId,
+                    PageRequest.of(0, batchSize));
+            for (DatasetRecord record : batch) {
+                Map<String, Object> recordData = record.getRecordData();
+                if (target == RecordFormat.BINARY) {
+                    record.setRecordBinary(RecordCodec.encode(recordData));
+                    record.setRecordData(null);
+                } else {
+                    record.setRecordData(recordData);
+                    record.setRecordBinary(null);
+                }
+                lastId = record.getId();
+            }
+            converted += batch.size();
+            entityManager.flush();
+            entityManager.clear();
+        } while (batch.size() == batchSize);
+
+        storage.onConverted(datasetName, target);
+        log.info("Converted {} records of dataset: {} to {} storage", converted, datasetName, target);
+
+        return DatasetDTO.StorageFormatResponse.builder()
+                .message("Dataset converted to " + target.name().toLowerCase() + " storage")
+                .dataset(datasetName)
+                .format(target.name().toLowerCase())
+                .converted(true)
+                .recordsConverted(converted)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public DatasetDTO.DeleteDatasetResponse truncateDataset(String datasetName) {
+        log.info("Truncating dataset: {}", datasetName);
+
+        // Records queued before the request are removed too; inserts and queries wait until the removal commits
+        writeBehind.awaitFlushed(datasetName);
+        storage.lockForConversion(datasetName);
+        checkDatasetExists(datasetName);
+
+        repository.truncateDataset(datasetName);
+        entityManager.clear();
+
+        views.onDatasetTruncated(datasetName);
+        cache.onRecordsDeleted(datasetName);
+        versions.onRecordsDeleted(datasetName);
+        storage.onDeleted(datasetName);
+
+        return DatasetDTO.DeleteDatasetResponse.builder()
+                .message("Dataset records deleted")
+                .dataset(datasetName)
+                .dropped(false)
+                .partitioned(repository.isPartitioned())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public DatasetDTO.DeleteDatasetResponse dropDataset(String datasetName) {
+        log.info("Dropping dataset: {}", datasetName);
+
+        // Records queued before the request are removed too; inserts and queries wait until the removal commits
+        writeBehind.awaitFlushed(datasetName);
+        storage.lockForConversion(datasetName);
+        checkDatasetExists(datasetName);
+
+        repository.dropDataset(datasetName);
+        entityManager.clear();
+        List<String> indexedFields = fieldIndexRepository.findByDatasetNameOrderByIdAsc(datasetName).stream()
+                .map(DatasetFieldIndex::getFieldName)
+                .toList();
+        fieldIndexRepository.deleteByDatasetName(datasetName);
+        viewRepository.deleteByDatasetName(datasetName);
+        TransactionHooks.afterCommit(() -> dropUndeclaredFieldIndexes(indexedFields));
+
+        views.onDatasetDropped(datasetName);
+        cache.onRecordsDeleted(datasetName);
+        versions.onRecordsDeleted(datasetName);
+        storage.onDeleted(datasetName);
+
+        return DatasetDTO.DeleteDatasetResponse.builder()
+                .message("Dataset dropped")
+                .dataset(datasetName)
+                .dropped(true)
+                .partitioned(repository.isPartitioned())
+                .build();
+    }
+
+    /**
+     * Drop the shared index structures of fields that no remaining dataset declares
+     * Runs after the dropping transaction commits, as the DDL may commit implicitly
+     */
+    private void dropUndeclaredFieldIndexes(List<String> fields) {
+        repository.jsonPushdown().ifPresent(database -> {
+            for (String field : fields) {
+                if (!fieldIndexRepository.existsByFieldName(field)) {
+                    database.dropFieldIndex(field);
+                }
+            }
+        });
+    }
+
+    /**
+     * A dataset exists while it has records, declared field indexes or group-by views
+     */
+    private void checkDatasetExists(String datasetName) {
+        if (!repository.existsByDatasetName(datasetName)
+                && fieldIndexRepository.findByDatasetNameOrderByIdAsc(datasetName).isEmpty()
+                && views.views(datasetName).isEmpty()) {
+            throw new DatasetException.DatasetNotFoundException(datasetName);
+        }
+    }
+
+    private static RecordFormat parseFormat(String format) {
+        try {
+            return RecordFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new DatasetException.InvalidQueryException(
+                    "Invalid format parameter. Must be 'json' or 'binary'");
+        }
+    }
+
+    /**
+     * Recreate declared field indexes at startup; index creation is idempotent
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreFieldIndexes() {
+        repository.jsonPushdown().ifPresent(database -> {
+            for (DatasetFieldIndex index : fieldIndexRepository.findAll()) {
+                database.createFieldIndex(index.getDatasetName(), index.getFieldName());
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamWithGroupBy(String datasetName, String groupBy, List<String> filter, String fields,
+                                  RecordStreamHandler handler) {
+        log.info("Streaming dataset: {} with groupBy: {}, filter: {}, fields: {}",
+                datasetName, groupBy, filter, fields);
+
+        List<FieldPath> groupFields = FieldPath.compileAll(groupBy, "groupBy");
+        RecordFilter recordFilter = RecordFilter.parse(filter);
+        FieldSelection selection = selectFields(fields);
+
+        // Rows arrive grouped from the database, so a header is emitted whenever the key changes
+        if (pushdown(datasetName)) {
+            String[] currentKey = new String[1];
+            database().scanGroupedByFields(datasetName, paths(groupFields), recordFilter.predicates(),
+                    (groupKey, id, data) -> {
+                        if (!groupKey.equals(currentKey[0])) {
+                            currentKey[0] = groupKey;
+                            handler.onGroup(groupKey);
+                        }
+                        handler.onRecord(project(data, selection));
+                    });
+            return;
+        }
+
+        // Group order depends on every record, so the fallback holds the dataset unparsed and
+        // orders it by group; each record is parsed only as it is written
+        QueryMetrics.Query metered = metrics.query(datasetName, "group");
+        List<DatasetRecord> records = filterRecords(metered, fetchUnparsed(metered, datasetName), recordFilter);
+        String[] groupKeys = new String[records.size()];
+        int[] groupOrder = metered.time("group", () -> orderByGroup(metered, records, groupFields, groupKeys));
+
+        String currentKey = null;
+        for (int index : groupOrder) {
+            if (!groupKeys[index].equals(currentKey)) {
+                currentKey = groupKeys[index];
+                handler.onGroup(currentKey);
+            }
+            handler.onRecord(records.get(index).getRecordData(selection));
+        }
+        metered.returned(records.size());
+    }
+
+    /**
+     * Order record indexes by group, groups in first-appearance order and records in dataset
+     * order within each group, filling in each record's group key
+     */
+    private int[] orderByGroup(QueryMetrics.Query metered, List<DatasetRecord> records, List<FieldPath> groupFields,
+                               String[] groupKeys) {
+        Map<String, Integer> groups = new HashMap<>();
+        int[] groupOf = new int[records.size()];
+        StringBuilder keyBuffer = new StringBuilder();
+        LongAdder missingKeys = new LongAdder();
+        for (int i = 0; i < groupOf.length; i++) {
+            groupKeys[i] = groupKeyOf(records.get(i), groupFields, keyBuffer, missingKeys);
+            groupOf[i] = groups.computeIfAbsent(groupKeys[i], k -> groups.size());
+        }
+        reportMissingKeys(metered, groupFields, missingKeys, records.size());
+        metered.groups(groups.size());
+
+        // Counting sort on the group number keeps dataset order within each group
+        int[] starts = new int[groups.size() + 1];
+        for (int group : groupOf) {
+            starts[group + 1]++;
+        }
+        for (int g = 1; g < starts.length; g++) {
+            starts[g] += starts[g - 1];
+        }
+        int[] order = new int[groupOf.length];
+        for (int i = 0; i < groupOf.length; i++) {
+            order[starts[groupOf[i]]++] = i;
+        }
+        return order;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamWithSortBy(String datasetName, String sortBy, String order, List<String> filter, String fields,
+                                 RecordStreamHandler handler) {
+        log.info("Streaming dataset: {} with sortBy: {}, order: {}, filter: {}, fields: {}",
+                datasetName, sortBy, order, filter, fields);
+
+        List<SortSpec> sortKeys = SortSpec.parse(sortBy, resolveSortOrder(order));
+        RecordFilter recordFilter = RecordFilter.parse(filter);
+        FieldSelection selection = selectFields(fields);
+
+        if (sortKeys.size() == 1 && pushdown(datasetName)) {
+            SortSpec sortKey = sortKeys.get(0);
+            database().scanSortedByField(datasetName, sortKey.getField().getPath(), sortKey.isAscending(), null, null,
+                    recordFilter.predicates(), (position, data) -> handler.onRecord(project(data, selection)));
+            return;
+        }
+
+        // Sorting needs every record, so the fallback holds the dataset unparsed, sorts it on
+        // the extracted keys and parses each record only as it is written
+        QueryMetrics.Query metered = metrics.query(datasetName, "sort");
+        List<DatasetRecord> records = filterRecords(metered, fetchUnparsed(metered, datasetName), recordFilter);
+        List<DatasetRecord> sortedRecords = metered.time("sort", () -> sortRecordsByField(records, sortKeys));
+        sortedRecords.stream()
+                .map(record -> record.getRecordData(selection))
+                .forEach(handler::onRecord);
+        metered.returned(sortedRecords.size());
+    }
+
+    /**
+     * Validate the order parameter and default to ascending
+     */
+    private String resolveSortOrder(String order) {
+        if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new DatasetException.InvalidQueryException(
+                    "Invalid order parameter. Must be 'asc' or 'desc'");
+        }
+        return order != null ? order.toLowerCase() : "asc";
+    }
+
+    /**
+     * Commit one batch and start the next
+     */
+    private int writeBatch(String datasetName, List<Map<String, Object>> batch, List<Integer> batchCounts) {
+        int written = batchWriter.writeBatch(datasetName, batch);
+        cache.invalidate(datasetName);
+        versions.onRecordsInserted(datasetName);
+        batchCounts.add(written);
+        batch.clear();
+        return written;
+    }
+
     /**
      * Validate record data
      */
@@ -123,86 +814,456 @@ public class DatasetServiceImpl implements DatasetService {
 
     /**
      * Group records by a specific field
+     * Large datasets are grouped in partitions on the common fork/join pool; partitions
+     * are merged in order, so group order and record order match a sequential pass
      */
-    private Map<String, List<Map<String, Object>>> groupRecordsByField(
-            List<DatasetRecord> records, String groupByField) {
+    private Map<String, List<Map<String, Object>>> groupRecordsByField(QueryMetrics.Query metered,
+            List<DatasetRecord> records, List<FieldPath> groupFields, FieldSelection selection) {
+
+        LongAdder missingKeys = new LongAdder();
+        if (!runInParallel(records.size())) {
+            Map<String, List<Map<String, Object>>> groupedMap =
+                    groupPartition(records, groupFields, selection, missingKeys);
+            reportMissingKeys(metered, groupFields, missingKeys, records.size());
+            return groupedMap;
+        }
+
+        List<Map<String, List<Map<String, Object>>>> partitionGroups =
+                mapPartitions(records, partition -> groupPartition(partition, groupFields, selection, missingKeys));
+        reportMissingKeys(metered, groupFields, missingKeys, records.size());
+
+        Map<String, List<Map<String, Object>>> groupedMap = new LinkedHashMap<>();
+        for (Map<String, List<Map<String, Object>>> groups : partitionGroups) {
+            groups.forEach((groupKey, groupRecords) -> {
+                List<Map<String, Object>> merged = groupedMap.putIfAbsent(groupKey, groupRecords);
+                if (merged != null) {
+                    merged.addAll(groupRecords);
+                }
+            });
+        }
+        return groupedMap;
+    }
+
+    /**
+     * Group a run of records by a specific field
+     */
+    private Map<String, List<Map<String, Object>>> groupPartition(List<DatasetRecord> records,
+            List<FieldPath> groupFields, FieldSelection selection, LongAdder missingKeys) {
+
+        Map<String, List<Map<String, Object>>> groupedMap = new LinkedHashMap<>();
+        StringBuilder keyBuffer = new StringBuilder();
+
+        for (DatasetRecord record : records) {
+            Map<String, Object> data = record.getRecordData(selection);
+
+            String groupKey = groupKeyOf(record, groupFields, keyBuffer, missingKeys);
+
+            // Add record to the appropriate group
+            groupedMap.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(data);
+        }
+
+        return groupedMap;
+    }
 
+    /**
+     * Group records by a specific field using a database-side query
+     * Group order and record order match the in-memory grouping
+     */
+    private Map<String, List<Map<String, Object>>> groupRecordsInDatabase(
+            String datasetName, List<FieldPath> groupFields, RecordFilter recordFilter, FieldSelection selection) {
         Map<String, List<Map<String, Object>>> groupedMap = new LinkedHashMap<>();
 
+        database().scanGroupedByFields(datasetName, paths(groupFields), recordFilter.predicates(),
+                (groupKey, id, data) -> groupedMap.computeIfAbsent(groupKey, k -> new ArrayList<>())
+                        .add(project(data, selection)));
+
+        return groupedMap;
+    }
+
+    /**
+     * Aggregate records per group in one pass, in parallel partitions for large datasets
+     * Groups keep first-appearance order
+     */
+    private Map<String, Map<String, Object>> aggregateRecordsByField(QueryMetrics.Query metered,
+            List<DatasetRecord> records, List<FieldPath> groupFields, Aggregation aggregation) {
+
+        LongAdder missingKeys = new LongAdder();
+        List<Map<String, Aggregation.Accumulator>> partitionGroups = runInParallel(records.size())
+                ? mapPartitions(records, partition -> aggregatePartition(partition, groupFields, aggregation,
+                        missingKeys))
+                : List.of(aggregatePartition(records, groupFields, aggregation, missingKeys));
+        reportMissingKeys(metered, groupFields, missingKeys, records.size());
+
+        Map<String, Aggregation.Accumulator> merged = new LinkedHashMap<>();
+        for (Map<String, Aggregation.Accumulator> groups : partitionGroups) {
+            groups.forEach((groupKey, accumulator) -> {
+                Aggregation.Accumulator existing = merged.putIfAbsent(groupKey, accumulator);
+                if (existing != null) {
+                    existing.merge(accumulator);
+                }
+            });
+        }
+
+        Map<String, Map<String, Object>> aggregates = new LinkedHashMap<>();
+        merged.forEach((groupKey, accumulator) -> aggregates.put(groupKey, aggregation.result(accumulator)));
+        return aggregates;
+    }
+
+    /**
+     * Accumulate a run of records per group
+     */
+    private Map<String, Aggregation.Accumulator> aggregatePartition(List<DatasetRecord> records,
+            List<FieldPath> groupFields, Aggregation aggregation, LongAdder missingKeys) {
+
+        Map<String, Aggregation.Accumulator> groups = new LinkedHashMap<>();
+        StringBuilder keyBuffer = new StringBuilder();
+
         for (DatasetRecord record : records) {
-            Map<String, Object> data = record.getRecordData();
+            String groupKey = groupKeyOf(record, groupFields, keyBuffer, missingKeys);
+            groups.computeIfAbsent(groupKey, k -> aggregation.newAccumulator()).add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * Build the grouping key of a record, joining the values of multiple fields
+     * Records without a value for a groupBy field are counted in missingKeys
+     */
+    private static String groupKeyOf(DatasetRecord record, List<FieldPath> groupFields, StringBuilder keyBuffer,
+                                     LongAdder missingKeys) {
+        keyBuffer.setLength(0);
 
-            // Get the grouping key value
-            Object groupKeyValue = data.get(groupByField);
+        boolean missing = false;
+        for (FieldPath field : groupFields) {
+            Object groupKeyValue = field.read(record);
 
             if (groupKeyValue == null) {
                 // Handle records without the groupBy field
-                log.warn("Record {} does not contain field: {}", record.getId(), groupByField);
-                groupKeyValue = "null";
+                missing = true;
             }
 
-            String groupKey = String.valueOf(groupKeyValue);
+            if (keyBuffer.length() > 0) {
+                keyBuffer.append(DatasetRecordRepositoryCustom.GROUP_KEY_SEPARATOR);
+            }
+            keyBuffer.append(FieldPath.keyText(groupKeyValue));
+        }
+        if (missing) {
+            missingKeys.increment();
+        }
+        return keyBuffer.toString();
+    }
 
-            // Add record to the appropriate group
-            groupedMap.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(data);
+    /**
+     * Log one warning per query for the records grouped under "null", instead of one per record
+     */
+    private static void reportMissingKeys(QueryMetrics.Query metered, List<FieldPath> groupFields,
+                                          LongAdder missingKeys, int recordCount) {
+        long missing = missingKeys.sum();
+        if (missing > 0) {
+            log.warn("{} of {} records do not contain field: {}", missing, recordCount, paths(groupFields));
+            metered.missingKeys(missing);
         }
+    }
 
-        return groupedMap;
+    /**
+     * Run a task over consecutive partitions of the records on the common fork/join pool
+     * Results are returned in partition order
+     */
+    private <T> List<T> mapPartitions(List<DatasetRecord> records, Function<List<DatasetRecord>, T> task) {
+        int partitions = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 4);
+        int partitionSize = (records.size() + partitions - 1) / partitions;
+
+        return IntStream.range(0, partitions)
+                .parallel()
+                .mapToObj(p -> {
+                    int from = Math.min(records.size(), p * partitionSize);
+                    int to = Math.min(records.size(), from + partitionSize);
+                    return task.apply(records.subList(from, to));
+                })
+                .toList();
     }
 
     /**
-     * Sort records by a specific field
+     * Compile the fields parameter of a query
+     *
+     * @return the selection, or null to return whole records
      */
-    private List<Map<String, Object>> sortRecordsByField(
-            List<DatasetRecord> records, String sortByField, String order) {
+    private static FieldSelection selectFields(String fields) {
+        return fields != null ? FieldSelection.of(FieldPath.splitList(fields, "fields")) : null;
+    }
 
-        List<Map<String, Object>> recordDataList = records.stream()
-                .map(DatasetRecord::getRecordData)
-                .collect(Collectors.toList());
+    private static Map<String, Object> project(Map<String, Object> data, FieldSelection selection) {
+        return selection != null ? selection.apply(data) : data;
+    }
+
+    private static Map<String, List<Map<String, Object>>> projectGroups(
+            Map<String, List<Map<String, Object>>> groupedRecords, FieldSelection selection) {
+        if (selection == null) {
+            return groupedRecords;
+        }
+        Map<String, List<Map<String, Object>>> projected = new LinkedHashMap<>();
+        groupedRecords.forEach((groupKey, groupRecords) ->
+                projected.put(groupKey, groupRecords.stream().map(selection::apply).collect(Collectors.toList())));
+        return projected;
+    }
 
-        // Custom comparator for sorting
-        Comparator<Map<String, Object>> comparator = (map1, map2) -> {
-            Object value1 = map1.get(sortByField);
-            Object value2 = map2.get(sortByField);
+    private static boolean isSingleTopLevel(List<FieldPath> fields) {
+        return fields.size() == 1 && fields.get(0).isTopLevel();
+    }
+
+    private static List<String> paths(List<FieldPath> fields) {
+        return fields.stream().map(FieldPath::getPath).collect(Collectors.toList());
+    }
+
+    /**
+     * Sort and page records with a keyset query in the database
+     * One extra row is fetched to find out whether another page follows
+     */
+    private DatasetDTO.SortedRecordsResponse sortRecordsInDatabase(
+            String datasetName, String sortByField, String order, SortSpec sortKey,
+            Integer limit, KeysetPosition after, RecordFilter recordFilter, FieldSelection selection) {
 
-            // Handle null values
-            if (value1 == null && value2 == null) return 0;
-            if (value1 == null) return order.equals("asc") ? 1 : -1;
-            if (value2 == null) return order.equals("asc") ? -1 : 1;
+        List<Map<String, Object>> page = new ArrayList<>();
+        List<KeysetPosition> positions = new ArrayList<>();
+        Integer fetchLimit = limit != null ? limit + 1 : null;
 
-            // Compare values
-            int result = compareValues(value1, value2);
+        database().scanSortedByField(datasetName, sortKey.getField().getPath(), sortKey.isAscending(),
+                after, fetchLimit, recordFilter.predicates(),
+                (position, data) -> {
+                    page.add(project(data, selection));
+                    positions.add(position);
+                });
 
-            // Apply sort order
-            return order.equals("asc") ? result : -result;
-        };
+        String nextCursor = null;
+        if (limit != null && page.size() > limit) {
+            page.remove(limit.intValue());
+            nextCursor = SortCursor.encode(sortByField, order, positions.get(limit - 1));
+        }
+
+        log.info("Sorted {} records by field: {} in the database", page.size(), sortByField);
 
-        recordDataList.sort(comparator);
-        return recordDataList;
+        return DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(page)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
-     * Compare two values intelligently
+     * Cut one page out of records sorted in memory
+     * The page starts after the cursor's sort values, found by binary search, so it
+     * does not depend on the cursor's record still being there
      */
-    @SuppressWarnings("unchecked")
-    private int compareValues(Object value1, Object value2) {
-        // Try numeric comparison first
-        if (value1 instanceof Number && value2 instanceof Number) {
-            double num1 = ((Number) value1).doubleValue();
-            double num2 = ((Number) value2).doubleValue();
-            return Double.compare(num1, num2);
+    private DatasetDTO.SortedRecordsResponse pageSortedRecords(
+            QueryMetrics.Query metered, List<DatasetRecord> sortedRecords, String sortByField, String order,
+            List<SortSpec> sortKeys, Integer limit, SortCursor after, FieldSelection selection) {
+
+        int from = after != null ? firstAfter(sortedRecords, sortKeys, after.sortPosition(sortKeys.size())) : 0;
+
+        int to = limit != null ? Math.min(sortedRecords.size(), from + limit) : sortedRecords.size();
+
+        String nextCursor = null;
+        if (to < sortedRecords.size() && to > from) {
+            nextCursor = cursorAfter(sortByField, order, sortKeys, sortedRecords.get(to - 1));
         }
 
-        // Try comparable interface
-        if (value1 instanceof Comparable && value2.getClass().equals(value1.getClass())) {
-            try {
-                return ((Comparable<Object>) value1).compareTo(value2);
-            } catch (ClassCastException e) {
-                // Fall through to string comparison
+        List<Map<String, Object>> page = metered.time("decode", () -> sortedRecords.subList(from, to).stream()
+                .map(record -> record.getRecordData(selection))
+                .collect(Collectors.toList()));
+        metered.returned(page.size());
+
+        return DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Select one page of sorted records with a bounded heap instead of sorting everything
+     * One extra record is selected to find out whether another page follows; records up to
+     * the cursor's sort values are skipped as they are read
+     */
+    private DatasetDTO.SortedRecordsResponse selectTopRecords(
+            QueryMetrics.Query metered, List<DatasetRecord> records, String sortByField, String order,
+            List<SortSpec> sortKeys, int limit, SortCursor after, FieldSelection selection) {
+
+        SortKeys.Position position = after != null ? after.sortPosition(sortKeys.size()) : null;
+        int[] topIndexes = metered.time("sort", () -> SortKeys.topIndexes(extractSortKeys(records, sortKeys, false),
+                ascendingFlags(sortKeys), limit + 1, recordIds(records), position));
+
+        int pageSize = Math.min(limit, topIndexes.length);
+        List<Map<String, Object>> page = metered.time("decode", () -> {
+            List<Map<String, Object>> decoded = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                decoded.add(records.get(topIndexes[i]).getRecordData(selection));
             }
+            return decoded;
+        });
+        metered.returned(page.size());
+
+        String nextCursor = null;
+        if (topIndexes.length > limit) {
+            nextCursor = cursorAfter(sortByField, order, sortKeys, records.get(topIndexes[limit - 1]));
+        }
+
+        log.info("Selected top {} of {} records by field: {}", page.size(), records.size(), sortByField);
+
+        return DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Find the first of the sorted records ordered after a cursor position
+     * Ties on every sort value are taken to be in ID order, as the database orders them
+     */
+    private static int firstAfter(List<DatasetRecord> sortedRecords, List<SortSpec> sortKeys,
+                                  SortKeys.Position position) {
+        boolean[] ascending = ascendingFlags(sortKeys);
+        int low = 0;
+        int high = sortedRecords.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            DatasetRecord record = sortedRecords.get(middle);
+            if (SortKeys.compareToPosition(sortValues(record, sortKeys), record.getId(), ascending, position) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Encode the cursor following a record sorted in memory, carrying its value for every sort key
+     */
+    private static String cursorAfter(String sortByField, String order, List<SortSpec> sortKeys,
+                                      DatasetRecord last) {
+        return SortCursor.encode(sortByField, order, last.getId(), Arrays.asList(sortValues(last, sortKeys)));
+    }
+
+    /**
+     * Read a record's value for every sort key
+     */
+    private static Object[] sortValues(DatasetRecord record, List<SortSpec> sortKeys) {
+        Object[] values = new Object[sortKeys.size()];
+        for (int k = 0; k < values.length; k++) {
+            values[k] = sortKeys.get(k).getField().read(record);
+        }
+        return values;
+    }
+
+    private static long[] recordIds(List<DatasetRecord> records) {
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = records.get(i).getId();
         }
+        return ids;
+    }
+
+    /**
+     * Check whether the database can evaluate the dataset's fields; binary records are only read here
+     */
+    private boolean pushdown(String datasetName) {
+        return repository.jsonPushdown().isPresent() && storage.lockFormat(datasetName) == RecordFormat.JSON;
+    }
+
+    /**
+     * The database-side scans, once pushdown has been chosen for the query
+     */
+    private DatasetRecordRepositoryCustom database() {
+        return repository.jsonPushdown().orElseThrow();
+    }
+
+    /**
+     * Check whether a filter reads a declared field index, making the database the
+     * cheaper place to evaluate it
+     */
+    private boolean hasIndexedFilter(String datasetName, RecordFilter recordFilter) {
+        Optional<DatasetRecordRepositoryCustom> database = repository.jsonPushdown();
+        if (recordFilter.isEmpty() || database.isEmpty()) {
+            return false;
+        }
+        Set<String> indexedFields = database.get().indexedFields(datasetName);
+        return recordFilter.predicates().stream().anyMatch(predicate -> indexedFields.contains(predicate.getField()));
+    }
+
+    /**
+     * Keep the records matching the filters before they are grouped or sorted
+     */
+    private List<DatasetRecord> filterRecords(List<DatasetRecord> records, RecordFilter recordFilter) {
+        return recordFilter.apply(records, runInParallel(records.size()));
+    }
+
+    private List<DatasetRecord> filterRecords(QueryMetrics.Query metered, List<DatasetRecord> records,
+                                              RecordFilter recordFilter) {
+        metered.scanned(records.size());
+        return recordFilter.isEmpty() ? records : metered.time("filter", () -> filterRecords(records, recordFilter));
+    }
+
+    /**
+     * Read a dataset's records from the database without parsing them
+     */
+    private List<DatasetRecord> fetchUnparsed(QueryMetrics.Query metered, String datasetName) {
+        return metered.time("fetch", () -> repository.findUnparsedByDatasetName(datasetName));
+    }
+
+    /**
+     * Count the groups of a grouped query and the records put into them
+     */
+    private static void countGroups(QueryMetrics.Query metered, Map<String, List<Map<String, Object>>> groups) {
+        metered.groups(groups.size());
+        metered.returned(groups.values().stream().mapToLong(List::size).sum());
+    }
+
+    /**
+     * Check whether an in-memory group/sort over this many records should run in parallel
+     */
+    private boolean runInParallel(int recordCount) {
+        DatasetProperties.Query query = properties.getQuery();
+        return query.isParallelEnabled() && recordCount >= query.getParallelThreshold();
+    }
+
+    /**
+     * Sort records by one or more fields
+     * Keys are extracted once into primitive arrays and the record order is sorted by index,
+     * in parallel for large datasets
+     */
+    private List<DatasetRecord> sortRecordsByField(List<DatasetRecord> records, List<SortSpec> sortKeys) {
 
-        // Fall back to string comparison
-        return String.valueOf(value1).compareTo(String.valueOf(value2));
+        boolean parallel = runInParallel(records.size());
+
+        int[] sortedIndexes = SortKeys.sortedIndexes(extractSortKeys(records, sortKeys, parallel),
+                ascendingFlags(sortKeys), parallel);
+
+        List<DatasetRecord> sortedRecords = new ArrayList<>(sortedIndexes.length);
+        for (int index : sortedIndexes) {
+            sortedRecords.add(records.get(index));
+        }
+        return sortedRecords;
+    }
+
+    /**
+     * Read every sort field once per record into primitive key arrays
+     */
+    private List<SortKeys> extractSortKeys(List<DatasetRecord> records, List<SortSpec> sortKeys, boolean parallel) {
+        List<SortKeys> keys = new ArrayList<>(sortKeys.size());
+        for (SortSpec sortKey : sortKeys) {
+            FieldPath field = sortKey.getField();
+            Object[] values = new Object[records.size()];
+            IntStream indexes = IntStream.range(0, values.length);
+            (parallel ? indexes.parallel() : indexes)
+                    .forEach(i -> values[i] = field.read(records.get(i)));
+            keys.add(SortKeys.extract(values));
+        }
+        return keys;
+    }
+
+    private static boolean[] ascendingFlags(List<SortSpec> sortKeys) {
+        boolean[] ascending = new boolean[sortKeys.size()];
+        for (int k = 0; k < ascending.length; k++) {
+            ascending[k] = sortKeys.get(k).isAscending();
+        }
+        return ascending;
     }
 }
@@ -0,0 +1,45 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.config.TransactionHooks;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-dataset version counters, advanced whenever inserted records commit
+ * A result computed at one version is current for as long as the version is unchanged
+ */
+@Component
+public class DatasetVersions {
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Current version of a dataset; 0 until its first insert commits
+     */
+    public long current(String datasetName) {
+        AtomicLong version = versions.get(datasetName);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Advance the dataset's version once the current transaction commits, or right away without one
+     */
+    public void onRecordsInserted(String datasetName) {
+        advance(datasetName);
+    }
+
+    /**
+     * Advance the dataset's version once the transaction removing its records commits
+     */
+    public void onRecordsDeleted(String datasetName) {
+        advance(datasetName);
+    }
+
+    private void advance(String datasetName) {
+        AtomicLong version = versions.computeIfAbsent(datasetName, k -> new AtomicLong());
+        TransactionHooks.afterCommit(version::incrementAndGet);
+    }
+}
@@ -0,0 +1,160 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.codec.JsonRecordParser;
+import com.assignment.dataset.codec.RecordCodec;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.exception.DatasetException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field reference compiled once per query
+ * A name containing dots is a path into nested objects, unless the record has a
+ * top-level key with that exact name
+ */
+final class FieldPath {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String path;
+    private final String[] segments;
+    private final RecordCodec.FieldReader binaryReader;
+    private final JsonRecordParser.FieldReader jsonReader;
+
+    private FieldPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+        this.binaryReader = RecordCodec.fieldReader(path, segments);
+        this.jsonReader = JsonRecordParser.fieldReader(path, segments);
+    }
+
+    /**
+     * Compile a field name or dotted path
+     */
+    static FieldPath compile(String path) {
+        if (path.indexOf('.') < 0) {
+            return new FieldPath(path, null);
+        }
+        String[] segments = path.split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                // Not a usable path, so only the literal key can match
+                return new FieldPath(path, null);
+            }
+        }
+        return new FieldPath(path, segments);
+    }
+
+    /**
+     * Compile a comma-separated list of fields
+     *
+     * @param fields    the request parameter value
+     * @param parameter the parameter name used in error messages
+     */
+    static List<FieldPath> compileAll(String fields, String parameter) {
+        List<FieldPath> paths = new ArrayList<>();
+        for (String field : splitList(fields, parameter)) {
+            paths.add(compile(field));
+        }
+        return paths;
+    }
+
+    /**
+     * Split a comma-separated parameter, rejecting empty entries
+     */
+    static List<String> splitList(String value, String parameter) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : value.split(",", -1)) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                throw new DatasetException.InvalidQueryException(
+                        "Invalid " + parameter + " parameter. Field names must not be empty");
+            }
+            entries.add(trimmed);
+        }
+        return entries;
+    }
+
+    /**
+     * Read the field from a decoded record
+     *
+     * @return the value, or null when missing or JSON null
+     */
+    Object read(Map<String, Object> data) {
+        if (segments == null || data.containsKey(path)) {
+            return data.get(path);
+        }
+        Object current = data;
+        for (String segment : segments) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(segment);
+        }
+        return current;
+    }
+
+    /**
+     * Read the field from a record entity; binary records and unparsed JSON are not decoded
+     * beyond the field
+     *
+     * @return the value, or null when missing or JSON null
+     */
+    Object read(DatasetRecord record) {
+        if (record.getRecordBinary() != null) {
+            return binaryReader.read(record.getRecordBinary());
+        }
+        if (record.getRecordJson() != null) {
+            return jsonReader.read(record.getRecordJson());
+        }
+        return read(record.getRecordData());
+    }
+
+    /**
+     * Text of a field value in a group key, the same as the database's group key expression:
+     * numbers as plain decimals without trailing zeros, objects and arrays as compact JSON,
+     * "null" when missing
+     */
+    static String keyText(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger) {
+            return value.toString();
+        }
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Map || value instanceof List) {
+            try {
+                return MAPPER.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                throw new DatasetException("Failed to write group key", e);
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * Check whether the field is a plain top-level key
+     */
+    boolean isTopLevel() {
+        return segments == null;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
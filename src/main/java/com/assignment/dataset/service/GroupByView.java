@@ -0,0 +1,235 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Group-by result of one dataset kept current as records are inserted
+ * Holds the grouped records, or only a running accumulator per group when aggregates
+ * are requested; each committed insert updates a single group. Groups are ordered by
+ * their first record and records by ID, matching a query over the whole dataset
+ */
+final class GroupByView {
+
+    private final String datasetName;
+    private final String groupBy;
+    private final String aggregate;
+    private final List<FieldPath> groupFields;
+    private final Aggregation aggregation;
+
+    private final Map<String, Group> groups = new HashMap<>();
+    private final List<Group> groupOrder = new ArrayList<>();
+    private final StringBuilder keyBuffer = new StringBuilder();
+    private boolean groupsOrdered = true;
+    private long recordCount;
+
+    /**
+     * Inserts committed while the initial load runs; null once the view is ready
+     */
+    private List<DatasetRecord> pendingInserts = new ArrayList<>();
+
+    GroupByView(String datasetName, List<FieldPath> groupFields, Aggregation aggregation) {
+        this.datasetName = datasetName;
+        this.groupFields = groupFields;
+        this.aggregation = aggregation;
+        this.groupBy = key(groupFields);
+        this.aggregate = aggregation != null ? aggregation.spec() : null;
+    }
+
+    /**
+     * Normalized group-by parameter used to match queries against views
+     */
+    static String key(List<FieldPath> groupFields) {
+        return String.join(",", groupFields.stream().map(FieldPath::getPath).toList());
+    }
+
+    String getDatasetName() {
+        return datasetName;
+    }
+
+    List<FieldPath> getGroupFields() {
+        return groupFields;
+    }
+
+    Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    String getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Normalized aggregate parameter, or null for a view of grouped records
+     */
+    String getAggregate() {
+        return aggregate;
+    }
+
+    synchronized boolean isReady() {
+        return pendingInserts == null;
+    }
+
+    synchronized int groupCount() {
+        return groups.size();
+    }
+
+    synchronized long recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Apply a committed insert, or hold it back while the initial load runs
+     */
+    synchronized void onInsertCommitted(Long id, Map<String, Object> recordData) {
+        if (pendingInserts != null) {
+            pendingInserts.add(DatasetRecord.builder().id(id).recordData(recordData).build());
+            return;
+        }
+        add(id, recordData);
+    }
+
+    /**
+     * Populate the view from a load that started after the view began collecting inserts
+     * Held-back inserts that the load already saw are skipped by ID
+     */
+    synchronized void completeLoad(List<DatasetRecord> loaded) {
+        Set<Long> pendingIds = new HashSet<>();
+        for (DatasetRecord record : pendingInserts) {
+            pendingIds.add(record.getId());
+        }
+
+        List<DatasetRecord> ordered = new ArrayList<>(loaded);
+        ordered.sort(Comparator.comparing(DatasetRecord::getId));
+        for (DatasetRecord record : ordered) {
+            pendingIds.remove(record.getId());
+            add(record.getId(), record.getRecordData());
+        }
+        for (DatasetRecord record : pendingInserts) {
+            if (pendingIds.contains(record.getId())) {
+                add(record.getId(), record.getRecordData());
+            }
+        }
+        pendingInserts = null;
+    }
+
+    /**
+     * Snapshot of the grouped records; lists are copied so later inserts do not show through
+     */
+    synchronized Map<String, List<Map<String, Object>>> groupedRecords() {
+        Map<String, List<Map<String, Object>>> groupedRecords = new LinkedHashMap<>();
+        for (Group group : orderedGroups()) {
+            groupedRecords.put(group.key, new ArrayList<>(group.records));
+        }
+        return groupedRecords;
+    }
+
+    /**
+     * Aggregate values per group
+     */
+    synchronized Map<String, Map<String, Object>> aggregates() {
+        Map<String, Map<String, Object>> aggregates = new LinkedHashMap<>();
+        for (Group group : orderedGroups()) {
+            aggregates.put(group.key, aggregation.result(group.accumulator));
+        }
+        return aggregates;
+    }
+
+    private void add(Long id, Map<String, Object> recordData) {
+        String groupKey = groupKeyOf(recordData);
+        Group group = groups.get(groupKey);
+        if (group == null) {
+            group = new Group(groupKey, id, aggregation);
+            groups.put(groupKey, group);
+            if (!groupOrder.isEmpty() && id < groupOrder.get(groupOrder.size() - 1).firstId) {
+                groupsOrdered = false;
+            }
+            groupOrder.add(group);
+        } else if (id < group.firstId) {
+            group.firstId = id;
+            groupsOrdered = false;
+        }
+        group.add(id, recordData);
+        recordCount++;
+    }
+
+    private List<Group> orderedGroups() {
+        if (!groupsOrdered) {
+            groupOrder.sort(Comparator.comparingLong(group -> group.firstId));
+            groupsOrdered = true;
+        }
+        return groupOrder;
+    }
+
+    /**
+     * Same key as the query path: field values joined with the group key separator,
+     * "null" for missing values
+     */
+    private String groupKeyOf(Map<String, Object> recordData) {
+        keyBuffer.setLength(0);
+        for (FieldPath field : groupFields) {
+            Object value = field.read(recordData);
+            if (keyBuffer.length() > 0) {
+                keyBuffer.append(DatasetRecordRepositoryCustom.GROUP_KEY_SEPARATOR);
+            }
+            keyBuffer.append(FieldPath.keyText(value));
+        }
+        return keyBuffer.toString();
+    }
+
+    /**
+     * One group: its records in ID order, or its accumulator
+     */
+    private static final class Group {
+        private final String key;
+        private long firstId;
+        private final List<Map<String, Object>> records;
+        private long[] ids;
+        private final Aggregation.Accumulator accumulator;
+
+        private Group(String key, long firstId, Aggregation aggregation) {
+            this.key = key;
+            this.firstId = firstId;
+            if (aggregation != null) {
+                this.accumulator = aggregation.newAccumulator();
+                this.records = null;
+            } else {
+                this.accumulator = null;
+                this.records = new ArrayList<>();
+                this.ids = new long[8];
+            }
+        }
+
+        private void add(long id, Map<String, Object> recordData) {
+            if (accumulator != null) {
+                accumulator.add(recordData);
+                return;
+            }
+
+            int size = records.size();
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            // Inserts normally commit in ID order; a late commit is placed by binary search
+            int position = size == 0 || id >= ids[size - 1] ? size : insertionPoint(id, size);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            records.add(position, recordData);
+        }
+
+        private int insertionPoint(long id, int size) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position < 0 ? -position - 1 : position;
+        }
+    }
+}
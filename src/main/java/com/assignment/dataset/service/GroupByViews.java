@@ -0,0 +1,164 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.config.TransactionHooks;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.repository.RecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of materialized group-by views
+ * Inserts are applied to the views of their dataset once their transaction commits,
+ * so views only ever contain committed records
+ */
+@Component
+@Slf4j
+public class GroupByViews {
+
+    private final RecordRepository repository;
+
+    /**
+     * Views per dataset; registration is guarded by synchronizing on the map
+     */
+    private final Map<String, List<GroupByView>> views = new ConcurrentHashMap<>();
+
+    public GroupByViews(RecordRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Register a view and load it from the dataset's records
+     * A view collects committed inserts before its load starts, so inserts racing with
+     * the load are neither lost nor applied twice
+     *
+     * @return the new view, or the view already registered for the same query
+     */
+    Registration register(String datasetName, List<FieldPath> groupFields, Aggregation aggregation) {
+        GroupByView view = new GroupByView(datasetName, groupFields, aggregation);
+        synchronized (views) {
+            GroupByView existing = find(datasetName, view.getGroupBy(), view.getAggregate(), false);
+            if (existing != null) {
+                return new Registration(existing, false);
+            }
+            views.computeIfAbsent(datasetName, k -> new CopyOnWriteArrayList<>()).add(view);
+        }
+
+        try {
+            view.completeLoad(repository.findByDatasetName(datasetName));
+        } catch (RuntimeException e) {
+            views.get(datasetName).remove(view);
+            throw e;
+        }
+        log.info("Materialized group-by view on dataset: {} by {} ({} groups, {} records)",
+                datasetName, view.getGroupBy(), view.groupCount(), view.recordCount());
+        return new Registration(view, true);
+    }
+
+    /**
+     * Remove a view, e.g. once persisting its registration failed
+     */
+    void unregister(GroupByView view) {
+        synchronized (views) {
+            List<GroupByView> datasetViews = views.get(view.getDatasetName());
+            if (datasetViews != null) {
+                datasetViews.remove(view);
+            }
+        }
+    }
+
+    /**
+     * Find a loaded view answering a group-by query
+     *
+     * @param aggregate normalized aggregate parameter, or null for grouped records
+     */
+    GroupByView find(String datasetName, String groupBy, String aggregate) {
+        return find(datasetName, groupBy, aggregate, true);
+    }
+
+    List<GroupByView> views(String datasetName) {
+        return views.getOrDefault(datasetName, List.of());
+    }
+
+    /**
+     * Apply an inserted record to the dataset's views once the surrounding transaction commits
+     * Views are looked up on commit, so a view registered before then still receives the insert
+     */
+    public void onRecordInserted(String datasetName, Long id, Map<String, Object> recordData) {
+        TransactionHooks.afterCommit(() -> {
+            for (GroupByView view : views(datasetName)) {
+                view.onInsertCommitted(id, recordData);
+            }
+        });
+    }
+
+    /**
+     * Apply a batch of inserted records once the surrounding transaction commits
+     */
+    public void onRecordsInserted(String datasetName, List<DatasetRecord> records) {
+        TransactionHooks.afterCommit(() -> {
+            List<GroupByView> datasetViews = views(datasetName);
+            if (datasetViews.isEmpty()) {
+                return;
+            }
+            // Binary records decode on every read, so each record is decoded once for all views
+            for (DatasetRecord record : records) {
+                Map<String, Object> recordData = record.getRecordData();
+                for (GroupByView view : datasetViews) {
+                    view.onInsertCommitted(record.getId(), recordData);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reload the dataset's views once the transaction truncating it commits
+     * Queries fall back to the records while a view reloads
+     */
+    void onDatasetTruncated(String datasetName) {
+        TransactionHooks.afterCommit(() -> {
+            List<GroupByView> truncated;
+            synchronized (views) {
+                truncated = views.remove(datasetName);
+            }
+            if (truncated == null) {
+                return;
+            }
+            for (GroupByView view : truncated) {
+                register(datasetName, view.getGroupFields(), view.getAggregation());
+            }
+        });
+    }
+
+    /**
+     * Remove the dataset's views once the transaction dropping it commits
+     */
+    void onDatasetDropped(String datasetName) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (views) {
+                views.remove(datasetName);
+            }
+        });
+    }
+
+    /**
+     * A registered view, telling whether this registration added it
+     */
+    record Registration(GroupByView view, boolean created) {
+    }
+
+    private GroupByView find(String datasetName, String groupBy, String aggregate, boolean readyOnly) {
+        for (GroupByView view : views(datasetName)) {
+            if (view.getGroupBy().equals(groupBy) && Objects.equals(view.getAggregate(), aggregate)
+                    && (!readyOnly || view.isReady())) {
+                return view;
+            }
+        }
+        return null;
+    }
+}
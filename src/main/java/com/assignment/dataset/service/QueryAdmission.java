@@ -0,0 +1,155 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.exception.DatasetException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-dataset admission control for group/sort queries
+ * Each dataset runs at most dataset.admission.max-concurrent queries and queues up to
+ * dataset.admission.max-queued more; beyond that, or after waiting for the queue timeout,
+ * queries are rejected so heavy scans cannot hold every request thread. Inserts and the
+ * health check do not pass through here
+ *
+ * A dataset's slots only exist while it has running or queued queries, so names that are
+ * queried once do not hold on to memory
+ */
+@Component
+@Slf4j
+public class QueryAdmission {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final Map<String, Slots> slots = new ConcurrentHashMap<>();
+
+    public QueryAdmission(DatasetProperties properties) {
+        DatasetProperties.Admission admission = properties.getAdmission();
+        this.maxConcurrent = Math.max(1, admission.getMaxConcurrent());
+        this.maxQueued = Math.max(0, admission.getMaxQueued());
+        this.queueTimeoutNanos = admission.getQueueTimeout().toNanos();
+    }
+
+    /**
+     * Wait for a query slot on the dataset
+     *
+     * @param datasetName the name of the dataset
+     * @return the permit to close when the query, including any streamed response, completes
+     * @throws DatasetException.TooManyQueriesException when the queue is full or the wait times out
+     */
+    public Permit acquire(String datasetName) {
+        Slots dataset = enter(datasetName);
+        Permit permit = null;
+        try {
+            permit = admit(datasetName, dataset);
+            return permit;
+        } finally {
+            if (permit == null) {
+                leave(datasetName);
+            }
+        }
+    }
+
+    /**
+     * Number of datasets with running or queued queries
+     */
+    int trackedDatasets() {
+        return slots.size();
+    }
+
+    private Permit admit(String datasetName, Slots dataset) {
+        Permit permit = new Permit(() -> {
+            dataset.running.release();
+            leave(datasetName);
+        });
+        try {
+            // The timed form respects the order of queued queries, unlike the untimed tryAcquire
+            if (dataset.running.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return permit;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatasetException.TooManyQueriesException(datasetName);
+        }
+
+        if (dataset.queued.incrementAndGet() > maxQueued) {
+            dataset.queued.decrementAndGet();
+            log.warn("Rejected query on dataset: {} ({} running, queue full)", datasetName, maxConcurrent);
+            throw new DatasetException.TooManyQueriesException(datasetName);
+        }
+        try {
+            if (!dataset.running.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                log.warn("Rejected query on dataset: {} after waiting for a slot", datasetName);
+                throw new DatasetException.TooManyQueriesException(datasetName);
+            }
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatasetException.TooManyQueriesException(datasetName);
+        } finally {
+            dataset.queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Slots of a dataset, counting the caller among their users until it leaves
+     */
+    private Slots enter(String datasetName) {
+        return slots.compute(datasetName, (k, existing) -> {
+            Slots dataset = existing != null ? existing : new Slots(maxConcurrent);
+            dataset.users++;
+            return dataset;
+        });
+    }
+
+    /**
+     * Stop using a dataset's slots, removing them once no query runs or waits
+     */
+    private void leave(String datasetName) {
+        slots.computeIfPresent(datasetName, (k, dataset) -> --dataset.users == 0 ? null : dataset);
+    }
+
+    /**
+     * Running and queued queries of one dataset
+     */
+    private static final class Slots {
+        private final Semaphore running;
+        private final AtomicInteger queued = new AtomicInteger();
+
+        /**
+         * Queries holding or waiting for a slot; only changed while the map entry is locked
+         */
+        private int users;
+
+        private Slots(int maxConcurrent) {
+            this.running = new Semaphore(maxConcurrent, true);
+        }
+    }
+
+    /**
+     * A held query slot; closing it more than once releases the slot only once
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+}
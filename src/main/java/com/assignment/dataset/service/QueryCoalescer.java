@@ -0,0 +1,134 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.config.DatasetProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical queries
+ * Concurrent requests for the same query of a dataset share one computation and its result.
+ * With dataset.query.result-ttl set, a completed result keeps being served for that long
+ * unless records are inserted into the dataset in the meantime
+ */
+@Component
+@Slf4j
+public class QueryCoalescer {
+
+    /**
+     * Completed results kept for the TTL are swept once this many queries are tracked
+     */
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private final DatasetVersions versions;
+    private final long resultTtlNanos;
+    private final Map<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    public QueryCoalescer(DatasetVersions versions, DatasetProperties properties) {
+        this.versions = versions;
+        this.resultTtlNanos = properties.getQuery().getResultTtl().toNanos();
+    }
+
+    /**
+     * Run a query, or join an identical one already running on the same dataset version
+     *
+     * @param datasetName the name of the dataset
+     * @param query       the query parameters; queries with equal parameters are shared
+     * @param computation computes the result when no shareable one exists
+     * @return the result, possibly computed for another request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String datasetName, List<?> query, Supplier<T> computation) {
+        // Read the version before computing so the result never predates it
+        long version = versions.current(datasetName);
+        Key key = new Key(datasetName, query);
+        Flight flight = new Flight(version);
+
+        Flight shared = flights.compute(key, (k, existing) ->
+                existing != null && existing.shareable(version, resultTtlNanos) ? existing : flight);
+        if (shared != flight) {
+            log.debug("Sharing in-flight query on dataset: {} {}", datasetName, query);
+            return (T) join(shared.result);
+        }
+
+        if (flights.size() > SWEEP_THRESHOLD) {
+            sweep();
+        }
+        try {
+            T result = computation.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (resultTtlNanos <= 0) {
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    /**
+     * Drop completed results that can no longer be shared
+     */
+    private void sweep() {
+        flights.entrySet().removeIf(entry -> entry.getValue().result.isDone()
+                && !entry.getValue().shareable(versions.current(entry.getKey().datasetName()), resultTtlNanos));
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            // Rethrow what the computing request saw, e.g. an invalid query
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(String datasetName, List<?> query) {
+    }
+
+    /**
+     * One computation of a query at a dataset version
+     */
+    private static final class Flight {
+        private final long version;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private Flight(long version) {
+            this.version = version;
+        }
+
+        private void complete(Object value) {
+            completedAt = System.nanoTime();
+            result.complete(value);
+        }
+
+        /**
+         * Running, or completed successfully within the TTL, at the requested version or a later one
+         */
+        private boolean shareable(long requestedVersion, long ttlNanos) {
+            if (version < requestedVersion) {
+                return false;
+            }
+            if (!result.isDone()) {
+                return true;
+            }
+            return !result.isCompletedExceptionally() && System.nanoTime() - completedAt < ttlNanos;
+        }
+    }
+}
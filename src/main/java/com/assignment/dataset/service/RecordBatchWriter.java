@@ -0,0 +1,55 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.entity.RecordFormat;
+import com.assignment.dataset.repository.RecordRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes batches of records, each batch in its own transaction
+ * Relies on sequence-based IDs so Hibernate can group the inserts into JDBC batches
+ */
+@Component
+@RequiredArgsConstructor
+public class RecordBatchWriter {
+
+    private final RecordRepository repository;
+    private final GroupByViews views;
+    private final RecordStorage storage;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Insert a batch of records and commit
+     *
+     * @param datasetName the name of the dataset
+     * @param batch       the JSON records to insert
+     * @return number of records written
+     */
+    @Transactional
+    public int writeBatch(String datasetName, List<Map<String, Object>> batch) {
+        RecordFormat format = storage.lockFormat(datasetName);
+        repository.preparePartition(datasetName);
+        List<DatasetRecord> records = new ArrayList<>(batch.size());
+        for (Map<String, Object> recordData : batch) {
+            records.add(RecordStorage.newRecord(datasetName, recordData, format));
+        }
+
+        repository.saveAll(records);
+        views.onRecordsInserted(datasetName, records);
+
+        // Send the batched inserts now and release the entities before the next batch
+        entityManager.flush();
+        entityManager.clear();
+        return records.size();
+    }
+}
@@ -0,0 +1,221 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom.FieldPredicate;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom.FilterOperator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Filters requested with filter=field:op:value, applied before grouping or sorting
+ * Operators are eq, gt, gte, lt, lte, in (values separated by "|") and exists
+ * (optionally exists:false). Each filter is compiled once into a predicate over the
+ * field's value and all filters must match, reading only the filtered fields of binary
+ * records; the same conditions are handed to the repository so the database can apply
+ * them in the WHERE clause
+ */
+final class RecordFilter {
+
+    private static final RecordFilter NONE = new RecordFilter(List.of(), List.of());
+
+    private final List<FieldPredicate> predicates;
+    private final List<Condition> conditions;
+
+    private RecordFilter(List<FieldPredicate> predicates, List<Condition> conditions) {
+        this.predicates = predicates;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Parse filter parameters
+     *
+     * @param filters the filter parameter values, or null for no filtering
+     */
+    static RecordFilter parse(List<String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return NONE;
+        }
+
+        List<FieldPredicate> predicates = new ArrayList<>(filters.size());
+        List<Condition> conditions = new ArrayList<>(filters.size());
+        for (String filter : filters) {
+            FieldPredicate predicate = parsePredicate(filter);
+            predicates.add(predicate);
+            conditions.add(new Condition(FieldPath.compile(predicate.getField()), compile(predicate)));
+        }
+        return new RecordFilter(List.copyOf(predicates), List.copyOf(conditions));
+    }
+
+    boolean isEmpty() {
+        return predicates.isEmpty();
+    }
+
+    /**
+     * Conditions to push into the database query
+     */
+    List<FieldPredicate> predicates() {
+        return predicates;
+    }
+
+    boolean matches(Map<String, Object> data) {
+        for (Condition condition : conditions) {
+            if (!condition.test.test(condition.field.read(data))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean matches(DatasetRecord record) {
+        for (Condition condition : conditions) {
+            if (!condition.test.test(condition.field.read(record))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keep the records that match, preserving their order
+     */
+    List<DatasetRecord> apply(List<DatasetRecord> records, boolean parallel) {
+        if (isEmpty()) {
+            return records;
+        }
+        return (parallel ? records.parallelStream() : records.stream())
+                .filter(this::matches)
+                .toList();
+    }
+
+    private static FieldPredicate parsePredicate(String filter) {
+        int fieldEnd = filter.indexOf(':');
+        if (fieldEnd <= 0) {
+            throw invalid(filter);
+        }
+        int operatorEnd = filter.indexOf(':', fieldEnd + 1);
+        String field = filter.substring(0, fieldEnd).trim();
+        String operatorName = (operatorEnd < 0 ? filter.substring(fieldEnd + 1)
+                : filter.substring(fieldEnd + 1, operatorEnd)).trim();
+        String value = operatorEnd < 0 ? null : filter.substring(operatorEnd + 1);
+
+        FilterOperator operator;
+        try {
+            operator = FilterOperator.valueOf(operatorName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw invalid(filter);
+        }
+        if (field.isEmpty()) {
+            throw invalid(filter);
+        }
+
+        if (operator == FilterOperator.EXISTS) {
+            if (value == null) {
+                return new FieldPredicate(field, operator, List.of());
+            }
+            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                throw invalid(filter);
+            }
+            return new FieldPredicate(field, operator, List.of(value.toLowerCase(Locale.ROOT)));
+        }
+        if (value == null) {
+            throw invalid(filter);
+        }
+        List<String> values = operator == FilterOperator.IN
+                ? Arrays.asList(value.split("\\|", -1))
+                : List.of(value);
+        return new FieldPredicate(field, operator, List.copyOf(values));
+    }
+
+    /**
+     * Compile one condition into a predicate over the field's value
+     */
+    private static Predicate<Object> compile(FieldPredicate predicate) {
+        switch (predicate.getOperator()) {
+            case EXISTS: {
+                boolean exists = predicate.getValues().isEmpty() || Boolean.parseBoolean(predicate.getValues().get(0));
+                return value -> (value != null) == exists;
+            }
+            case EQ:
+            case IN: {
+                Set<String> texts = new HashSet<>(predicate.getValues());
+                List<BigDecimal> numbers = new ArrayList<>();
+                for (String value : predicate.getValues()) {
+                    BigDecimal number = FieldPredicate.numberOf(value);
+                    if (number != null) {
+                        numbers.add(number);
+                    }
+                }
+                return value -> {
+                    if (value == null) {
+                        return false;
+                    }
+                    if (value instanceof Number number) {
+                        BigDecimal decimal = decimalOf(number);
+                        for (BigDecimal candidate : numbers) {
+                            if (decimal.compareTo(candidate) == 0) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                    return texts.contains(String.valueOf(value));
+                };
+            }
+            default: {
+                FilterOperator operator = predicate.getOperator();
+                String operand = predicate.getValues().get(0);
+                BigDecimal number = FieldPredicate.numberOf(operand);
+                if (number != null) {
+                    return value -> value instanceof Number numeric
+                            && inRange(operator, decimalOf(numeric).compareTo(number));
+                }
+                return value -> value != null && !(value instanceof Number)
+                        && inRange(operator, String.valueOf(value).compareTo(operand));
+            }
+        }
+    }
+
+    private static boolean inRange(FilterOperator operator, int comparison) {
+        return switch (operator) {
+            case GT -> comparison > 0;
+            case GTE -> comparison >= 0;
+            case LT -> comparison < 0;
+            case LTE -> comparison <= 0;
+            default -> throw new IllegalArgumentException("Not a comparison: " + operator);
+        };
+    }
+
+    private static BigDecimal decimalOf(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        return new BigDecimal(number.toString());
+    }
+
+    /**
+     * One compiled filter: the field it reads and the test applied to the value
+     */
+    private record Condition(FieldPath field, Predicate<Object> test) {
+    }
+
+    private static DatasetException.InvalidQueryException invalid(String filter) {
+        return new DatasetException.InvalidQueryException("Invalid filter parameter '" + filter
+                + "'. Expected field:op:value with op eq, gt, gte, lt, lte, in or exists");
+    }
+}
@@ -0,0 +1,112 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.codec.RecordCodec;
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.config.TransactionHooks;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.entity.RecordFormat;
+import com.assignment.dataset.repository.RecordRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Storage format of each dataset
+ * All records of a dataset share one format, so it is read off any one record; empty
+ * datasets take dataset.storage.default-format. Inserts and queries hold a shared lock on
+ * the dataset's format until their transaction completes, and converting a dataset holds
+ * it exclusively, so a dataset is never left with records in both formats
+ */
+@Component
+public class RecordStorage {
+
+    private final RecordRepository repository;
+    private final RecordFormat defaultFormat;
+    private final Map<String, RecordFormat> formats = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    public RecordStorage(RecordRepository repository, DatasetProperties properties) {
+        this.repository = repository;
+        this.defaultFormat = properties.getStorage().getDefaultFormat();
+    }
+
+    /**
+     * Storage format of a dataset, kept unchanged until the current transaction completes
+     */
+    public RecordFormat lockFormat(String datasetName) {
+        holdUntilCompletion(locks(datasetName).readLock());
+        return formatOf(datasetName);
+    }
+
+    /**
+     * Storage format of a dataset, locked against inserts and queries until the current
+     * transaction completes
+     */
+    RecordFormat lockForConversion(String datasetName) {
+        holdUntilCompletion(locks(datasetName).writeLock());
+        return formatOf(datasetName);
+    }
+
+    /**
+     * Record the dataset's new format once the converting transaction commits
+     */
+    void onConverted(String datasetName, RecordFormat format) {
+        TransactionHooks.afterCommit(() -> formats.put(datasetName, format));
+    }
+
+    /**
+     * Forget the format of a dataset once the transaction removing its records commits, so
+     * its next records take the default format
+     */
+    void onDeleted(String datasetName) {
+        TransactionHooks.afterCommit(() -> formats.remove(datasetName));
+    }
+
+    /**
+     * Build a record entity in the given format
+     */
+    static DatasetRecord newRecord(String datasetName, Map<String, Object> recordData, RecordFormat format) {
+        DatasetRecord.DatasetRecordBuilder record = DatasetRecord.builder().datasetName(datasetName);
+        return format == RecordFormat.BINARY
+                ? record.recordBinary(RecordCodec.encode(recordData)).build()
+                : record.recordData(recordData).build();
+    }
+
+    private RecordFormat formatOf(String datasetName) {
+        RecordFormat format = formats.get(datasetName);
+        if (format == null) {
+            format = repository.findFirstByDatasetName(datasetName)
+                    .map(record -> record.getRecordBinary() != null ? RecordFormat.BINARY : RecordFormat.JSON)
+                    .orElse(defaultFormat);
+            RecordFormat existing = formats.putIfAbsent(datasetName, format);
+            if (existing != null) {
+                format = existing;
+            }
+        }
+        return format;
+    }
+
+    private ReentrantReadWriteLock locks(String datasetName) {
+        return locks.computeIfAbsent(datasetName, k -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Take a lock and release it when the current transaction completes; without a
+     * transaction there is nothing to hold it for
+     */
+    private static void holdUntilCompletion(Lock lock) {
+        if (!TransactionHooks.inTransaction()) {
+            return;
+        }
+        lock.lock();
+        try {
+            TransactionHooks.afterCompletion(committed -> lock.unlock());
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+}
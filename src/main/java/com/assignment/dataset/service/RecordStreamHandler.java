@@ -0,0 +1,23 @@
+package com.assignment.dataset.service;
+
+import java.util.Map;
+
+/**
+ * Receives query results one record at a time for streaming responses
+ */
+public interface RecordStreamHandler {
+
+    /**
+     * Called before the records of a new group when streaming a group-by query
+     *
+     * @param groupKey the group key
+     */
+    void onGroup(String groupKey);
+
+    /**
+     * Called for every record in result order
+     *
+     * @param recordData the JSON record
+     */
+    void onRecord(Map<String, Object> recordData);
+}
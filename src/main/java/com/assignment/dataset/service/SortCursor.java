@@ -0,0 +1,121 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom.KeysetPosition;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque pagination cursor for sorted queries
+ * Encodes the keyset position of the last returned record together with the
+ * sort field and order it was produced for, as URL-safe Base64 JSON
+ * In-memory sorts also record the value of every sort key, so pages can follow
+ * multi-key orders
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class SortCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String field;
+    private String order;
+    private int valueClass;
+    private BigDecimal number;
+    private String text;
+    private long id;
+
+    /**
+     * Value of every sort key, or null when only the first key's position is known
+     */
+    private List<Object> values;
+
+    /**
+     * Encode a keyset position into an opaque cursor string
+     */
+    static String encode(String field, String order, KeysetPosition position) {
+        return encode(field, order, position, null);
+    }
+
+    /**
+     * Encode the position of a record sorted in memory, given its value for every sort key
+     */
+    static String encode(String field, String order, long id, List<Object> values) {
+        return encode(field, order, positionOf(values.get(0), id), values);
+    }
+
+    private static String encode(String field, String order, KeysetPosition position, List<Object> values) {
+        SortCursor cursor = new SortCursor(field, order, position.getValueClass(),
+                position.getNumber(), position.getText(), position.getId(), values);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new DatasetException("Failed to encode cursor", e);
+        }
+    }
+
+    /**
+     * Decode a cursor string, checking that it belongs to the same sort field and order
+     */
+    static SortCursor decode(String value, String field, String order) {
+        SortCursor cursor;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(value.getBytes(StandardCharsets.US_ASCII));
+            cursor = MAPPER.readValue(json, SortCursor.class);
+        } catch (Exception e) {
+            throw new DatasetException.InvalidQueryException("Invalid cursor parameter");
+        }
+
+        if (!field.equals(cursor.getField()) || !order.equals(cursor.getOrder())) {
+            throw new DatasetException.InvalidQueryException(
+                    "Cursor does not match the requested sortBy and order");
+        }
+        return cursor;
+    }
+
+    /**
+     * Keyset position of the first sort key, for database scans
+     */
+    KeysetPosition position() {
+        return new KeysetPosition(valueClass, number, text, id);
+    }
+
+    /**
+     * Position among records sorted in memory by the given number of keys
+     */
+    SortKeys.Position sortPosition(int keyCount) {
+        if (values == null && keyCount == 1) {
+            // Cursors from database scans carry the single key as a keyset position
+            Object value = valueClass == KeysetPosition.NUMBER ? number
+                    : valueClass == KeysetPosition.OTHER ? text : null;
+            return new SortKeys.Position(new Object[]{value}, id);
+        }
+        if (values == null || values.size() != keyCount) {
+            throw new DatasetException.InvalidQueryException("Cursor does not match the requested sortBy and order");
+        }
+        return new SortKeys.Position(values.toArray(), id);
+    }
+
+    /**
+     * Compute the keyset position of an in-memory value
+     */
+    private static KeysetPosition positionOf(Object value, long id) {
+        if (value == null) {
+            return new KeysetPosition(KeysetPosition.MISSING, null, null, id);
+        }
+        if (value instanceof Number) {
+            return new KeysetPosition(KeysetPosition.NUMBER, new BigDecimal(value.toString()), null, id);
+        }
+        return new KeysetPosition(KeysetPosition.OTHER, null, String.valueOf(value), id);
+    }
+}
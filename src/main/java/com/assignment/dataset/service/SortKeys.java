@@ -0,0 +1,519 @@
+package com.assignment.dataset.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sort keys of one field extracted once per query
+ * The key representation is picked from the values present: integral numbers and
+ * strings become long keys (strings by rank), other numbers become double keys, and
+ * mixed types keep the generic value comparison. Records are then ordered through a
+ * stable merge sort over their indexes, so the comparison loop does no map lookups
+ * or type dispatch
+ */
+abstract class SortKeys {
+
+    /**
+     * Largest magnitude at which long and double comparison agree
+     */
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Range size below which a parallel sort continues sequentially
+     */
+    private static final int PARALLEL_SORT_GRANULARITY = 8192;
+
+    /**
+     * Indexes of records with a value, and of records where it is missing or null
+     */
+    private final int[] present;
+    private final int[] missing;
+
+    /**
+     * Field value of every record, for comparisons with positions outside the records
+     */
+    private final Object[] values;
+
+    private SortKeys(int[] present, int[] missing, Object[] values) {
+        this.present = present;
+        this.missing = missing;
+        this.values = values;
+    }
+
+    /**
+     * Number of records the keys were extracted from
+     */
+    private int size() {
+        return present.length + missing.length;
+    }
+
+    /**
+     * Compare the keys of two records in ascending order
+     */
+    abstract int compare(int a, int b);
+
+    /**
+     * Extract the sort keys of a field from decoded records
+     *
+     * @param values the field value of every record, null when missing; kept by reference
+     */
+    static SortKeys extract(Object[] values) {
+        int size = values.length;
+        int[] present = new int[size];
+        int[] missing = new int[size];
+        int presentCount = 0;
+        int missingCount = 0;
+        boolean allIntegral = true;
+        boolean allNumbers = true;
+        boolean allStrings = true;
+        boolean allBooleans = true;
+
+        for (int i = 0; i < size; i++) {
+            Object value = values[i];
+            if (value == null) {
+                missing[missingCount++] = i;
+                continue;
+            }
+            present[presentCount++] = i;
+            allNumbers &= value instanceof Number;
+            allIntegral &= isExactIntegral(value);
+            allStrings &= value instanceof String;
+            allBooleans &= value instanceof Boolean;
+        }
+
+        present = Arrays.copyOf(present, presentCount);
+        missing = Arrays.copyOf(missing, missingCount);
+
+        if (allNumbers && allIntegral) {
+            long[] keys = new long[size];
+            for (int index : present) {
+                keys[index] = ((Number) values[index]).longValue();
+            }
+            return new LongKeys(present, missing, values, keys);
+        }
+        if (allNumbers) {
+            double[] keys = new double[size];
+            for (int index : present) {
+                keys[index] = ((Number) values[index]).doubleValue();
+            }
+            return new DoubleKeys(present, missing, values, keys);
+        }
+        if (allStrings) {
+            return new LongKeys(present, missing, values, stringRanks(values, present));
+        }
+        if (allBooleans) {
+            long[] keys = new long[size];
+            for (int index : present) {
+                keys[index] = (Boolean) values[index] ? 1 : 0;
+            }
+            return new LongKeys(present, missing, values, keys);
+        }
+        return new GenericKeys(present, missing, values);
+    }
+
+    /**
+     * Record indexes in sort order
+     * Missing values go last for ascending and first for descending; ties keep record order
+     *
+     * @param parallel sort halves of large ranges concurrently on the common fork/join pool;
+     *                 the merge sort is stable, so the result is the same either way
+     */
+    int[] sortedIndexes(boolean ascending, boolean parallel) {
+        int[] sorted = present.clone();
+        IndexComparator comparator = ascending ? this::compare : (a, b) -> compare(b, a);
+        sort(sorted, comparator, parallel);
+
+        int[] result = new int[present.length + missing.length];
+        if (ascending) {
+            System.arraycopy(sorted, 0, result, 0, sorted.length);
+            System.arraycopy(missing, 0, result, sorted.length, missing.length);
+        } else {
+            System.arraycopy(missing, 0, result, 0, missing.length);
+            System.arraycopy(sorted, 0, result, missing.length, sorted.length);
+        }
+        return result;
+    }
+
+    /**
+     * Record indexes in the order of several sort keys, each with its own direction
+     * A key only decides between records that tie on all earlier keys
+     */
+    static int[] sortedIndexes(List<SortKeys> keys, boolean[] ascending, boolean parallel) {
+        if (keys.size() == 1) {
+            return keys.get(0).sortedIndexes(ascending[0], parallel);
+        }
+
+        int[] sorted = new int[keys.get(0).size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        sort(sorted, directedComparator(keys, ascending), parallel);
+        return sorted;
+    }
+
+    /**
+     * The first k record indexes in sort order, selected with a bounded heap
+     * in O(n log k) time and O(k) memory; ties go by record ID, as in the database keyset
+     * order, so the result matches a prefix of sortedIndexes over records in ID order
+     *
+     * @param ids   the ID of every record
+     * @param after only select records ordered after this position, or null for all
+     */
+    static int[] topIndexes(List<SortKeys> keys, boolean[] ascending, int k, long[] ids, Position after) {
+        IndexComparator directed = directedComparator(keys, ascending);
+        // Record IDs break ties, so the order is total
+        IndexComparator order = (a, b) -> {
+            int result = directed.compare(a, b);
+            return result != 0 ? result : Long.compare(ids[a], ids[b]);
+        };
+        SortKeys[] keyArray = keys.toArray(new SortKeys[0]);
+
+        // Max-heap holding the best k records seen so far, worst at the root
+        int size = keyArray[0].size();
+        int[] heap = new int[Math.min(k, size)];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (after != null && compareToPosition(keyArray, ascending, i, ids[i], after) <= 0) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, order);
+            } else if (heapSize > 0 && order.compare(i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, heapSize, order);
+            }
+        }
+
+        int[] top = Arrays.copyOf(heap, heapSize);
+        mergeSort(top, top.clone(), 0, top.length, order);
+        return top;
+    }
+
+    /**
+     * Comparator over record indexes applying each key in turn with its own direction
+     * Missing values go last for ascending and first for descending
+     */
+    private static IndexComparator directedComparator(List<SortKeys> keys, boolean[] ascending) {
+        SortKeys[] keyArray = keys.toArray(new SortKeys[0]);
+        boolean[][] missingFlags = new boolean[keyArray.length][];
+        for (int k = 0; k < keyArray.length; k++) {
+            missingFlags[k] = keyArray[k].missingFlags();
+        }
+
+        return (a, b) -> {
+            for (int k = 0; k < missingFlags.length; k++) {
+                boolean missingA = missingFlags[k][a];
+                boolean missingB = missingFlags[k][b];
+                int result;
+                if (missingA || missingB) {
+                    result = missingA == missingB ? 0 : (missingA == ascending[k] ? 1 : -1);
+                } else {
+                    result = ascending[k] ? keyArray[k].compare(a, b) : keyArray[k].compare(b, a);
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Compare a record with a position in the order of several sort keys, ties going by record ID
+     * as in the database keyset order; the generic value comparison agrees with every key representation
+     *
+     * @param values the record's value for every key, null when missing
+     */
+    static int compareToPosition(Object[] values, long id, boolean[] ascending, Position position) {
+        for (int k = 0; k < values.length; k++) {
+            int result = compareKey(values[k], position.values()[k], ascending[k]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Long.compare(id, position.id());
+    }
+
+    /**
+     * Compare an extracted record with a position, as above
+     */
+    private static int compareToPosition(SortKeys[] keys, boolean[] ascending, int index, long id,
+                                         Position position) {
+        for (int k = 0; k < keys.length; k++) {
+            int result = compareKey(keys[k].values[index], position.values()[k], ascending[k]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Long.compare(id, position.id());
+    }
+
+    /**
+     * Compare one key's values in its direction; missing values go last for ascending and first for descending
+     */
+    private static int compareKey(Object value, Object bound, boolean ascending) {
+        if (value == null || bound == null) {
+            return value == bound ? 0 : (value == null == ascending ? 1 : -1);
+        }
+        return ascending ? compareValues(value, bound) : compareValues(bound, value);
+    }
+
+    private static void siftUp(int[] heap, int position, IndexComparator order) {
+        int value = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (order.compare(heap[parent], value) >= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, IndexComparator order) {
+        int value = heap[0];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(value, heap[child]) >= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = value;
+    }
+
+    /**
+     * Compare two values intelligently
+     * Numbers compare numerically, values of the same comparable type naturally,
+     * anything else by their string form
+     */
+    @SuppressWarnings("unchecked")
+    static int compareValues(Object value1, Object value2) {
+        // Try numeric comparison first
+        if (value1 instanceof Number && value2 instanceof Number) {
+            double num1 = ((Number) value1).doubleValue();
+            double num2 = ((Number) value2).doubleValue();
+            return Double.compare(num1, num2);
+        }
+
+        // Try comparable interface
+        if (value1 instanceof Comparable && value2.getClass().equals(value1.getClass())) {
+            try {
+                return ((Comparable<Object>) value1).compareTo(value2);
+            } catch (ClassCastException e) {
+                // Fall through to string comparison
+            }
+        }
+
+        // Fall back to string comparison
+        return String.valueOf(value1).compareTo(String.valueOf(value2));
+    }
+
+    private static boolean isExactIntegral(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof Long) {
+            long number = (Long) value;
+            return number >= -EXACT_DOUBLE_LIMIT && number <= EXACT_DOUBLE_LIMIT;
+        }
+        return false;
+    }
+
+    /**
+     * Replace each string by its rank among the distinct strings
+     */
+    private static long[] stringRanks(Object[] values, int[] present) {
+        Map<String, Integer> distinct = new HashMap<>();
+        for (int index : present) {
+            distinct.putIfAbsent((String) values[index], distinct.size());
+        }
+
+        String[] sortedDistinct = distinct.keySet().toArray(new String[0]);
+        Arrays.sort(sortedDistinct);
+        for (int rank = 0; rank < sortedDistinct.length; rank++) {
+            distinct.put(sortedDistinct[rank], rank);
+        }
+
+        long[] keys = new long[values.length];
+        for (int index : present) {
+            keys[index] = distinct.get((String) values[index]);
+        }
+        return keys;
+    }
+
+    private boolean[] missingFlags() {
+        boolean[] flags = new boolean[size()];
+        for (int index : missing) {
+            flags[index] = true;
+        }
+        return flags;
+    }
+
+    /**
+     * Sort indexes in place, forking halves of large arrays when parallel
+     */
+    private static void sort(int[] indexes, IndexComparator comparator, boolean parallel) {
+        if (parallel && indexes.length > PARALLEL_SORT_GRANULARITY) {
+            ForkJoinPool.commonPool().invoke(
+                    new ParallelMergeSort(indexes, indexes.clone(), 0, indexes.length, comparator));
+        } else {
+            mergeSort(indexes, indexes.clone(), 0, indexes.length, comparator);
+        }
+    }
+
+    /**
+     * Stable top-down merge sort of indexes[from, to), using buffer as scratch space
+     */
+    private static void mergeSort(int[] indexes, int[] buffer, int from, int to, IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int current = indexes[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(indexes[j], current) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = current;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(indexes, buffer, from, middle, comparator);
+        mergeSort(indexes, buffer, middle, to, comparator);
+        merge(indexes, buffer, from, middle, to, comparator);
+    }
+
+    /**
+     * Merge the sorted ranges indexes[from, middle) and indexes[middle, to)
+     */
+    private static void merge(int[] indexes, int[] buffer, int from, int middle, int to,
+                              IndexComparator comparator) {
+        // Already in order, e.g. presorted input
+        if (comparator.compare(indexes[middle - 1], indexes[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(indexes, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                indexes[i] = buffer[left++];
+            } else {
+                indexes[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Position of a record in a sort order: its value for every sort key, null when missing, and its ID
+     */
+    record Position(Object[] values, long id) {
+    }
+
+    @FunctionalInterface
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Merge sort that sorts both halves of large ranges as separate fork/join tasks
+     * Halves use disjoint parts of the index and buffer arrays
+     */
+    private static final class ParallelMergeSort extends RecursiveAction {
+        private final int[] indexes;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final IndexComparator comparator;
+
+        private ParallelMergeSort(int[] indexes, int[] buffer, int from, int to, IndexComparator comparator) {
+            this.indexes = indexes;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_SORT_GRANULARITY) {
+                mergeSort(indexes, buffer, from, to, comparator);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParallelMergeSort(indexes, buffer, from, middle, comparator),
+                    new ParallelMergeSort(indexes, buffer, middle, to, comparator));
+            merge(indexes, buffer, from, middle, to, comparator);
+        }
+    }
+
+    /**
+     * Integral numbers within double precision, string ranks or booleans
+     */
+    private static final class LongKeys extends SortKeys {
+        private final long[] keys;
+
+        private LongKeys(int[] present, int[] missing, Object[] values, long[] keys) {
+            super(present, missing, values);
+            this.keys = keys;
+        }
+
+        @Override
+        int compare(int a, int b) {
+            return Long.compare(keys[a], keys[b]);
+        }
+    }
+
+    /**
+     * Numbers compared as doubles
+     */
+    private static final class DoubleKeys extends SortKeys {
+        private final double[] keys;
+
+        private DoubleKeys(int[] present, int[] missing, Object[] values, double[] keys) {
+            super(present, missing, values);
+            this.keys = keys;
+        }
+
+        @Override
+        int compare(int a, int b) {
+            return Double.compare(keys[a], keys[b]);
+        }
+    }
+
+    /**
+     * Mixed value types, compared with the generic value comparison
+     */
+    private static final class GenericKeys extends SortKeys {
+        private final Object[] keys;
+
+        private GenericKeys(int[] present, int[] missing, Object[] keys) {
+            super(present, missing, keys);
+            this.keys = keys;
+        }
+
+        @Override
+        int compare(int a, int b) {
+            return compareValues(keys[a], keys[b]);
+        }
+    }
+}
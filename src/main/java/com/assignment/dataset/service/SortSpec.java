@@ -0,0 +1,60 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.exception.DatasetException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One key of a sort-by parameter: a compiled field and its direction
+ * Keys are comma-separated and may carry their own order, e.g. "region,score:desc";
+ * keys without one use the order parameter
+ */
+final class SortSpec {
+
+    private final FieldPath field;
+    private final boolean ascending;
+
+    private SortSpec(FieldPath field, boolean ascending) {
+        this.field = field;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Parse a sort-by parameter
+     *
+     * @param sortBy       comma-separated fields, each optionally suffixed with :asc or :desc
+     * @param defaultOrder the validated order parameter, "asc" or "desc"
+     */
+    static List<SortSpec> parse(String sortBy, String defaultOrder) {
+        List<SortSpec> keys = new ArrayList<>();
+        for (String key : FieldPath.splitList(sortBy, "sortBy")) {
+            String field = key;
+            String order = defaultOrder;
+
+            // A suffix other than asc/desc is part of the field name
+            int colon = key.lastIndexOf(':');
+            if (colon > 0) {
+                String suffix = key.substring(colon + 1).trim();
+                if (suffix.equalsIgnoreCase("asc") || suffix.equalsIgnoreCase("desc")) {
+                    field = key.substring(0, colon).trim();
+                    order = suffix.toLowerCase();
+                }
+            }
+            if (field.isEmpty()) {
+                throw new DatasetException.InvalidQueryException(
+                        "Invalid sortBy parameter. Field names must not be empty");
+            }
+            keys.add(new SortSpec(FieldPath.compile(field), order.equals("asc")));
+        }
+        return keys;
+    }
+
+    FieldPath getField() {
+        return field;
+    }
+
+    boolean isAscending() {
+        return ascending;
+    }
+}
@@ -0,0 +1,539 @@
+package com.assignment.dataset.service;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for single-record inserts (dataset.write-behind.enabled)
+ * Inserts are acknowledged once they are in a bounded in-memory queue; a background writer
+ * commits them in group commits of up to dataset.write-behind.flush-records records, waiting
+ * at most dataset.write-behind.flush-interval after the first queued record for more. When the
+ * queue is full, inserts are rejected instead of waiting
+ *
+ * Accepted records are numbered in queue order, and the flushed watermark is the number of the
+ * last committed record. With read-your-writes, queries on a dataset wait for the watermark to
+ * reach the last record accepted for that dataset
+ *
+ * With dataset.write-behind.journal set, records are appended to that file before they are
+ * acknowledged and replayed at the next start when the process stops before committing them.
+ * Replay is at-least-once: records committed just before a crash may be committed again
+ *
+ * A dataset's records that fail to commit dataset.write-behind.max-attempts times are set aside,
+ * to dataset.write-behind.failed-records when set, so the writer moves on to other datasets
+ */
+@Component
+@Slf4j
+public class WriteBehindQueue {
+
+    private static final TypeReference<Map<String, Object>> ENTRY_TYPE = new TypeReference<>() {
+    };
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    private final RecordBatchWriter batchWriter;
+    private final ColumnarDatasetCache cache;
+    private final DatasetVersions versions;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter journalWriter;
+
+    private final boolean enabled;
+    private final boolean readYourWrites;
+    private final int flushRecords;
+    private final long flushIntervalNanos;
+    private final long flushTimeoutNanos;
+    private final int maxAttempts;
+    private final Path journalPath;
+    private final Path failedRecordsPath;
+
+    private final BlockingQueue<Pending> queue;
+    private final Map<String, Long> lastAccepted = new ConcurrentHashMap<>();
+    private final ReentrantLock acceptLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushedCondition = flushLock.newCondition();
+
+    // Guarded by acceptLock
+    private long accepted;
+    private FileChannel journal;
+
+    private volatile long flushed;
+    private volatile boolean running;
+
+    /**
+     * Set once shutdown begins; failed commits are then given up on instead of retried
+     */
+    private volatile boolean stopping;
+    private Thread writer;
+
+    public WriteBehindQueue(DatasetProperties properties, RecordBatchWriter batchWriter, ColumnarDatasetCache cache,
+                            DatasetVersions versions, ObjectMapper objectMapper) {
+        DatasetProperties.WriteBehind settings = properties.getWriteBehind();
+        this.batchWriter = batchWriter;
+        this.cache = cache;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
+        this.journalWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.enabled = settings.isEnabled();
+        this.readYourWrites = settings.isReadYourWrites();
+        this.flushRecords = Math.max(1, settings.getFlushRecords());
+        this.flushIntervalNanos = settings.getFlushInterval().toNanos();
+        this.flushTimeoutNanos = settings.getFlushTimeout().toNanos();
+        this.maxAttempts = Math.max(1, settings.getMaxAttempts());
+        this.journalPath = settings.getJournal();
+        this.failedRecordsPath = settings.getFailedRecords();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replay the journal and start the background writer
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        if (journalPath != null) {
+            try {
+                journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open ingest journal: " + journalPath, e);
+            }
+            replayJournal();
+        }
+
+        running = true;
+        writer = new Thread(this::run, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Write-behind ingest started (queue capacity: {}, group commit: {} records or {} ms, journal: {})",
+                queue.remainingCapacity(), flushRecords, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos),
+                journalPath);
+    }
+
+    /**
+     * Stop accepting records and commit the queued ones
+     */
+    @PreDestroy
+    public void stop() {
+        acceptLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            stopping = true;
+        } finally {
+            acceptLock.unlock();
+        }
+
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Write-behind writer did not finish within {} ms; {} queued records not committed",
+                    SHUTDOWN_TIMEOUT_MILLIS, queue.size());
+        }
+
+        acceptLock.lock();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close ingest journal: {}", journalPath, e);
+        } finally {
+            acceptLock.unlock();
+        }
+    }
+
+    /**
+     * Queue a record for the background writer
+     *
+     * @param datasetName the name of the dataset
+     * @param recordData  the JSON record to insert
+     * @throws DatasetException.InvalidRecordException when the dataset name cannot be stored
+     * @throws DatasetException.IngestUnavailableException when the queue is full or not running
+     */
+    public void enqueue(String datasetName, Map<String, Object> recordData) {
+        // Rejected now: once acknowledged, a record the database refuses could only be set aside
+        if (datasetName == null || datasetName.isBlank()
+                || datasetName.length() > DatasetRecord.MAX_DATASET_NAME_LENGTH) {
+            throw new DatasetException.InvalidRecordException(
+                    "Invalid dataset name. Must be 1 to " + DatasetRecord.MAX_DATASET_NAME_LENGTH + " characters");
+        }
+
+        acceptLock.lock();
+        try {
+            if (!running) {
+                throw new DatasetException.IngestUnavailableException("Ingest queue is not running");
+            }
+            if (queue.remainingCapacity() == 0) {
+                log.warn("Rejected insert into dataset: {} (ingest queue full)", datasetName);
+                throw new DatasetException.IngestUnavailableException("Ingest queue is full. Retry later");
+            }
+
+            long sequence = accepted + 1;
+            if (journal != null) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("seq", sequence);
+                entry.put("dataset", datasetName);
+                entry.put("record", recordData);
+                appendJournal(entry);
+            }
+            accepted = sequence;
+            queue.add(new Pending(sequence, datasetName, recordData));
+            lastAccepted.put(datasetName, sequence);
+        } finally {
+            acceptLock.unlock();
+        }
+    }
+
+    /**
+     * With read-your-writes, wait until the records accepted for the dataset are committed
+     */
+    public void awaitReadable(String datasetName) {
+        if (readYourWrites) {
+            awaitFlushed(datasetName);
+        }
+    }
+
+    /**
+     * Wait until the records accepted for the dataset so far are committed
+     *
+     * @throws DatasetException.IngestUnavailableException when they are not committed within
+     *         dataset.write-behind.flush-timeout
+     */
+    public void awaitFlushed(String datasetName) {
+        Long target = lastAccepted.get(datasetName);
+        if (target == null || flushed >= target) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            long nanos = flushTimeoutNanos;
+            while (flushed < target) {
+                if (nanos <= 0) {
+                    throw new DatasetException.IngestUnavailableException(
+                            "Queued records of dataset: " + datasetName + " are not committed yet. Retry later");
+                }
+                nanos = flushedCondition.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatasetException.IngestUnavailableException(
+                    "Interrupted waiting for queued records of dataset: " + datasetName);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Records waiting to be committed
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Number of datasets with records not yet committed
+     */
+    int trackedDatasets() {
+        return lastAccepted.size();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(flushRecords);
+        while (running || !queue.isEmpty()) {
+            collect(batch);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                commit(batch);
+            } catch (RuntimeException e) {
+                // Only reached once stopping; until then, failed commits are retried or set aside
+                log.error("Write-behind writer stopped with {} records not committed", batch.size() + queue.size(), e);
+                return;
+            }
+            advance(batch.get(batch.size() - 1).sequence);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Take the next group commit: up to flushRecords records, collected for at most the flush
+     * interval after the first one arrives
+     */
+    private void collect(List<Pending> batch) {
+        try {
+            Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (batch.size() < flushRecords) {
+                queue.drainTo(batch, flushRecords - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() == flushRecords || remaining <= 0 || !running) {
+                    break;
+                }
+                Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            running = false;
+            stopping = true;
+        }
+    }
+
+    /**
+     * Commit the records, one transaction per dataset, in queue order within each dataset; each
+     * transaction but the last, which the batch watermark covers, gets its own journal watermark
+     */
+    private void commit(List<Pending> batch) {
+        Map<String, List<Pending>> byDataset = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byDataset.computeIfAbsent(pending.datasetName, k -> new ArrayList<>()).add(pending);
+        }
+
+        int remaining = byDataset.size();
+        for (Map.Entry<String, List<Pending>> dataset : byDataset.entrySet()) {
+            List<Pending> records = dataset.getValue();
+            write(dataset.getKey(), records.stream().map(Pending::recordData).toList());
+            if (--remaining > 0) {
+                markFlushed(dataset.getKey(), records.get(records.size() - 1).sequence);
+            }
+        }
+    }
+
+    /**
+     * Record in the journal that the dataset's records up to the sequence are committed
+     */
+    private void markFlushed(String datasetName, long sequence) {
+        acceptLock.lock();
+        try {
+            if (journal != null && journal.isOpen()) {
+                Map<String, Object> mark = new LinkedHashMap<>();
+                mark.put("flushed", sequence);
+                mark.put("dataset", datasetName);
+                appendJournal(mark);
+            }
+        } catch (DatasetException e) {
+            log.warn("Failed to update ingest journal: {}", journalPath, e);
+        } finally {
+            acceptLock.unlock();
+        }
+    }
+
+    /**
+     * Commit a dataset's records, retrying up to maxAttempts times before setting them aside
+     */
+    private void write(String datasetName, List<Map<String, Object>> records) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                batchWriter.writeBatch(datasetName, records);
+                cache.invalidate(datasetName);
+                versions.onRecordsInserted(datasetName);
+                return;
+            } catch (RuntimeException e) {
+                if (stopping) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    setAside(datasetName, records, e);
+                    return;
+                }
+                log.warn("Failed to commit {} queued records into dataset: {} (attempt {} of {}), retrying",
+                        records.size(), datasetName, attempt, maxAttempts, e);
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                running = false;
+                stopping = true;
+            }
+        }
+    }
+
+    /**
+     * Give up on records that keep failing to commit: append them to the failed-records file
+     * when there is one, otherwise drop them
+     */
+    private void setAside(String datasetName, List<Map<String, Object>> records, RuntimeException failure) {
+        log.error("Failed to commit {} queued records into dataset: {} after {} attempts; {}", records.size(),
+                datasetName, maxAttempts, failedRecordsPath != null ? "moved to " + failedRecordsPath : "dropped",
+                failure);
+        if (failedRecordsPath == null) {
+            return;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(failedRecordsPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map<String, Object> record : records) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("dataset", datasetName);
+                entry.put("record", record);
+                entry.put("error", String.valueOf(failure.getMessage()));
+                out.write(journalWriter.writeValueAsString(entry));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write {} failed records to: {}", records.size(), failedRecordsPath, e);
+        }
+    }
+
+    /**
+     * Record the flushed watermark in the journal, then move it; once every accepted record is
+     * committed the journal is emptied, so waiters never see committed records still journaled.
+     * Datasets whose records are all committed are no longer tracked, dropped ones included
+     */
+    private void advance(long sequence) {
+        acceptLock.lock();
+        try {
+            if (journal != null && journal.isOpen()) {
+                if (accepted == sequence) {
+                    journal.truncate(0);
+                } else {
+                    appendJournal(Map.of("flushed", sequence));
+                }
+            }
+        } catch (IOException | DatasetException e) {
+            log.warn("Failed to update ingest journal: {}", journalPath, e);
+        } finally {
+            acceptLock.unlock();
+        }
+
+        flushLock.lock();
+        try {
+            flushed = sequence;
+            // Conditional per-entry removal, so a dataset accepting a newer record stays tracked
+            lastAccepted.values().removeIf(target -> target <= sequence);
+            flushedCondition.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void appendJournal(Map<String, Object> entry) {
+        try {
+            byte[] line = journalWriter.writeValueAsBytes(entry);
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new DatasetException("Failed to write ingest journal", e);
+        }
+    }
+
+    /**
+     * Commit the journaled records after the last flushed watermarks, then empty the journal
+     * Runs before the writer starts, with the same retries and set-aside, so a record the database
+     * rejects cannot fail every start; replayed chunks are watermarked like live ones
+     */
+    @SuppressWarnings("unchecked")
+    private void replayJournal() {
+        List<Pending> pending = new ArrayList<>();
+        Map<String, Long> committedByDataset = new HashMap<>();
+        long committed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, Object> entry;
+                try {
+                    entry = objectMapper.readValue(line, ENTRY_TYPE);
+                } catch (JsonProcessingException e) {
+                    // A line cut short by a crash was never acknowledged
+                    log.warn("Skipping unreadable line of ingest journal: {}", journalPath);
+                    continue;
+                }
+                if (entry.containsKey("flushed")) {
+                    long sequence = ((Number) entry.get("flushed")).longValue();
+                    if (entry.get("dataset") instanceof String datasetName) {
+                        committedByDataset.merge(datasetName, sequence, Math::max);
+                    } else {
+                        committed = Math.max(committed, sequence);
+                    }
+                } else {
+                    pending.add(new Pending(((Number) entry.get("seq")).longValue(), (String) entry.get("dataset"),
+                            (Map<String, Object>) entry.get("record")));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ingest journal: " + journalPath, e);
+        }
+
+        long watermark = committed;
+        pending.removeIf(record -> record.sequence <= watermark
+                || record.sequence <= committedByDataset.getOrDefault(record.datasetName, 0L));
+        for (int from = 0; from < pending.size(); from += flushRecords) {
+            List<Pending> chunk = pending.subList(from, Math.min(from + flushRecords, pending.size()));
+            commit(chunk);
+            appendJournal(Map.of("flushed", chunk.get(chunk.size() - 1).sequence));
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} records from ingest journal: {}", pending.size(), journalPath);
+        }
+
+        try {
+            journal.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reset ingest journal: " + journalPath, e);
+        }
+    }
+
+    /**
+     * A record accepted but not yet committed
+     */
+    private record Pending(long sequence, String datasetName, Map<String, Object> recordData) {
+    }
+}
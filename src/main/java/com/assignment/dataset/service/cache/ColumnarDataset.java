@@ -0,0 +1,317 @@
+package com.assignment.dataset.service.cache;
+
+import com.assignment.dataset.entity.DatasetRecord;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory copy of one dataset laid out by column
+ * Rows keep their records, with the decoded maps, for output; columns are built lazily per
+ * field on first use and extended as records are appended
+ */
+public class ColumnarDataset {
+
+    private static final long ROW_OVERHEAD_BYTES = 112;
+
+    private final String datasetName;
+
+    /**
+     * Records handed out by every query on the dataset; shared, so callers must not modify them
+     */
+    private DatasetRecord[] rows;
+    private int size;
+    private final Map<String, DictionaryColumn> dictionaryColumns = new HashMap<>();
+    private final Map<String, NumericColumn> numericColumns = new HashMap<>();
+    private long rowBytes;
+
+    ColumnarDataset(String datasetName, List<DatasetRecord> records) {
+        this.datasetName = datasetName;
+        this.rows = new DatasetRecord[Math.max(records.size(), 16)];
+        for (DatasetRecord record : records) {
+            appendRow(record.getId(), record.getRecordData());
+        }
+    }
+
+    public String getDatasetName() {
+        return datasetName;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Append a newly inserted record, extending every column built so far
+     */
+    synchronized void append(Long id, Map<String, Object> recordData) {
+        appendRow(id, recordData);
+        dictionaryColumns.forEach((field, column) -> column.append(recordData.get(field)));
+        numericColumns.entrySet().removeIf(entry -> !entry.getValue().append(recordData.get(entry.getKey())));
+    }
+
+    /**
+     * Group rows by a field using its dictionary codes
+     * Groups keep first-appearance order and missing values share the "null" group
+     */
+    public synchronized Map<String, List<Map<String, Object>>> groupBy(String field) {
+        DictionaryColumn column = dictionaryColumn(field);
+        Map<String, List<Map<String, Object>>> groupedMap = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>>[] groupOfCode = new List[column.cardinality()];
+        for (int row = 0; row < size; row++) {
+            int code = column.code(row);
+            List<Map<String, Object>> group;
+            if (code == DictionaryColumn.MISSING) {
+                group = groupedMap.computeIfAbsent("null", k -> new ArrayList<>());
+            } else {
+                group = groupOfCode[code];
+                if (group == null) {
+                    group = groupedMap.computeIfAbsent(column.value(code), k -> new ArrayList<>());
+                    groupOfCode[code] = group;
+                }
+            }
+            group.add(rows[row].getRecordData());
+        }
+        return groupedMap;
+    }
+
+    /**
+     * Sort rows by a field using its primitive column
+     * Missing values go last for ascending and first for descending; ties keep row order
+     *
+     * @return rows in sort order, or null when the field mixes value types and needs
+     * the generic comparator
+     */
+    public synchronized List<DatasetRecord> sortBy(String field, boolean ascending) {
+        int[] ranks = valueRanks(field);
+        if (ranks == null) {
+            return null;
+        }
+        return view(countingSort(ranks, ascending));
+    }
+
+    /**
+     * All rows in insertion order
+     */
+    public synchronized List<DatasetRecord> records() {
+        return view(null);
+    }
+
+    synchronized long estimatedBytes() {
+        long bytes = rowBytes + 8L * rows.length;
+        for (DictionaryColumn column : dictionaryColumns.values()) {
+            bytes += column.estimatedBytes();
+        }
+        for (NumericColumn column : numericColumns.values()) {
+            bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Dense rank of each row's value in ascending value order, MISSING where the value is absent
+     *
+     * @return the ranks, or null when the field mixes value types
+     */
+    private int[] valueRanks(String field) {
+        NumericColumn numeric = numericColumn(field);
+        if (numeric != null) {
+            return numeric.isIntegral() ? longRanks(numeric) : doubleRanks(numeric);
+        }
+
+        DictionaryColumn dictionary = dictionaryColumn(field);
+        if (!dictionary.isAllStrings()) {
+            return null;
+        }
+        int[] codeRanks = dictionary.sortRanks();
+        int[] ranks = new int[size];
+        for (int row = 0; row < size; row++) {
+            int code = dictionary.code(row);
+            ranks[row] = code == DictionaryColumn.MISSING ? DictionaryColumn.MISSING : codeRanks[code];
+        }
+        return ranks;
+    }
+
+    private int[] longRanks(NumericColumn column) {
+        long[] distinct = new long[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (column.isPresent(row)) {
+                distinct[count++] = column.longValue(row);
+            }
+        }
+        Arrays.sort(distinct, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || distinct[i] != distinct[unique - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+
+        int[] ranks = new int[size];
+        for (int row = 0; row < size; row++) {
+            ranks[row] = column.isPresent(row)
+                    ? Arrays.binarySearch(distinct, 0, unique, column.longValue(row))
+                    : DictionaryColumn.MISSING;
+        }
+        return ranks;
+    }
+
+    /**
+     * Ranks in Double.compare order, which Arrays.sort and binarySearch follow for -0.0 and NaN
+     */
+    private int[] doubleRanks(NumericColumn column) {
+        double[] distinct = new double[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (column.isPresent(row)) {
+                distinct[count++] = column.doubleValue(row);
+            }
+        }
+        Arrays.sort(distinct, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || Double.compare(distinct[i], distinct[unique - 1]) != 0) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+
+        int[] ranks = new int[size];
+        for (int row = 0; row < size; row++) {
+            ranks[row] = column.isPresent(row)
+                    ? Arrays.binarySearch(distinct, 0, unique, column.doubleValue(row))
+                    : DictionaryColumn.MISSING;
+        }
+        return ranks;
+    }
+
+    /**
+     * Row order by rank through a stable counting sort
+     * Missing values go last for ascending and first for descending; ties keep row order
+     */
+    private static int[] countingSort(int[] ranks, boolean ascending) {
+        int rankCount = 0;
+        for (int rank : ranks) {
+            rankCount = Math.max(rankCount, rank + 1);
+        }
+
+        // Slot 0 holds missing values, slot r + 1 rank r, in output order
+        int[] starts = new int[rankCount + 2];
+        for (int rank : ranks) {
+            starts[slot(rank, rankCount, ascending) + 1]++;
+        }
+        for (int slot = 1; slot < starts.length; slot++) {
+            starts[slot] += starts[slot - 1];
+        }
+
+        int[] order = new int[ranks.length];
+        for (int row = 0; row < ranks.length; row++) {
+            order[starts[slot(ranks[row], rankCount, ascending)]++] = row;
+        }
+        return order;
+    }
+
+    /**
+     * Output position of a rank's rows among all ranks, with missing values placed by direction
+     */
+    private static int slot(int rank, int rankCount, boolean ascending) {
+        if (rank == DictionaryColumn.MISSING) {
+            return ascending ? rankCount : 0;
+        }
+        return ascending ? rank : rankCount - rank;
+    }
+
+    private DictionaryColumn dictionaryColumn(String field) {
+        return dictionaryColumns.computeIfAbsent(field, f -> {
+            DictionaryColumn column = new DictionaryColumn(size);
+            for (int row = 0; row < size; row++) {
+                column.append(rows[row].getRecordData().get(f));
+            }
+            return column;
+        });
+    }
+
+    /**
+     * Build or return the numeric column of a field, or null if the field holds non-numeric values
+     */
+    private NumericColumn numericColumn(String field) {
+        NumericColumn existing = numericColumns.get(field);
+        if (existing != null) {
+            return existing;
+        }
+        NumericColumn column = new NumericColumn(size);
+        for (int row = 0; row < size; row++) {
+            if (!column.append(rows[row].getRecordData().get(field))) {
+                return null;
+            }
+        }
+        numericColumns.put(field, column);
+        return column;
+    }
+
+    private void appendRow(Long id, Map<String, Object> recordData) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        rows[size] = DatasetRecord.builder()
+                .id(id != null ? id : 0L)
+                .datasetName(datasetName)
+                .recordData(recordData)
+                .build();
+        size++;
+        rowBytes += ROW_OVERHEAD_BYTES + estimateBytes(recordData);
+    }
+
+    /**
+     * Read-only list of records in the given row order, or in insertion order for null
+     * Holds on to the current array, which later appends only extend past this size
+     */
+    private List<DatasetRecord> view(int[] order) {
+        DatasetRecord[] snapshot = rows;
+        int length = order != null ? order.length : size;
+        return new AbstractList<>() {
+            @Override
+            public DatasetRecord get(int index) {
+                Objects.checkIndex(index, length);
+                return snapshot[order != null ? order[index] : index];
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+    }
+
+    /**
+     * Rough heap footprint of a decoded JSON value
+     */
+    private static long estimateBytes(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof List<?> list) {
+            long bytes = 24;
+            for (Object element : list) {
+                bytes += 8 + estimateBytes(element);
+            }
+            return bytes;
+        }
+        if (value instanceof String string) {
+            return 40 + 2L * string.length();
+        }
+        return 16;
+    }
+}
@@ -0,0 +1,210 @@
+package com.assignment.dataset.service.cache;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.config.TransactionHooks;
+import com.assignment.dataset.dto.DatasetDTO;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.repository.RecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional cache holding whole datasets in columnar form for group/sort queries
+ * Datasets are evicted least-recently-used once the estimated footprint exceeds
+ * the configured budget; inserts are appended after their transaction commits
+ */
+@Component
+@Slf4j
+public class ColumnarDatasetCache {
+
+    private final RecordRepository repository;
+    private final boolean enabled;
+    private final long maxBytes;
+
+    /**
+     * Cached datasets in access order, guarded by synchronizing on the map
+     */
+    private final LinkedHashMap<String, ColumnarDataset> datasets = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Per-dataset write tracking so loads that raced with a write are not kept
+     */
+    private final Map<String, WriteState> writeStates = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ColumnarDatasetCache(RecordRepository repository, DatasetProperties properties) {
+        this.repository = repository;
+        this.enabled = properties.getCache().isEnabled();
+        this.maxBytes = properties.getCache().getMaxBytes();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the cached dataset, loading it from the repository on a miss
+     * Must be called inside a transaction so the load sees a consistent snapshot
+     *
+     * @param datasetName the name of the dataset
+     * @return the columnar dataset
+     */
+    public ColumnarDataset get(String datasetName) {
+        synchronized (datasets) {
+            ColumnarDataset cached = datasets.get(datasetName);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        WriteState writes = writeState(datasetName);
+        long generation = writes.generation.get();
+        boolean quiet = writes.pending.get() == 0;
+        List<DatasetRecord> records = repository.findByDatasetName(datasetName);
+        ColumnarDataset loaded = new ColumnarDataset(datasetName, records);
+
+        synchronized (datasets) {
+            // A write was in flight or completed while loading; serve this snapshot but do not keep it
+            if (!quiet || writes.pending.get() != 0 || writes.generation.get() != generation) {
+                return loaded;
+            }
+            ColumnarDataset existing = datasets.putIfAbsent(datasetName, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            evictOverBudget(datasetName);
+        }
+        log.debug("Cached dataset: {} ({} records)", datasetName, loaded.size());
+        return loaded;
+    }
+
+    /**
+     * Append an inserted record to the cached dataset once the surrounding transaction commits
+     */
+    public void onRecordInserted(String datasetName, Long id, Map<String, Object> recordData) {
+        if (!enabled) {
+            return;
+        }
+        WriteState writes = writeState(datasetName);
+        writes.pending.incrementAndGet();
+        TransactionHooks.afterCompletion(committed -> {
+            try {
+                if (committed) {
+                    ColumnarDataset cached;
+                    synchronized (datasets) {
+                        cached = datasets.get(datasetName);
+                    }
+                    if (cached != null) {
+                        cached.append(id, recordData);
+                    }
+                }
+            } finally {
+                writes.generation.incrementAndGet();
+                writes.pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Drop a dataset from the cache once the transaction removing its records completes
+     * Loads overlapping the removal are not cached, as for inserts
+     */
+    public void onRecordsDeleted(String datasetName) {
+        if (!enabled) {
+            return;
+        }
+        WriteState writes = writeState(datasetName);
+        writes.pending.incrementAndGet();
+        TransactionHooks.afterCompletion(committed -> {
+            try {
+                synchronized (datasets) {
+                    datasets.remove(datasetName);
+                }
+            } finally {
+                writes.generation.incrementAndGet();
+                writes.pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Drop a dataset from the cache, e.g. after a bulk load
+     */
+    public void invalidate(String datasetName) {
+        if (!enabled) {
+            return;
+        }
+        writeState(datasetName).generation.incrementAndGet();
+        synchronized (datasets) {
+            datasets.remove(datasetName);
+        }
+    }
+
+    public DatasetDTO.CacheStatsResponse stats() {
+        synchronized (datasets) {
+            long hitCount = hits.get();
+            long missCount = misses.get();
+            long requests = hitCount + missCount;
+            return DatasetDTO.CacheStatsResponse.builder()
+                    .enabled(enabled)
+                    .datasets(datasets.size())
+                    .estimatedBytes(totalBytes())
+                    .maxBytes(maxBytes)
+                    .hits(hitCount)
+                    .misses(missCount)
+                    .evictions(evictions.get())
+                    .hitRatio(requests == 0 ? 0d : (double) hitCount / requests)
+                    .build();
+        }
+    }
+
+    /**
+     * Evict least-recently-used datasets until the cache fits its budget
+     * A dataset that alone exceeds the budget is not kept
+     */
+    private void evictOverBudget(String justLoaded) {
+        long total = totalBytes();
+        Iterator<Map.Entry<String, ColumnarDataset>> eldest = datasets.entrySet().iterator();
+        while (total > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, ColumnarDataset> entry = eldest.next();
+            total -= entry.getValue().estimatedBytes();
+            eldest.remove();
+            evictions.incrementAndGet();
+            log.debug("Evicted dataset from cache: {}{}", entry.getKey(),
+                    entry.getKey().equals(justLoaded) ? " (exceeds budget)" : "");
+        }
+    }
+
+    private long totalBytes() {
+        long total = 0;
+        for (ColumnarDataset dataset : datasets.values()) {
+            total += dataset.estimatedBytes();
+        }
+        return total;
+    }
+
+    private WriteState writeState(String datasetName) {
+        return writeStates.computeIfAbsent(datasetName, k -> new WriteState());
+    }
+
+    /**
+     * Writes in flight and a generation bumped whenever a write completes
+     */
+    private static class WriteState {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong generation = new AtomicLong();
+    }
+}
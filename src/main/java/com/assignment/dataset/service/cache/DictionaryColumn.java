@@ -0,0 +1,91 @@
+package com.assignment.dataset.service.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary-encoded column: each row stores an int code into a dictionary of
+ * distinct string values (String.valueOf of the JSON value), -1 when the field is missing
+ */
+class DictionaryColumn {
+
+    static final int MISSING = -1;
+
+    private int[] codes;
+    private int size;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> lookup = new HashMap<>();
+    private boolean allStrings = true;
+
+    DictionaryColumn(int capacity) {
+        this.codes = new int[Math.max(capacity, 16)];
+    }
+
+    void append(Object value) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        if (value == null) {
+            codes[size++] = MISSING;
+            return;
+        }
+        if (!(value instanceof String)) {
+            allStrings = false;
+        }
+        String key = String.valueOf(value);
+        Integer code = lookup.get(key);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(key);
+            lookup.put(key, code);
+        }
+        codes[size++] = code;
+    }
+
+    int code(int row) {
+        return codes[row];
+    }
+
+    String value(int code) {
+        return dictionary.get(code);
+    }
+
+    int cardinality() {
+        return dictionary.size();
+    }
+
+    /**
+     * True when every present value was a JSON string, so codes can be sorted as text
+     */
+    boolean isAllStrings() {
+        return allStrings;
+    }
+
+    /**
+     * Rank of each dictionary entry in String.compareTo order, indexed by code
+     */
+    int[] sortRanks() {
+        Integer[] byValue = new Integer[dictionary.size()];
+        for (int i = 0; i < byValue.length; i++) {
+            byValue[i] = i;
+        }
+        Arrays.sort(byValue, (a, b) -> dictionary.get(a).compareTo(dictionary.get(b)));
+
+        int[] ranks = new int[byValue.length];
+        for (int rank = 0; rank < byValue.length; rank++) {
+            ranks[byValue[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    long estimatedBytes() {
+        long bytes = 4L * codes.length;
+        for (String value : dictionary) {
+            bytes += 56 + 2L * value.length();
+        }
+        return bytes;
+    }
+}
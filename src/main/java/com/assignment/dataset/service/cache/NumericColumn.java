@@ -0,0 +1,88 @@
+package com.assignment.dataset.service.cache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Primitive numeric column: long[] while every value is integral, widened to
+ * double[] once a floating-point value appears; a bit set tracks present values
+ */
+class NumericColumn {
+
+    private long[] longs;
+    private double[] doubles;
+    private final BitSet present = new BitSet();
+    private int size;
+
+    NumericColumn(int capacity) {
+        this.longs = new long[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Append a value
+     *
+     * @return false when the value is not numeric and the column cannot hold it
+     */
+    boolean append(Object value) {
+        ensureCapacity();
+        if (value == null) {
+            size++;
+            return true;
+        }
+        if (!(value instanceof Number number)) {
+            return false;
+        }
+
+        if (doubles == null && isIntegral(number)) {
+            longs[size] = number.longValue();
+        } else {
+            if (doubles == null) {
+                widen();
+            }
+            doubles[size] = number.doubleValue();
+        }
+        present.set(size++);
+        return true;
+    }
+
+    boolean isPresent(int row) {
+        return present.get(row);
+    }
+
+    boolean isIntegral() {
+        return doubles == null;
+    }
+
+    long longValue(int row) {
+        return longs[row];
+    }
+
+    double doubleValue(int row) {
+        return doubles[row];
+    }
+
+    long estimatedBytes() {
+        return 8L * (doubles != null ? doubles.length : longs.length) + size / 8;
+    }
+
+    private void ensureCapacity() {
+        if (doubles != null && size == doubles.length) {
+            doubles = Arrays.copyOf(doubles, size * 2);
+        } else if (doubles == null && size == longs.length) {
+            longs = Arrays.copyOf(longs, size * 2);
+        }
+    }
+
+    private void widen() {
+        doubles = new double[longs.length];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = longs[i];
+        }
+        longs = null;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+    }
+}
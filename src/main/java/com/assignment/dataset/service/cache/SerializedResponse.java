@@ -0,0 +1,45 @@
+package com.assignment.dataset.service.cache;
+
+/**
+ * Serialized JSON body of a query response, with a gzip-compressed copy when the body is large enough
+ */
+public final class SerializedResponse {
+
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String etag;
+    private final long storedAt;
+
+    SerializedResponse(byte[] body, byte[] gzipBody, String etag, long storedAt) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = etag;
+        this.storedAt = storedAt;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gzip-compressed body, or null when the body was not compressed
+     */
+    public byte[] getGzipBody() {
+        return gzipBody;
+    }
+
+    /**
+     * Entity tag clients revalidate the cached response with, or null when the response was not cached
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    long storedAt() {
+        return storedAt;
+    }
+
+    long estimatedBytes() {
+        return body.length + (gzipBody != null ? gzipBody.length : 0) + 64;
+    }
+}
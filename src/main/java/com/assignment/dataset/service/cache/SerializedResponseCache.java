@@ -0,0 +1,141 @@
+package com.assignment.dataset.service.cache;
+
+import com.assignment.dataset.config.DatasetProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized query responses keyed by dataset version and query parameters
+ * A dataset's version changes whenever records are inserted through this instance, which
+ * assumes it is the dataset's only writer; writes by other instances sharing the database
+ * go unseen until an entry reaches its maximum age. Entries of older versions are dropped
+ * when a newer one is stored and the rest are evicted least-recently-used once they exceed
+ * the configured budget
+ */
+@Component
+@Slf4j
+public class SerializedResponseCache {
+
+    /**
+     * Distinguishes ETags of this process from those handed out before a restart,
+     * when version numbers start over
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int gzipMinBytes;
+    private final long maxAgeNanos;
+
+    /**
+     * Cached responses in access order, guarded by synchronizing on the map
+     */
+    private final LinkedHashMap<Key, SerializedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> latestVersions = new HashMap<>();
+    private long totalBytes;
+    private long stored;
+
+    public SerializedResponseCache(DatasetProperties properties) {
+        DatasetProperties.ResponseCache settings = properties.getResponseCache();
+        this.enabled = settings.isEnabled();
+        this.maxBytes = settings.getMaxBytes();
+        this.gzipMinBytes = settings.getGzipMinBytes();
+        this.maxAgeNanos = settings.getMaxAge().toNanos();
+    }
+
+    /**
+     * Cached response of a query at a dataset version, or null when missing or past its maximum age
+     */
+    public SerializedResponse get(String datasetName, long version, List<?> query) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (responses) {
+            Key key = new Key(datasetName, version, query);
+            SerializedResponse response = responses.get(key);
+            if (response != null && maxAgeNanos > 0 && System.nanoTime() - response.storedAt() > maxAgeNanos) {
+                responses.remove(key);
+                totalBytes -= response.estimatedBytes();
+                return null;
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Wrap a serialized body, compressing it when large enough, and cache it with an ETag when enabled
+     */
+    public SerializedResponse put(String datasetName, long version, List<?> query, byte[] body) {
+        byte[] gzipBody = gzipMinBytes > 0 && body.length >= gzipMinBytes ? gzip(body) : null;
+        SerializedResponse response = new SerializedResponse(body, gzipBody, null, 0);
+        if (!enabled || response.estimatedBytes() > maxBytes) {
+            return response;
+        }
+
+        synchronized (responses) {
+            Long latest = latestVersions.get(datasetName);
+            if (latest != null && latest > version) {
+                // Computed for a version that has been superseded already
+                return response;
+            }
+            if (latest != null && latest < version) {
+                removeDataset(datasetName);
+            }
+            latestVersions.put(datasetName, version);
+
+            // Every stored entry gets a tag of its own, so an expired and recomputed response is never
+            // confirmed with the tag of the one it replaced
+            String etag = "\"" + epoch + "-" + version + "-" + Long.toString(++stored, 36) + "\"";
+            response = new SerializedResponse(body, gzipBody, etag, System.nanoTime());
+            SerializedResponse previous = responses.put(new Key(datasetName, version, query), response);
+            totalBytes += response.estimatedBytes() - (previous != null ? previous.estimatedBytes() : 0);
+            evictOverBudget();
+        }
+        return response;
+    }
+
+    private void removeDataset(String datasetName) {
+        Iterator<Map.Entry<Key, SerializedResponse>> entries = responses.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, SerializedResponse> entry = entries.next();
+            if (entry.getKey().datasetName().equals(datasetName)) {
+                totalBytes -= entry.getValue().estimatedBytes();
+                entries.remove();
+            }
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Key, SerializedResponse>> eldest = responses.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, SerializedResponse> entry = eldest.next();
+            totalBytes -= entry.getValue().estimatedBytes();
+            eldest.remove();
+            log.debug("Evicted cached response of dataset: {} {}", entry.getKey().datasetName(),
+                    entry.getKey().query());
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private record Key(String datasetName, long version, List<?> query) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.assignment.dataset.store;
+
+import com.assignment.dataset.entity.DatasetRecord;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine for dataset records, used in place of the database through
+ * DatasetStoreRepository when dataset.storage.engine selects it
+ */
+public interface DatasetStore {
+
+    /**
+     * Give records without an ID the next ones, in order, ahead of appending them
+     *
+     * @param records the records to number
+     */
+    void assignIds(List<DatasetRecord> records);
+
+    /**
+     * Append records to a dataset and make them durable as configured
+     * Records without an ID are given the next ones; each dataset's records must be appended
+     * in ID order
+     *
+     * @param datasetName the name of the dataset
+     * @param records     records holding their data as JSON or in the binary encoding
+     * @throws IllegalArgumentException if a record's ID is not above the dataset's last one
+     */
+    void append(String datasetName, List<DatasetRecord> records);
+
+    /**
+     * Read the records of a dataset in ID order
+     * JSON records hold their unparsed JSON text; records appended after the stream is
+     * opened are not included
+     *
+     * @param datasetName the name of the dataset
+     * @return stream of the dataset's records
+     */
+    Stream<DatasetRecord> scan(String datasetName);
+
+    /**
+     * Count the records of a dataset
+     */
+    long count(String datasetName);
+
+    /**
+     * Names of the datasets holding records
+     */
+    Set<String> datasetNames();
+
+    /**
+     * Remove all records of a dataset
+     */
+    void delete(String datasetName);
+}
@@ -0,0 +1,635 @@
+package com.assignment.dataset.store;
+
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.entity.DatasetRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Embedded record store keeping each dataset in an append-only log of memory-mapped segments
+ *
+ * Each dataset has a directory under dataset.storage.embedded.directory holding:
+ * - segment-{first id}.log: fixed-size segment files, appended to through a memory mapping
+ * - snapshot-{first id}-{last id}.log: older records compacted into dense files
+ * Once a dataset has dataset.storage.embedded.snapshot-segments full segments, they are merged
+ * into its last snapshot in the background and deleted, so the dataset is read back from a few
+ * files without the unused tails of its segments
+ *
+ * Records are framed as [length][crc32c][id][created at][format][data]; a zero length ends the
+ * records of a segment. At startup every dataset is read once sequentially, checking the
+ * checksums; a record cut short by a crash ends its segment and is overwritten by the next append
+ */
+@Component
+@ConditionalOnProperty(prefix = "dataset.storage", name = "engine", havingValue = "embedded")
+@Slf4j
+public class SegmentLogDatasetStore implements DatasetStore {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Length and checksum, then ID, creation time and format ahead of the data
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 17;
+    private static final byte JSON = 0;
+    private static final byte BINARY = 1;
+
+    // Snapshots stay within what one mapping can address
+    private static final long MAX_SNAPSHOT_BYTES = 1L << 30;
+
+    private static final ObjectMapper JSON_WRITER = new ObjectMapper();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int snapshotSegments;
+    private final boolean forceWrites;
+    private final Map<String, DatasetLog> datasets = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "segment-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SegmentLogDatasetStore(DatasetProperties properties) {
+        DatasetProperties.Embedded embedded = properties.getStorage().getEmbedded();
+        this.directory = embedded.getDirectory();
+        this.segmentBytes = Math.max(1024, embedded.getSegmentBytes());
+        this.snapshotSegments = Math.max(1, embedded.getSnapshotSegments());
+        this.forceWrites = embedded.isForceWrites();
+        recover();
+    }
+
+    @Override
+    public void append(String datasetName, List<DatasetRecord> records) {
+        datasets.computeIfAbsent(datasetName, name -> new DatasetLog(directory.resolve(directoryName(name))))
+                .append(records);
+    }
+
+    @Override
+    public void assignIds(List<DatasetRecord> records) {
+        records.forEach(this::number);
+    }
+
+    @Override
+    public Stream<DatasetRecord> scan(String datasetName) {
+        DatasetLog dataset = datasets.get(datasetName);
+        if (dataset == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new FrameSpliterator(datasetName, dataset.regions()), false);
+    }
+
+    @Override
+    public long count(String datasetName) {
+        DatasetLog dataset = datasets.get(datasetName);
+        return dataset != null ? dataset.count() : 0;
+    }
+
+    @Override
+    public Set<String> datasetNames() {
+        return datasets.entrySet().stream()
+                .filter(dataset -> dataset.getValue().count() > 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void delete(String datasetName) {
+        DatasetLog dataset = datasets.get(datasetName);
+        if (dataset != null) {
+            dataset.clear();
+        }
+    }
+
+    /**
+     * Finish running compactions and flush appended records to disk
+     */
+    @PreDestroy
+    public void close() {
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Segment compaction still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        datasets.values().forEach(DatasetLog::force);
+    }
+
+    /**
+     * Read every dataset directory back: snapshots first, then segments, stopping each segment
+     * at its first incomplete record
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> directories = Files.list(directory)) {
+                for (Path datasetDirectory : directories.filter(Files::isDirectory).toList()) {
+                    DatasetLog dataset = new DatasetLog(datasetDirectory);
+                    dataset.recover();
+                    datasets.put(datasetName(datasetDirectory.getFileName().toString()), dataset);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open record store: " + directory, e);
+        }
+
+        long records = datasets.values().stream().mapToLong(DatasetLog::count).sum();
+        log.info("Recovered {} records of {} datasets from {} in {} ms", records, datasets.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Give a record the next ID and a creation time unless it has them
+     */
+    private void number(DatasetRecord record) {
+        if (record.getId() == null) {
+            record.setId(lastId.incrementAndGet());
+        } else {
+            lastId.accumulateAndGet(record.getId(), Math::max);
+        }
+        if (record.getCreatedAt() == null) {
+            record.setCreatedAt(LocalDateTime.now());
+        }
+    }
+
+    private static String directoryName(String datasetName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(datasetName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String datasetName(String directoryName) {
+        return new String(Base64.getUrlDecoder().decode(directoryName), StandardCharsets.UTF_8);
+    }
+
+    private static String fileId(long id) {
+        return String.format("%020d", id);
+    }
+
+    /**
+     * Segments and snapshots of one dataset; appends, compaction swaps and clearing are
+     * serialized on the instance, scans read a captured view without locking
+     */
+    private final class DatasetLog {
+
+        private final Path directory;
+        private final List<Region> snapshots = new ArrayList<>();
+        private final List<Region> segments = new ArrayList<>();
+        private long count;
+        private long lastAppendedId;
+        private long generation;
+        private boolean compacting;
+
+        private DatasetLog(Path directory) {
+            this.directory = directory;
+        }
+
+        synchronized void append(List<DatasetRecord> records) {
+            Region written = null;
+            for (DatasetRecord record : records) {
+                number(record);
+                if (record.getId() <= lastAppendedId) {
+                    throw new IllegalArgumentException("Record " + record.getId()
+                            + " does not follow the last record of the dataset: " + lastAppendedId);
+                }
+                lastAppendedId = record.getId();
+
+                byte format = record.getRecordBinary() != null ? BINARY : JSON;
+                byte[] data = format == BINARY ? record.getRecordBinary() : jsonBytes(record);
+                Region segment = active(record.getId(), FRAME_HEADER_BYTES + RECORD_HEADER_BYTES + data.length);
+                if (forceWrites && written != null && written != segment) {
+                    written.buffer.force();
+                }
+                segment.write(record.getId(), record.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                        format, data);
+                written = segment;
+                count++;
+            }
+            if (forceWrites && written != null) {
+                written.buffer.force();
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        /**
+         * The records written so far, as read-only views of the snapshots and segments
+         */
+        synchronized List<ByteBuffer> regions() {
+            List<ByteBuffer> regions = new ArrayList<>(snapshots.size() + segments.size());
+            for (Region snapshot : snapshots) {
+                regions.add(snapshot.buffer.slice(0, snapshot.limit).asReadOnlyBuffer());
+            }
+            for (Region segment : segments) {
+                regions.add(segment.buffer.slice(0, segment.limit).asReadOnlyBuffer());
+            }
+            return regions;
+        }
+
+        synchronized void clear() {
+            generation++;
+            count = 0;
+            List<Region> files = new ArrayList<>(snapshots);
+            files.addAll(segments);
+            snapshots.clear();
+            segments.clear();
+            for (Region file : files) {
+                deleteFile(file.path);
+            }
+        }
+
+        synchronized void force() {
+            if (!segments.isEmpty()) {
+                segments.get(segments.size() - 1).buffer.force();
+            }
+        }
+
+        /**
+         * The segment to append a record of the given size to, starting a new one when the
+         * current segment is full
+         */
+        private Region active(long id, int frameBytes) {
+            Region segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment != null && segment.remaining() >= frameBytes + FRAME_HEADER_BYTES) {
+                return segment;
+            }
+
+            // Leave room for the zero length ending the segment's records
+            int capacity = Math.max(segmentBytes, frameBytes + FRAME_HEADER_BYTES);
+            try {
+                Files.createDirectories(directory);
+                Path path = directory.resolve(SEGMENT_PREFIX + fileId(id) + SUFFIX);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    segment = new Region(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), id);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create segment in: " + directory, e);
+            }
+            segments.add(segment);
+            scheduleCompaction();
+            return segment;
+        }
+
+        private void scheduleCompaction() {
+            if (compacting || segments.size() - 1 < snapshotSegments) {
+                return;
+            }
+            compacting = true;
+            try {
+                compactor.execute(this::compact);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the segments are compacted after the next start
+                compacting = false;
+            }
+        }
+
+        /**
+         * Merge the full segments into the last snapshot, or a new one when it would grow past
+         * MAX_SNAPSHOT_BYTES, then delete them
+         */
+        private void compact() {
+            boolean compacted = false;
+            try {
+                Region base;
+                List<Region> full;
+                long startGeneration;
+                synchronized (this) {
+                    if (segments.size() < 2) {
+                        return;
+                    }
+                    base = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+                    full = new ArrayList<>(segments.subList(0, segments.size() - 1));
+                    startGeneration = generation;
+                }
+                long fullBytes = full.stream().mapToLong(segment -> segment.limit).sum();
+                if (base != null && base.limit + fullBytes > MAX_SNAPSHOT_BYTES) {
+                    base = null;
+                }
+
+                long firstId = base != null ? base.firstId : full.get(0).firstId;
+                long lastCompacted = full.get(full.size() - 1).lastId;
+                String name = SNAPSHOT_PREFIX + fileId(firstId) + "-" + fileId(lastCompacted);
+                Path temp = directory.resolve(name + TEMP_SUFFIX);
+                Path target = directory.resolve(name + SUFFIX);
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    if (base != null) {
+                        writeFully(out, base.buffer.slice(0, base.limit));
+                    }
+                    for (Region segment : full) {
+                        writeFully(out, segment.buffer.slice(0, segment.limit));
+                    }
+                    out.force(true);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Region snapshot = Region.readOnly(target, firstId);
+                snapshot.lastId = lastCompacted;
+
+                List<Region> obsolete = new ArrayList<>(full);
+                synchronized (this) {
+                    if (generation != startGeneration) {
+                        // Cleared while compacting
+                        deleteFile(target);
+                        return;
+                    }
+                    if (base != null) {
+                        snapshots.remove(base);
+                        obsolete.add(base);
+                    }
+                    snapshots.add(snapshot);
+                    segments.removeAll(full);
+                }
+                for (Region region : obsolete) {
+                    deleteFile(region.path);
+                }
+                compacted = true;
+                log.debug("Compacted {} segments of {} into {}", full.size(), directory, target.getFileName());
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to compact segments of {}", directory, e);
+            } finally {
+                synchronized (this) {
+                    compacting = false;
+                    // After a failure the next new segment tries again
+                    if (compacted) {
+                        scheduleCompaction();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Map the dataset's files and count their records; files made obsolete by a compaction
+         * that was interrupted are deleted
+         */
+        synchronized void recover() throws IOException {
+            List<Path> files;
+            try (Stream<Path> listed = Files.list(directory)) {
+                files = listed.sorted().toList();
+            }
+
+            List<long[]> snapshotRanges = new ArrayList<>();
+            List<Path> snapshotFiles = new ArrayList<>();
+            List<Path> segmentFiles = new ArrayList<>();
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    deleteFile(file);
+                } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SUFFIX)) {
+                    String[] range = name.substring(SNAPSHOT_PREFIX.length(), name.length() - SUFFIX.length())
+                            .split("-");
+                    snapshotRanges.add(new long[]{Long.parseLong(range[0]), Long.parseLong(range[1])});
+                    snapshotFiles.add(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SUFFIX)) {
+                    segmentFiles.add(file);
+                }
+            }
+
+            // A snapshot covered by a later merge was not deleted before the process stopped
+            long covered = 0;
+            for (int i = 0; i < snapshotFiles.size(); i++) {
+                long[] range = snapshotRanges.get(i);
+                boolean superseded = false;
+                for (long[] other : snapshotRanges) {
+                    if (other != range && other[0] <= range[0] && range[1] <= other[1]) {
+                        superseded = true;
+                        break;
+                    }
+                }
+                if (superseded) {
+                    deleteFile(snapshotFiles.get(i));
+                    continue;
+                }
+                Region snapshot = Region.readOnly(snapshotFiles.get(i), range[0]);
+                count += snapshot.recover(snapshotFiles.get(i));
+                snapshot.lastId = range[1];
+                snapshots.add(snapshot);
+                covered = Math.max(covered, range[1]);
+            }
+            snapshots.sort(Comparator.comparingLong(snapshot -> snapshot.firstId));
+
+            for (Path file : segmentFiles) {
+                String name = file.getFileName().toString();
+                long firstId = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SUFFIX.length()));
+                if (firstId <= covered) {
+                    deleteFile(file);
+                    continue;
+                }
+                Region segment;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    segment = new Region(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()),
+                            firstId);
+                }
+                count += segment.recover(file);
+                segments.add(segment);
+                covered = Math.max(covered, segment.lastId);
+            }
+            lastAppendedId = covered;
+            lastId.accumulateAndGet(covered, Math::max);
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * One mapped snapshot or segment file and the extent of its records
+     */
+    private static final class Region {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final long firstId;
+        private long lastId;
+        private int limit;
+
+        private Region(Path path, MappedByteBuffer buffer, long firstId) {
+            this.path = path;
+            this.buffer = buffer;
+            this.firstId = firstId;
+        }
+
+        static Region readOnly(Path path, long firstId) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                Region region = new Region(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                        firstId);
+                region.limit = region.buffer.capacity();
+                return region;
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - limit;
+        }
+
+        /**
+         * Write one record after the last; the length goes in last, so a record is only read
+         * back once it is complete
+         */
+        void write(long id, long createdAt, byte format, byte[] data) {
+            int position = limit;
+            int length = RECORD_HEADER_BYTES + data.length;
+            buffer.putLong(position + FRAME_HEADER_BYTES, id);
+            buffer.putLong(position + FRAME_HEADER_BYTES + 8, createdAt);
+            buffer.put(position + FRAME_HEADER_BYTES + 16, format);
+            buffer.put(position + FRAME_HEADER_BYTES + RECORD_HEADER_BYTES, data);
+            buffer.putInt(position + 4, checksum(buffer, position + FRAME_HEADER_BYTES, length));
+            buffer.putInt(position, length);
+            limit = position + FRAME_HEADER_BYTES + length;
+            lastId = id;
+        }
+
+        /**
+         * Find the end of the records with valid checksums and return how many there are;
+         * the bytes of a record cut short are zeroed so appends continue from a clean end
+         */
+        long recover(Path file) {
+            int capacity = limit > 0 ? limit : buffer.capacity();
+            int position = 0;
+            long records = 0;
+            while (position + FRAME_HEADER_BYTES + RECORD_HEADER_BYTES <= capacity) {
+                int length = buffer.getInt(position);
+                if (length < RECORD_HEADER_BYTES || length > capacity - position - FRAME_HEADER_BYTES
+                        || checksum(buffer, position + FRAME_HEADER_BYTES, length) != buffer.getInt(position + 4)) {
+                    break;
+                }
+                lastId = buffer.getLong(position + FRAME_HEADER_BYTES);
+                position += FRAME_HEADER_BYTES + length;
+                records++;
+            }
+
+            if (buffer.isReadOnly()) {
+                if (position < capacity) {
+                    log.warn("Snapshot {} is damaged after {} records; the rest is skipped", file, records);
+                }
+            } else if (position + FRAME_HEADER_BYTES + 8 <= buffer.capacity()
+                    && (buffer.getLong(position) != 0 || buffer.getLong(position + FRAME_HEADER_BYTES) != 0)) {
+                log.warn("Segment {} ends with an incomplete record after {} records; it is discarded", file, records);
+                byte[] zeros = new byte[8192];
+                for (int i = position; i < buffer.capacity(); i += zeros.length) {
+                    buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+                }
+            }
+            limit = position;
+            return records;
+        }
+    }
+
+    /**
+     * Decodes the records of captured regions one at a time
+     */
+    private static final class FrameSpliterator extends Spliterators.AbstractSpliterator<DatasetRecord> {
+
+        private final String datasetName;
+        private final List<ByteBuffer> regions;
+        private int region;
+
+        private FrameSpliterator(String datasetName, List<ByteBuffer> regions) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.datasetName = datasetName;
+            this.regions = regions;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super DatasetRecord> action) {
+            while (region < regions.size()) {
+                ByteBuffer buffer = regions.get(region);
+                int position = buffer.position();
+                if (buffer.limit() - position < FRAME_HEADER_BYTES || buffer.getInt(position) == 0) {
+                    region++;
+                    continue;
+                }
+
+                int length = buffer.getInt(position);
+                long id = buffer.getLong(position + FRAME_HEADER_BYTES);
+                long createdAt = buffer.getLong(position + FRAME_HEADER_BYTES + 8);
+                byte format = buffer.get(position + FRAME_HEADER_BYTES + 16);
+                byte[] data = new byte[length - RECORD_HEADER_BYTES];
+                buffer.get(position + FRAME_HEADER_BYTES + RECORD_HEADER_BYTES, data);
+                buffer.position(position + FRAME_HEADER_BYTES + length);
+
+                DatasetRecord.DatasetRecordBuilder record = DatasetRecord.builder()
+                        .id(id)
+                        .datasetName(datasetName)
+                        .createdAt(LocalDateTime.ofEpochSecond(Math.floorDiv(createdAt, 1000),
+                                (int) Math.floorMod(createdAt, 1000) * 1_000_000, ZoneOffset.UTC));
+                action.accept(format == BINARY
+                        ? record.recordBinary(data).build()
+                        : record.recordJson(new String(data, StandardCharsets.UTF_8)).build());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static byte[] jsonBytes(DatasetRecord record) {
+        if (record.getRecordJson() != null) {
+            return record.getRecordJson().getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return JSON_WRITER.writeValueAsBytes(record.getRecordData());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to encode record of dataset: " + record.getDatasetName(), e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+}
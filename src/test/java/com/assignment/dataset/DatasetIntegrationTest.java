@@ -1,23 +1,38 @@
 package com.assignment.dataset;
 
 import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.config.DatasetProperties;
 import com.assignment.dataset.repository.DatasetRecordRepository;
+import com.assignment.dataset.service.QueryAdmission;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -38,6 +53,15 @@ class DatasetIntegrationTest {
     @Autowired
     private DatasetRecordRepository repository;
 
+    @Autowired
+    private QueryAdmission queryAdmission;
+
+    @Autowired
+    private DatasetProperties properties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         repository.deleteAll();
@@ -217,4 +241,592 @@ class DatasetIntegrationTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.message").value("Record added successfully"));
     }
+
+    @Test
+    void testSortByNestedPathAndMultipleKeys() throws Exception {
+        Object[][] people = {{"US", 20}, {"EU", 30}, {"EU", 10}, {"US", 40}};
+        for (int i = 0; i < people.length; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i + 1);
+            record.put("region", people[i][0]);
+            record.put("stats", Map.of("score", people[i][1]));
+
+            mockMvc.perform(post("/api/dataset/nested_people/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(record)))
+                    .andExpect(status().isCreated());
+        }
+
+        // Single nested key is sorted in the database
+        mockMvc.perform(get("/api/dataset/nested_people/query")
+                        .param("sortBy", "stats.score")
+                        .param("order", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords[*].id", contains(4, 2, 1, 3)));
+
+        // Multiple keys with their own order
+        mockMvc.perform(get("/api/dataset/nested_people/query")
+                        .param("sortBy", "region,stats.score:desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords[*].id", contains(2, 3, 4, 1)));
+
+        mockMvc.perform(get("/api/dataset/nested_people/query")
+                        .param("groupBy", "region,stats.score"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords['US|20']", hasSize(1)))
+                .andExpect(jsonPath("$.groupedRecords['EU|30'][0].id").value(2));
+    }
+
+    @Test
+    void testAggregatesPushedDownToDatabase() throws Exception {
+        Object[][] orders = {{"EU", 100}, {"US", 40}, {"EU", 25.5}, {"EU", "n/a"}};
+        for (int i = 0; i < orders.length; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i + 1);
+            record.put("region", orders[i][0]);
+            record.put("amount", orders[i][1]);
+
+            mockMvc.perform(post("/api/dataset/orders/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(record)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/dataset/orders/query")
+                        .param("groupBy", "region")
+                        .param("aggregate", "count,sum:amount,avg:amount,min:amount,max:amount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aggregates.EU.count").value(3))
+                .andExpect(jsonPath("$.aggregates.EU['sum:amount']").value(125.5))
+                .andExpect(jsonPath("$.aggregates.EU['avg:amount']").value(62.75))
+                .andExpect(jsonPath("$.aggregates.EU['min:amount']").value(25.5))
+                .andExpect(jsonPath("$.aggregates.EU['max:amount']").value(100))
+                .andExpect(jsonPath("$.aggregates.US.count").value(1))
+                .andExpect(jsonPath("$.aggregates.US['sum:amount']").value(40));
+    }
+
+    @Test
+    void testFiltersPushedDownToDatabase() throws Exception {
+        Object[][] tickets = {{"open", 3}, {"closed", 5}, {"open", 8}, {"pending", 1}, {"open", null}};
+        for (int i = 0; i < tickets.length; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i + 1);
+            record.put("status", tickets[i][0]);
+            if (tickets[i][1] != null) {
+                record.put("priority", tickets[i][1]);
+            }
+
+            mockMvc.perform(post("/api/dataset/tickets/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(record)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/dataset/tickets/query")
+                        .param("sortBy", "priority")
+                        .param("order", "desc")
+                        .param("filter", "status:in:open|pending", "priority:exists"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords[*].id", contains(3, 1, 4)));
+
+        mockMvc.perform(get("/api/dataset/tickets/query")
+                        .param("groupBy", "status")
+                        .param("filter", "priority:lt:5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.open", hasSize(1)))
+                .andExpect(jsonPath("$.groupedRecords.pending", hasSize(1)))
+                .andExpect(jsonPath("$.groupedRecords.closed").doesNotExist());
+
+        mockMvc.perform(get("/api/dataset/tickets/query")
+                        .param("sortBy", "priority")
+                        .param("filter", "priority:between:1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testFieldIndexUsedForGroupSortAndFilter() throws Exception {
+        Object[][] rows = {{"open", 3}, {"closed", 5}, {"open", 8}};
+        for (int i = 0; i < rows.length; i++) {
+            mockMvc.perform(post("/api/dataset/indexed_tickets/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(
+                                    Map.of("id", i + 1, "status", rows[i][0], "meta", Map.of("priority", rows[i][1])))))
+                    .andExpect(status().isCreated());
+        }
+
+        // Existing rows are indexed when the index is declared; declaring again is a no-op
+        mockMvc.perform(put("/api/dataset/indexed_tickets/index/status"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(true));
+        mockMvc.perform(put("/api/dataset/indexed_tickets/index/meta.priority"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/dataset/indexed_tickets/index/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(false));
+        mockMvc.perform(get("/api/dataset/indexed_tickets/index"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fields", contains("status", "meta.priority")));
+
+        // Rows inserted afterwards are indexed as they are written
+        mockMvc.perform(post("/api/dataset/indexed_tickets/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("id", 4, "status", "open", "meta", Map.of("priority", 1)))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/dataset/indexed_tickets/query")
+                        .param("sortBy", "meta.priority")
+                        .param("order", "desc")
+                        .param("filter", "status:eq:open"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords[*].id", contains(3, 1, 4)));
+
+        mockMvc.perform(get("/api/dataset/indexed_tickets/query")
+                        .param("groupBy", "status")
+                        .param("filter", "meta.priority:gte:3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.open[*].id", contains(1, 3)))
+                .andExpect(jsonPath("$.groupedRecords.closed[*].id", contains(2)));
+    }
+
+    @Test
+    void testFieldIndexColumnsDroppedWithLastDeclaringDataset() throws Exception {
+        for (String dataset : List.of("warranty_a", "warranty_b")) {
+            mockMvc.perform(post("/api/dataset/" + dataset + "/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"id\": 1, \"warranty\": 2}"))
+                    .andExpect(status().isCreated());
+            mockMvc.perform(put("/api/dataset/" + dataset + "/index/warranty"))
+                    .andExpect(status().isCreated());
+        }
+        assertThat(fieldIndexColumns("warranty")).hasSize(2);
+
+        // The generated columns are shared, so they stay until no dataset declares the index
+        mockMvc.perform(delete("/api/dataset/warranty_a")).andExpect(status().isOk());
+        assertThat(fieldIndexColumns("warranty")).hasSize(2);
+        mockMvc.perform(get("/api/dataset/warranty_b/query").param("groupBy", "warranty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords['2']", hasSize(1)));
+
+        mockMvc.perform(delete("/api/dataset/warranty_b")).andExpect(status().isOk());
+        assertThat(fieldIndexColumns("warranty")).isEmpty();
+    }
+
+    private List<String> fieldIndexColumns(String field) {
+        return jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+                + "WHERE table_name = 'DATASET_RECORDS' AND column_name LIKE ?", String.class,
+                "JF_" + field.toUpperCase() + "%");
+    }
+
+    @Test
+    void testSortByWithKeysetPagination() throws Exception {
+        Object[] scores = {40, 10, "n/a", null, 30, 10};
+        for (int i = 0; i < scores.length; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i + 1);
+            record.put("score", scores[i]);
+
+            mockMvc.perform(post("/api/dataset/scores/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(record)))
+                    .andExpect(status().isCreated());
+        }
+
+        // Numbers first, ties by insertion order, then text, then missing values
+        Integer[] expectedIds = {2, 6, 5, 1, 3, 4};
+        List<Object> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/dataset/scores/query")
+                    .param("sortBy", "score")
+                    .param("order", "asc")
+                    .param("limit", "4");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            Map<?, ?> page = objectMapper.readValue(body, Map.class);
+            for (Object record : (List<?>) page.get("sortedRecords")) {
+                ids.add(((Map<?, ?>) record).get("id"));
+            }
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly((Object[]) expectedIds);
+    }
+
+    @Test
+    void testGroupByStreamedAsNdjson() throws Exception {
+        String[] regions = {"EU", "US", "EU"};
+        for (int i = 0; i < regions.length; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i + 1);
+            record.put("region", regions[i]);
+
+            mockMvc.perform(post("/api/dataset/regions/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(record)))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/dataset/regions/query")
+                        .param("groupBy", "region")
+                        .param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Object> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            Map<?, ?> value = objectMapper.readValue(line, Map.class);
+            lines.add(value.containsKey("group") ? value.get("group") : value.get("id"));
+        }
+        assertThat(lines).containsExactly("EU", 1, 3, "US", 2);
+    }
+
+    @Test
+    void testGroupByViewMaintainedOnInsert() throws Exception {
+        Object[][] rows = {{"north", 10}, {"south", 5}};
+        for (int i = 0; i < rows.length; i++) {
+            mockMvc.perform(post("/api/dataset/view_sales/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(
+                                    Map.of("id", i + 1, "region", rows[i][0], "amount", rows[i][1]))))
+                    .andExpect(status().isCreated());
+        }
+
+        // Views are loaded from existing records; registering again is a no-op
+        mockMvc.perform(put("/api/dataset/view_sales/views").param("groupBy", "region"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.groups").value(2));
+        mockMvc.perform(put("/api/dataset/view_sales/views")
+                        .param("groupBy", "region")
+                        .param("aggregate", "count,sum:amount"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/dataset/view_sales/views").param("groupBy", "region"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(false));
+
+        // Single and bulk inserts are applied to the views as they commit
+        mockMvc.perform(post("/api/dataset/view_sales/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("id", 3, "region", "north", "amount", 7))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/dataset/view_sales/records")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\": 4, \"region\": \"east\", \"amount\": 1}\n"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/dataset/view_sales/views"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.views", hasSize(2)))
+                .andExpect(jsonPath("$.views[0].records").value(4));
+
+        mockMvc.perform(get("/api/dataset/view_sales/query").param("groupBy", "region"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.north[*].id", contains(1, 3)))
+                .andExpect(jsonPath("$.groupedRecords.east[*].id", contains(4)));
+        mockMvc.perform(get("/api/dataset/view_sales/query")
+                        .param("groupBy", "region")
+                        .param("aggregate", "count,sum:amount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aggregates.north.count").value(2))
+                .andExpect(jsonPath("$.aggregates.north['sum:amount']").value(17));
+    }
+
+    @Test
+    void testQueryAdmissionRejectsOverflowWithoutBlockingInserts() throws Exception {
+        mockMvc.perform(post("/api/dataset/busy_dataset/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("id", 1, "kind", "a"))))
+                .andExpect(status().isCreated());
+
+        // Occupy every query slot of the dataset
+        List<QueryAdmission.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < properties.getAdmission().getMaxConcurrent(); i++) {
+            permits.add(queryAdmission.acquire("busy_dataset"));
+        }
+        try {
+            mockMvc.perform(get("/api/dataset/busy_dataset/query").param("groupBy", "kind"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "1"));
+
+            // Other datasets, inserts and the health check are not affected
+            mockMvc.perform(get("/api/dataset/other_dataset/query").param("sortBy", "id"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/api/dataset/busy_dataset/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("id", 2, "kind", "b"))))
+                    .andExpect(status().isCreated());
+            mockMvc.perform(get("/api/dataset/health"))
+                    .andExpect(status().isOk());
+        } finally {
+            permits.forEach(QueryAdmission.Permit::close);
+        }
+
+        mockMvc.perform(get("/api/dataset/busy_dataset/query").param("groupBy", "kind"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.b", hasSize(1)));
+    }
+
+    @Test
+    void testResponseCacheRevalidatesUntilNextInsert() throws Exception {
+        for (int i = 1; i <= 300; i++) {
+            mockMvc.perform(post("/api/dataset/etag_dataset/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(
+                                    Map.of("id", i, "bucket", "b" + (i % 2), "note", "record number " + i))))
+                    .andExpect(status().isCreated());
+        }
+
+        // Large bodies are sent compressed to clients accepting gzip
+        MvcResult first = mockMvc.perform(get("/api/dataset/etag_dataset/query")
+                        .param("groupBy", "bucket")
+                        .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        try (GZIPInputStream body = new GZIPInputStream(
+                new ByteArrayInputStream(first.getResponse().getContentAsByteArray()))) {
+            JsonNode response = objectMapper.readTree(body);
+            assertThat(response.get("groupedRecords").get("b1").size()).isEqualTo(150);
+        }
+
+        mockMvc.perform(get("/api/dataset/etag_dataset/query")
+                        .param("groupBy", "bucket")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // An insert changes the ETag and the cached body
+        mockMvc.perform(post("/api/dataset/etag_dataset/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("id", 301, "bucket", "b2"))))
+                .andExpect(status().isCreated());
+
+        MvcResult changed = mockMvc.perform(get("/api/dataset/etag_dataset/query")
+                        .param("groupBy", "bucket")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.groupedRecords.b2", hasSize(1)))
+                .andReturn();
+        assertThat(changed.getResponse().getHeader("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    void testBinaryStorageAnswersQueriesLikeJson() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 120; i++) {
+            body.append("{\"id\": ").append(i)
+                    .append(", \"team\": \"t").append(i % 4)
+                    .append("\", \"score\": ").append(i % 7 == 0 ? "null" : String.valueOf((i * 37) % 50 + 0.5))
+                    .append(", \"meta\": {\"level\": ").append(i % 5).append("}}\n");
+        }
+        for (String dataset : List.of("json_storage", "binary_storage")) {
+            mockMvc.perform(post("/api/dataset/" + dataset + "/records")
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content(body.toString()))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(put("/api/dataset/binary_storage/storage").param("format", "binary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.format").value("binary"))
+                .andExpect(jsonPath("$.converted").value(true))
+                .andExpect(jsonPath("$.recordsConverted").value(120));
+        assertThat(repository.findByDatasetName("binary_storage"))
+                .allMatch(record -> record.getRecordBinary() != null);
+
+        // Inserts after the conversion are stored in the dataset's format
+        for (String dataset : List.of("json_storage", "binary_storage")) {
+            mockMvc.perform(post("/api/dataset/" + dataset + "/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"id\": 121, \"team\": \"t1\", \"score\": 99, \"meta\": {\"level\": 4}}"))
+                    .andExpect(status().isCreated());
+        }
+
+        List<Map<String, String>> queries = List.of(
+                Map.of("groupBy", "team"),
+                Map.of("groupBy", "meta.level", "aggregate", "count,sum:score,min:score,max:score"),
+                Map.of("sortBy", "score", "order", "desc", "limit", "10"),
+                Map.of("sortBy", "meta.level", "filter", "score:gte:20"),
+                Map.of("groupBy", "team", "filter", "meta.level:in:1|3"));
+        for (Map<String, String> query : queries) {
+            JsonNode expected = null;
+            for (String dataset : List.of("json_storage", "binary_storage")) {
+                var request = get("/api/dataset/" + dataset + "/query");
+                query.forEach(request::param);
+                JsonNode response = objectMapper.readTree(mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString());
+                // Cursors carry database IDs, which differ between the datasets
+                ((ObjectNode) response).remove("nextCursor");
+                if (expected == null) {
+                    expected = response;
+                } else {
+                    assertThat(response).as("query %s", query).isEqualTo(expected);
+                }
+            }
+        }
+
+        mockMvc.perform(put("/api/dataset/binary_storage/storage").param("format", "binary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.converted").value(false));
+        mockMvc.perform(put("/api/dataset/binary_storage/index/team"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/api/dataset/binary_storage/storage").param("format", "json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recordsConverted").value(121));
+        assertThat(repository.findByDatasetName("binary_storage"))
+                .allMatch(record -> record.getRecordBinary() == null && record.getRecordData() != null);
+    }
+
+    @Test
+    void testFieldsProjectRecords() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            mockMvc.perform(post("/api/dataset/projected/record")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("id", i, "team", "t" + i % 2,
+                                    "bio", "long text " + i, "address", Map.of("city", "c" + i, "zip", i)))))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult whole = mockMvc.perform(get("/api/dataset/projected/query").param("sortBy", "id"))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult projected = mockMvc.perform(get("/api/dataset/projected/query")
+                        .param("sortBy", "id")
+                        .param("order", "desc")
+                        .param("limit", "2")
+                        .param("fields", "id,address.city"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords[0].id").value(4))
+                .andExpect(jsonPath("$.sortedRecords[0].address.city").value("c4"))
+                .andExpect(jsonPath("$.sortedRecords[0].address.zip").doesNotExist())
+                .andExpect(jsonPath("$.sortedRecords[0].bio").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").exists())
+                .andReturn();
+        assertThat(projected.getResponse().getHeader("ETag")).isNotEqualTo(whole.getResponse().getHeader("ETag"));
+
+        mockMvc.perform(get("/api/dataset/projected/query")
+                        .param("groupBy", "team")
+                        .param("fields", "team"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.t1", hasSize(2)))
+                .andExpect(jsonPath("$.groupedRecords.t1[0].team").value("t1"))
+                .andExpect(jsonPath("$.groupedRecords.t1[0].id").doesNotExist());
+
+        MvcResult stream = mockMvc.perform(get("/api/dataset/projected/query")
+                        .param("sortBy", "id")
+                        .param("fields", "id")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(mockMvc.perform(asyncDispatch(stream)).andReturn().getResponse().getContentAsString())
+                .isEqualTo("{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n{\"id\":4}\n");
+    }
+
+    @Test
+    void testTruncateAndDropDataset() throws Exception {
+        for (String dataset : List.of("removed_sales", "kept_sales")) {
+            mockMvc.perform(post("/api/dataset/" + dataset + "/records")
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content("{\"id\": 1, \"region\": \"north\"}\n{\"id\": 2, \"region\": \"south\"}\n"))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(put("/api/dataset/removed_sales/views").param("groupBy", "region"))
+                .andExpect(status().isCreated());
+
+        // Truncating keeps the view, which starts over from the next insert
+        mockMvc.perform(delete("/api/dataset/removed_sales/records"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dropped").value(false))
+                .andExpect(jsonPath("$.partitioned").value(false));
+        mockMvc.perform(get("/api/dataset/removed_sales/query").param("groupBy", "region"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords").isEmpty());
+        mockMvc.perform(post("/api/dataset/removed_sales/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 3, \"region\": \"east\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/dataset/removed_sales/views"))
+                .andExpect(jsonPath("$.views", hasSize(1)))
+                .andExpect(jsonPath("$.views[0].records").value(1));
+        mockMvc.perform(get("/api/dataset/removed_sales/query").param("groupBy", "region"))
+                .andExpect(jsonPath("$.groupedRecords.east[*].id", contains(3)));
+
+        // Dropping removes the records and the view; other datasets are untouched
+        mockMvc.perform(delete("/api/dataset/removed_sales"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dropped").value(true));
+        mockMvc.perform(get("/api/dataset/removed_sales/views"))
+                .andExpect(jsonPath("$.views", hasSize(0)));
+        mockMvc.perform(delete("/api/dataset/removed_sales"))
+                .andExpect(status().isNotFound());
+        assertThat(repository.countByDatasetName("removed_sales")).isZero();
+        assertThat(repository.countByDatasetName("kept_sales")).isEqualTo(2);
+    }
+
+    @Test
+    void testTruncateDataset_WithoutRecords_KeepsView() throws Exception {
+        // A view declared ahead of the first insert makes the dataset known without any records
+        mockMvc.perform(put("/api/dataset/planned_sales/views").param("groupBy", "region"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/dataset/planned_sales/records"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dropped").value(false));
+
+        mockMvc.perform(post("/api/dataset/planned_sales/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 1, \"region\": \"west\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/dataset/planned_sales/views"))
+                .andExpect(jsonPath("$.views[0].records").value(1));
+    }
+
+    @Test
+    void testBulkInsertNdjson() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 1200; i++) {
+            body.append("{\"id\": ").append(i).append(", \"bucket\": \"b").append(i % 3).append("\"}\n");
+        }
+
+        mockMvc.perform(post("/api/dataset/bulk/records")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.recordsInserted").value(1200))
+                .andExpect(jsonPath("$.batches", hasSize(3)))
+                .andExpect(jsonPath("$.batches[2]").value(200));
+
+        assertThat(repository.countByDatasetName("bulk")).isEqualTo(1200);
+
+        mockMvc.perform(get("/api/dataset/bulk/query")
+                        .param("groupBy", "bucket"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.b1", hasSize(400)));
+    }
+
+    @Test
+    void testBulkInsertJsonArray() throws Exception {
+        mockMvc.perform(post("/api/dataset/bulk_array/records")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\": 1}, {\"id\": 2}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.recordsInserted").value(2));
+
+        mockMvc.perform(post("/api/dataset/bulk_array/records")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\": 3}, {}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Record 2 cannot be null or empty"));
+    }
 }
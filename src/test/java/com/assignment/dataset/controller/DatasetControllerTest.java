@@ -1,28 +1,49 @@
 package com.assignment.dataset.controller;
 
 import com.assignment.dataset.dto.DatasetDTO;
+import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.metrics.QueryMetrics;
 import com.assignment.dataset.service.DatasetService;
+import com.assignment.dataset.service.DatasetVersions;
+import com.assignment.dataset.service.QueryAdmission;
+import com.assignment.dataset.service.QueryCoalescer;
+import com.assignment.dataset.service.RecordStreamHandler;
+import com.assignment.dataset.service.WriteBehindQueue;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import com.assignment.dataset.service.cache.SerializedResponseCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
  * Integration tests for DatasetController
  */
-@WebMvcTest(DatasetController.class)
+@WebMvcTest(controllers = DatasetController.class, properties = "dataset.response-cache.enabled=false")
+@Import({QueryAdmission.class, QueryCoalescer.class, DatasetVersions.class, SerializedResponseCache.class,
+        QueryMetrics.class})
 class DatasetControllerTest {
 
     @Autowired
@@ -34,6 +55,12 @@ class DatasetControllerTest {
     @MockBean
     private DatasetService datasetService;
 
+    @MockBean
+    private ColumnarDatasetCache datasetCache;
+
+    @MockBean
+    private WriteBehindQueue writeBehind;
+
     private Map<String, Object> sampleRecord;
 
     @BeforeEach
@@ -67,6 +94,40 @@ class DatasetControllerTest {
                 .andExpect(jsonPath("$.recordId").value(1));
     }
 
+    @Test
+    void testInsertRecord_Queued_ReturnsAccepted() throws Exception {
+        // Given
+        when(datasetService.insertRecord(eq("employee_dataset"), any()))
+                .thenReturn(DatasetDTO.InsertRecordResponse.builder()
+                        .message("Record accepted")
+                        .dataset("employee_dataset")
+                        .recordId(1)
+                        .queued(true)
+                        .build());
+
+        // When & Then
+        mockMvc.perform(post("/api/dataset/employee_dataset/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleRecord)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.queued").value(true));
+    }
+
+    @Test
+    void testInsertRecord_QueueFull_ReturnsServiceUnavailable() throws Exception {
+        // Given
+        when(datasetService.insertRecord(eq("employee_dataset"), any()))
+                .thenThrow(new DatasetException.IngestUnavailableException("Ingest queue is full. Retry later"));
+
+        // When & Then
+        mockMvc.perform(post("/api/dataset/employee_dataset/record")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleRecord)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message").value("Ingest queue is full. Retry later"));
+    }
+
     @Test
     void testInsertRecord_InvalidJson() throws Exception {
         // When & Then
@@ -76,6 +137,46 @@ class DatasetControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testInsertRecords_Success() throws Exception {
+        // Given
+        DatasetDTO.BulkInsertResponse mockResponse = DatasetDTO.BulkInsertResponse.builder()
+                .message("Records added successfully")
+                .dataset("employee_dataset")
+                .recordsInserted(2L)
+                .batches(List.of(2))
+                .build();
+
+        when(datasetService.insertRecords(eq("employee_dataset"), any()))
+                .thenReturn(mockResponse);
+
+        // When & Then
+        mockMvc.perform(post("/api/dataset/employee_dataset/records")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\": 1}\n{\"id\": 2}\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.recordsInserted").value(2))
+                .andExpect(jsonPath("$.batches[0]").value(2));
+    }
+
+    @Test
+    void testInsertRecords_PartialInsert_ReportsCommittedBatches() throws Exception {
+        // Given
+        when(datasetService.insertRecords(eq("employee_dataset"), any()))
+                .thenThrow(new DatasetException.PartialInsertException("Record 3 is not a JSON object", 2,
+                        List.of(2)));
+
+        // When & Then
+        mockMvc.perform(post("/api/dataset/employee_dataset/records")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\": 1}\n{\"id\": 2}\n42\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(
+                        "Record 3 is not a JSON object. 2 records before it were committed in 1 batches"))
+                .andExpect(jsonPath("$.recordsCommitted").value(2))
+                .andExpect(jsonPath("$.batches[0]").value(2));
+    }
+
     @Test
     void testQueryWithGroupBy_Success() throws Exception {
         // Given
@@ -106,7 +207,7 @@ class DatasetControllerTest {
                 .groupedRecords(groupedData)
                 .build();
 
-        when(datasetService.queryWithGroupBy(eq("employee_dataset"), eq("department")))
+        when(datasetService.queryWithGroupBy(eq("employee_dataset"), eq("department"), isNull(), isNull()))
                 .thenReturn(mockResponse);
 
         // When & Then
@@ -145,7 +246,8 @@ class DatasetControllerTest {
                 .sortedRecords(sortedRecords)
                 .build();
 
-        when(datasetService.queryWithSortBy(eq("employee_dataset"), eq("age"), eq("asc")))
+        when(datasetService.queryWithSortBy(
+                eq("employee_dataset"), eq("age"), eq("asc"), isNull(), isNull(), isNull(), isNull()))
                 .thenReturn(mockResponse);
 
         // When & Then
@@ -169,7 +271,8 @@ class DatasetControllerTest {
                 .sortedRecords(sortedRecords)
                 .build();
 
-        when(datasetService.queryWithSortBy(eq("employee_dataset"), eq("age"), eq("desc")))
+        when(datasetService.queryWithSortBy(
+                eq("employee_dataset"), eq("age"), eq("desc"), isNull(), isNull(), isNull(), isNull()))
                 .thenReturn(mockResponse);
 
         // When & Then
@@ -190,7 +293,8 @@ class DatasetControllerTest {
                 .sortedRecords(sortedRecords)
                 .build();
 
-        when(datasetService.queryWithSortBy(eq("employee_dataset"), eq("id"), eq("asc")))
+        when(datasetService.queryWithSortBy(
+                eq("employee_dataset"), eq("id"), eq("asc"), isNull(), isNull(), isNull(), isNull()))
                 .thenReturn(mockResponse);
 
         // When & Then
@@ -199,6 +303,198 @@ class DatasetControllerTest {
                 .andExpect(jsonPath("$.sortedRecords").isArray());
     }
 
+    @Test
+    void testQueryWithSortBy_Paginated() throws Exception {
+        // Given
+        DatasetDTO.SortedRecordsResponse mockResponse = DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(List.of(sampleRecord))
+                .nextCursor("next-page")
+                .build();
+
+        when(datasetService.queryWithSortBy(
+                eq("employee_dataset"), eq("age"), eq("asc"), eq(1), eq("page-1"), isNull(), isNull()))
+                .thenReturn(mockResponse);
+
+        // When & Then
+        mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("sortBy", "age")
+                        .param("order", "asc")
+                        .param("limit", "1")
+                        .param("cursor", "page-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value("next-page"));
+    }
+
+    @Test
+    void testQueryWithSortBy_Filtered() throws Exception {
+        // Given
+        DatasetDTO.SortedRecordsResponse mockResponse = DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(List.of(sampleRecord))
+                .build();
+
+        when(datasetService.queryWithSortBy(eq("employee_dataset"), eq("age"), isNull(), isNull(), isNull(),
+                eq(List.of("department:eq:Engineering", "age:gte:30")), isNull()))
+                .thenReturn(mockResponse);
+
+        // When & Then
+        mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("sortBy", "age")
+                        .param("filter", "department:eq:Engineering")
+                        .param("filter", "age:gte:30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords", hasSize(1)));
+    }
+
+    @Test
+    void testQueryWithSortBy_FilterValueWithComma() throws Exception {
+        // Given
+        DatasetDTO.SortedRecordsResponse mockResponse = DatasetDTO.SortedRecordsResponse.builder()
+                .sortedRecords(List.of(sampleRecord))
+                .build();
+
+        when(datasetService.queryWithSortBy(eq("employee_dataset"), eq("age"), isNull(), isNull(), isNull(),
+                eq(List.of("name:eq:Doe, John")), isNull()))
+                .thenReturn(mockResponse);
+
+        // When & Then: a single filter is never split at its commas
+        mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("sortBy", "age")
+                        .param("filter", "name:eq:Doe, John"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortedRecords", hasSize(1)));
+    }
+
+    @Test
+    void testCreateFieldIndex() throws Exception {
+        // Given
+        when(datasetService.createFieldIndex("employee_dataset", "address.city"))
+                .thenReturn(DatasetDTO.FieldIndexResponse.builder()
+                        .message("Field index created")
+                        .dataset("employee_dataset")
+                        .field("address.city")
+                        .created(true)
+                        .build());
+
+        // When & Then
+        mockMvc.perform(put("/api/dataset/employee_dataset/index/address.city"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.field").value("address.city"))
+                .andExpect(jsonPath("$.created").value(true));
+    }
+
+    @Test
+    void testCreateGroupByView_AlreadyExists() throws Exception {
+        // Given
+        when(datasetService.createGroupByView("employee_dataset", "department", "count"))
+                .thenReturn(DatasetDTO.GroupByViewResponse.builder()
+                        .message("Group-by view already exists")
+                        .dataset("employee_dataset")
+                        .groupBy("department")
+                        .aggregate("count")
+                        .created(false)
+                        .ready(true)
+                        .groups(2)
+                        .records(3)
+                        .build());
+
+        // When & Then
+        mockMvc.perform(put("/api/dataset/employee_dataset/views")
+                        .param("groupBy", "department")
+                        .param("aggregate", "count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groups").value(2))
+                .andExpect(jsonPath("$.created").value(false));
+    }
+
+    @Test
+    void testQueryWithAggregates() throws Exception {
+        // Given
+        Map<String, Map<String, Object>> aggregates = new LinkedHashMap<>();
+        aggregates.put("Engineering", new LinkedHashMap<>(Map.of("count", 2L, "avg:age", 27.5)));
+
+        when(datasetService.queryWithAggregates("employee_dataset", "department", "count,avg:age", null))
+                .thenReturn(DatasetDTO.AggregatedRecordsResponse.builder().aggregates(aggregates).build());
+
+        // When & Then
+        mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("groupBy", "department")
+                        .param("aggregate", "count,avg:age"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aggregates.Engineering.count").value(2))
+                .andExpect(jsonPath("$.aggregates.Engineering['avg:age']").value(27.5))
+                .andExpect(jsonPath("$.groupedRecords").doesNotExist());
+    }
+
+    @Test
+    void testQueryWithGroupBy_WithoutResponseCache_NoETag() throws Exception {
+        // Given
+        when(datasetService.queryWithGroupBy("employee_dataset", "department", null, null))
+                .thenReturn(DatasetDTO.GroupedRecordsResponse.builder()
+                        .groupedRecords(Map.of("Engineering", List.of(sampleRecord)))
+                        .build());
+
+        // When & Then: with nothing cached there is no response to confirm, so every request runs the query
+        mockMvc.perform(get("/api/dataset/employee_dataset/query").param("groupBy", "department"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+        mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("groupBy", "department")
+                        .header("If-None-Match", "*"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupedRecords.Engineering", hasSize(1)));
+
+        verify(datasetService, times(2)).queryWithGroupBy("employee_dataset", "department", null, null);
+    }
+
+    @Test
+    void testQueryWithGroupBy_StreamsNdjson() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            RecordStreamHandler handler = invocation.getArgument(4);
+            handler.onGroup("Engineering");
+            handler.onRecord(sampleRecord);
+            return null;
+        }).when(datasetService).streamWithGroupBy(
+                eq("employee_dataset"), eq("department"), isNull(), isNull(), any());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/dataset/employee_dataset/query")
+                        .param("groupBy", "department")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], Map.class)).containsEntry("group", "Engineering");
+        assertThat(objectMapper.readValue(lines[1], Map.class)).containsEntry("name", "John Doe");
+    }
+
+    @Test
+    void testCacheStats() throws Exception {
+        // Given
+        when(datasetCache.stats()).thenReturn(DatasetDTO.CacheStatsResponse.builder()
+                .enabled(true)
+                .datasets(1)
+                .hits(3)
+                .misses(1)
+                .hitRatio(0.75)
+                .build());
+
+        // When & Then
+        mockMvc.perform(get("/api/dataset/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true))
+                .andExpect(jsonPath("$.hits").value(3))
+                .andExpect(jsonPath("$.hitRatio").value(0.75));
+    }
+
     @Test
     void testHealthCheck() throws Exception {
         // When & Then
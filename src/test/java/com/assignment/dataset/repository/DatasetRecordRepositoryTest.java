@@ -1,17 +1,42 @@
 package com.assignment.dataset.repository;
 
+import com.assignment.dataset.codec.JsonRecordParser;
+import com.assignment.dataset.codec.RecordCodec;
+import com.assignment.dataset.config.DatasetProperties;
+import com.assignment.dataset.metrics.QueryMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.store.SegmentLogDatasetStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * Integration tests for DatasetRecordRepository
@@ -23,6 +48,21 @@ class DatasetRecordRepositoryTest {
     @Autowired
     private DatasetRecordRepository repository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectProvider<ObjectMapper> objectMapper;
+
+    @Autowired
+    private ObjectProvider<QueryMetrics> metrics;
+
     private Map<String, Object> sampleRecord;
 
     @BeforeEach
@@ -130,4 +170,408 @@ class DatasetRecordRepositoryTest {
         // Then
         assertThat(records).isEmpty();
     }
+
+    @Test
+    void testJsonPushdown_H2_OffUnlessEnabled() {
+        // When
+        DatasetRecordRepositoryImpl byDefault =
+                new DatasetRecordRepositoryImpl(dataSource, objectMapper, metrics, new DatasetProperties());
+
+        // Then
+        assertThat(byDefault.supportsJsonPushdown()).isFalse();
+        assertThat(repository.supportsJsonPushdown()).isTrue();
+    }
+
+    @Test
+    void testScanGroupedByField() {
+        // Given
+        String[] departments = {"Engineering", "Marketing", null, "Engineering"};
+        for (int i = 0; i < departments.length; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", i + 1);
+            if (departments[i] != null) {
+                data.put("department", departments[i]);
+            }
+            repository.save(DatasetRecord.builder()
+                    .datasetName("group_test")
+                    .recordData(data)
+                    .build());
+        }
+        repository.flush();
+
+        // When
+        Map<String, List<Object>> grouped = new LinkedHashMap<>();
+        repository.scanGroupedByFields("group_test", List.of("department"), List.of(), (groupKey, id, data) ->
+                grouped.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(data.get("id")));
+
+        // Then
+        assertThat(repository.supportsJsonPushdown()).isTrue();
+        assertThat(grouped).containsExactly(
+                Map.entry("Engineering", List.of(1, 4)),
+                Map.entry("Marketing", List.of(2)),
+                Map.entry("null", List.of(3)));
+    }
+
+    @Test
+    void testScanGroupedByField_NormalizesNumberAndObjectKeys() {
+        // Given: the same numbers written differently, and an object value
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String[] documents = {"{\"id\":1,\"v\":1.50}", "{\"id\":2,\"v\":1e3}", "{\"id\":3,\"v\":{\"a\":1}}",
+                "{\"id\":4,\"v\":1000}", "{\"id\":5,\"v\":1.5}"};
+        for (int i = 0; i < documents.length; i++) {
+            jdbcTemplate.update("INSERT INTO dataset_records (id, dataset_name, record_data, created_at) "
+                    + "VALUES (?, ?, ? FORMAT JSON, CURRENT_TIMESTAMP)", 900_001 + i, "key_test", documents[i]);
+        }
+
+        // When
+        Map<String, List<Object>> grouped = new LinkedHashMap<>();
+        repository.scanGroupedByFields("key_test", List.of("v"), List.of(), (groupKey, id, data) ->
+                grouped.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(data.get("id")));
+
+        // Then: plain decimals without trailing zeros, objects as compact JSON
+        assertThat(grouped).containsExactly(
+                Map.entry("1.5", List.of(1, 5)),
+                Map.entry("1000", List.of(2, 4)),
+                Map.entry("{\"a\":1}", List.of(3)));
+    }
+
+    @Test
+    void testScanGroupedByFields_NestedPaths() {
+        // Given
+        String[][] locations = {{"EU", "Berlin"}, {"US", "Boston"}, {"EU", "Berlin"}, {"EU", null}};
+        for (int i = 0; i < locations.length; i++) {
+            Map<String, Object> address = new HashMap<>();
+            address.put("city", locations[i][1]);
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", i + 1);
+            data.put("region", locations[i][0]);
+            data.put("address", address);
+            repository.save(DatasetRecord.builder()
+                    .datasetName("nested_test")
+                    .recordData(data)
+                    .build());
+        }
+        repository.flush();
+
+        // When
+        Map<String, List<Object>> grouped = new LinkedHashMap<>();
+        repository.scanGroupedByFields("nested_test", List.of("region", "address.city"), List.of(),
+                (groupKey, id, data) ->
+                grouped.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(data.get("id")));
+
+        // Then
+        assertThat(grouped).containsExactly(
+                Map.entry("EU|Berlin", List.of(1, 3)),
+                Map.entry("US|Boston", List.of(2)),
+                Map.entry("EU|null", List.of(4)));
+    }
+
+    @Test
+    void testScanSortedByField_WithFilters() {
+        // Given
+        Object[][] rows = {
+                {"active", 12}, {"inactive", 40}, {"active", "30"}, {"active", 7.5}, {null, 20}, {"active", 20}};
+        for (int i = 0; i < rows.length; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", i + 1);
+            data.put("status", rows[i][0]);
+            data.put("score", rows[i][1]);
+            repository.save(DatasetRecord.builder()
+                    .datasetName("filter_test")
+                    .recordData(data)
+                    .build());
+        }
+        repository.flush();
+
+        List<DatasetRecordRepositoryCustom.FieldPredicate> filters = List.of(
+                new DatasetRecordRepositoryCustom.FieldPredicate("status",
+                        DatasetRecordRepositoryCustom.FilterOperator.IN, List.of("active", "pending")),
+                new DatasetRecordRepositoryCustom.FieldPredicate("score",
+                        DatasetRecordRepositoryCustom.FilterOperator.GTE, List.of("10")));
+
+        // When
+        List<Object> ids = new ArrayList<>();
+        repository.scanSortedByField("filter_test", "score", false, null, null, filters,
+                (position, data) -> ids.add(data.get("id")));
+
+        // Then: the text "30" is not in a numeric range and the record without status is excluded
+        assertThat(ids).containsExactly(6, 1);
+    }
+
+    @Test
+    void testSaveBinaryRecord_RoundTripsValuesAndFields() {
+        // Given
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("city", "Berlin");
+        address.put("zip", null);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", 7);
+        data.put("balance", 12345678901L);
+        data.put("rate", 0.25);
+        data.put("price", new BigDecimal("19.990"));
+        data.put("active", true);
+        data.put("tags", List.of("a", 2, List.of()));
+        data.put("address", address);
+        data.put("address.city", "flat key");
+
+        DatasetRecord saved = repository.save(DatasetRecord.builder()
+                .datasetName("binary_test")
+                .recordBinary(RecordCodec.encode(data))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        DatasetRecord loaded = repository.findById(saved.getId()).orElseThrow();
+
+        // Then: values keep their types and order, and single fields are read without decoding
+        assertThat(loaded.getRecordBinary()).isNotNull();
+        assertThat(loaded.getRecordData()).containsExactlyEntriesOf(data);
+        assertThat(RecordCodec.fieldReader("rate", null).read(loaded.getRecordBinary())).isEqualTo(0.25);
+        assertThat(RecordCodec.fieldReader("address.zip", new String[]{"address", "zip"})
+                .read(loaded.getRecordBinary())).isNull();
+        assertThat(RecordCodec.fieldReader("address.city", new String[]{"address", "city"})
+                .read(loaded.getRecordBinary())).isEqualTo("flat key");
+        assertThat(RecordCodec.fieldReader("missing", null).read(loaded.getRecordBinary())).isNull();
+    }
+
+    @Test
+    void testFindUnparsedByDatasetName_KeepsJsonText() {
+        // Given
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("city", "Berlin");
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", 1);
+        data.put("score", 2.5);
+        data.put("address", address);
+        repository.save(DatasetRecord.builder()
+                .datasetName("unparsed_test")
+                .recordData(data)
+                .build());
+        repository.save(DatasetRecord.builder()
+                .datasetName("unparsed_test")
+                .recordBinary(RecordCodec.encode(Map.of("id", 2)))
+                .build());
+        repository.flush();
+
+        // When
+        List<DatasetRecord> records = repository.findUnparsedByDatasetName("unparsed_test");
+
+        // Then: JSON records carry their text, binary records their encoding
+        assertThat(records).hasSize(2);
+        DatasetRecord json = records.stream().filter(record -> record.getRecordJson() != null).findFirst()
+                .orElseThrow();
+        assertThat(json.getRecordBinary()).isNull();
+        assertThat(json.getRecordData()).containsExactlyEntriesOf(data);
+        assertThat(JsonRecordParser.fieldReader("score", null).read(json.getRecordJson())).isEqualTo(2.5);
+        assertThat(JsonRecordParser.fieldReader("address.city", new String[]{"address", "city"})
+                .read(json.getRecordJson())).isEqualTo("Berlin");
+        assertThat(records).filteredOn(record -> record.getRecordBinary() != null)
+                .extracting(DatasetRecord::getRecordData)
+                .containsExactly(Map.of("id", 2));
+    }
+
+    @Test
+    void testTruncateAndDropDataset_RemoveOnlyThatDataset() {
+        // Given: H2 keeps all datasets in one table
+        assertThat(repository.isPartitioned()).isFalse();
+        for (String dataset : List.of("removed", "removed", "kept")) {
+            repository.preparePartition(dataset);
+            repository.save(DatasetRecord.builder().datasetName(dataset).recordData(sampleRecord).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        repository.truncateDataset("removed");
+
+        // Then
+        assertThat(repository.countByDatasetName("removed")).isZero();
+        assertThat(repository.countByDatasetName("kept")).isEqualTo(1);
+
+        repository.dropDataset("kept");
+        assertThat(repository.count()).isZero();
+    }
+
+    @Test
+    void testEmbeddedStore_RecoversRecordsAndIdsAfterRestart(@TempDir Path directory) {
+        // Given
+        Map<String, Object> binaryData = new LinkedHashMap<>();
+        binaryData.put("id", 2);
+        binaryData.put("active", true);
+        SegmentLogDatasetStore store = embeddedStore(directory, 64 * 1024, 4);
+        store.append("employee_dataset", List.of(
+                DatasetRecord.builder().datasetName("employee_dataset").recordData(sampleRecord).build(),
+                DatasetRecord.builder().datasetName("employee_dataset")
+                        .recordBinary(RecordCodec.encode(binaryData)).build()));
+        store.append("other_dataset", List.of(
+                DatasetRecord.builder().datasetName("other_dataset").recordData(Map.of("id", 3)).build()));
+        store.close();
+
+        // When
+        SegmentLogDatasetStore reopened = embeddedStore(directory, 64 * 1024, 4);
+
+        // Then: records come back in ID order, and new records continue after the recovered IDs
+        assertThat(reopened.datasetNames()).containsExactlyInAnyOrder("employee_dataset", "other_dataset");
+        List<DatasetRecord> records = scan(reopened, "employee_dataset");
+        assertThat(records).extracting(DatasetRecord::getId).containsExactly(1L, 2L);
+        assertThat(records.get(0).getRecordJson()).isNotNull();
+        assertThat(records.get(0).getRecordData()).isEqualTo(sampleRecord);
+        assertThat(records.get(0).getCreatedAt()).isNotNull();
+        assertThat(records.get(1).getRecordData()).containsExactlyEntriesOf(binaryData);
+
+        DatasetRecord added = DatasetRecord.builder().datasetName("other_dataset").recordData(Map.of("id", 4)).build();
+        reopened.append("other_dataset", List.of(added));
+        assertThat(added.getId()).isEqualTo(4L);
+        assertThat(reopened.count("other_dataset")).isEqualTo(2);
+        reopened.close();
+    }
+
+    @Test
+    void testEmbeddedStore_CompactsFullSegmentsIntoSnapshot(@TempDir Path directory) throws IOException {
+        // Given: segments of about ten records, merged two at a time
+        SegmentLogDatasetStore store = embeddedStore(directory, 1024, 2);
+        for (int i = 1; i <= 60; i++) {
+            store.append("compacted", List.of(DatasetRecord.builder()
+                    .datasetName("compacted")
+                    .recordData(Map.of("id", i, "name", "Employee " + i))
+                    .build()));
+        }
+
+        // When
+        store.close();
+        List<String> files;
+        try (Stream<Path> datasets = Files.list(directory); Stream<Path> listed = Files.list(
+                datasets.findFirst().orElseThrow())) {
+            files = listed.map(file -> file.getFileName().toString()).toList();
+        }
+        SegmentLogDatasetStore reopened = embeddedStore(directory, 1024, 2);
+
+        // Then: older records moved to a snapshot, and every record survives the merge
+        assertThat(files).anyMatch(name -> name.startsWith("snapshot-"));
+        assertThat(files).noneMatch(name -> name.endsWith(".tmp"));
+        assertThat(reopened.count("compacted")).isEqualTo(60);
+        List<DatasetRecord> records = scan(reopened, "compacted");
+        assertThat(records).extracting(DatasetRecord::getId)
+                .containsExactlyElementsOf(Stream.iterate(1L, id -> id + 1).limit(60).toList());
+        assertThat(records.get(59).getRecordData()).containsEntry("name", "Employee 60");
+        reopened.close();
+    }
+
+    @Test
+    void testEmbeddedStore_DiscardsTornRecordOnRecovery(@TempDir Path directory) throws IOException {
+        // Given: the last record's bytes are damaged, as by a write cut short
+        SegmentLogDatasetStore store = embeddedStore(directory, 64 * 1024, 4);
+        for (String name : List.of("Alice", "Bob", "Carol")) {
+            store.append("torn", List.of(DatasetRecord.builder()
+                    .datasetName("torn")
+                    .recordData(Map.of("name", name))
+                    .build()));
+        }
+        store.close();
+        Path segment;
+        try (Stream<Path> files = Files.walk(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("segment-")).findFirst()
+                    .orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int torn = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("Carol");
+        bytes[torn] = 'K';
+        Files.write(segment, bytes);
+
+        // When
+        SegmentLogDatasetStore reopened = embeddedStore(directory, 64 * 1024, 4);
+
+        // Then: the log ends before the damaged record, and appends continue from there
+        assertThat(scan(reopened, "torn")).extracting(record -> record.getRecordData().get("name"))
+                .containsExactly("Alice", "Bob");
+        reopened.append("torn", List.of(DatasetRecord.builder()
+                .datasetName("torn")
+                .recordData(Map.of("name", "Dave"))
+                .build()));
+        reopened.close();
+        SegmentLogDatasetStore recovered = embeddedStore(directory, 64 * 1024, 4);
+        assertThat(scan(recovered, "torn")).extracting(record -> record.getRecordData().get("name"))
+                .containsExactly("Alice", "Bob", "Dave");
+        recovered.close();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testDatasetStoreRepository_SavesFindsAndTruncates(@TempDir Path directory) {
+        // Given
+        SegmentLogDatasetStore store = embeddedStore(directory, 64 * 1024, 4);
+        DatasetStoreRepository storeRepository = new DatasetStoreRepository(store);
+        Map<String, Object> secondData = new HashMap<>(sampleRecord);
+        secondData.put("id", 2);
+
+        // When: without a transaction records are appended as they are saved
+        List<DatasetRecord> saved = storeRepository.saveAll(List.of(
+                DatasetRecord.builder().datasetName("employee_dataset").recordData(sampleRecord).build(),
+                DatasetRecord.builder().datasetName("other_dataset").recordData(sampleRecord).build(),
+                DatasetRecord.builder().datasetName("employee_dataset").recordData(secondData).build()));
+
+        // Then: records are parsed as the JPA repository returns them, and queries run in memory
+        assertThat(saved).extracting(DatasetRecord::getId).doesNotContainNull();
+        assertThat(storeRepository.jsonPushdown()).isEmpty();
+        assertThat(storeRepository.countByDatasetName("employee_dataset")).isEqualTo(2);
+        assertThat(storeRepository.findByDatasetName("employee_dataset"))
+                .extracting(DatasetRecord::getRecordData)
+                .containsExactly(sampleRecord, secondData);
+        assertThat(storeRepository.findByDatasetNameAndIdGreaterThanOrderByIdAsc("employee_dataset",
+                saved.get(0).getId(), PageRequest.of(0, 1)))
+                .extracting(DatasetRecord::getId)
+                .containsExactly(saved.get(2).getId());
+
+        storeRepository.truncateDataset("employee_dataset");
+        assertThat(storeRepository.existsByDatasetName("employee_dataset")).isFalse();
+        assertThat(storeRepository.countByDatasetName("other_dataset")).isEqualTo(1);
+        store.close();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testDatasetStoreRepository_AppendsOnlyCommittedRecords(@TempDir Path directory) {
+        // Given
+        SegmentLogDatasetStore store = embeddedStore(directory, 64 * 1024, 4);
+        DatasetStoreRepository storeRepository = new DatasetStoreRepository(store);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // When: one transaction rolls back and the next commits
+        transaction.executeWithoutResult(status -> {
+            storeRepository.save(DatasetRecord.builder().datasetName("tx_dataset").recordData(Map.of("id", 1))
+                    .build());
+            status.setRollbackOnly();
+        });
+        DatasetRecord committed = transaction.execute(status -> {
+            DatasetRecord record = storeRepository.save(DatasetRecord.builder()
+                    .datasetName("tx_dataset")
+                    .recordData(Map.of("id", 2))
+                    .build());
+            // Numbered at once, but not visible until the commit
+            assertThat(record.getId()).isNotNull();
+            assertThat(storeRepository.countByDatasetName("tx_dataset")).isZero();
+            return record;
+        });
+
+        // Then
+        assertThat(storeRepository.findByDatasetName("tx_dataset"))
+                .extracting(DatasetRecord::getId, DatasetRecord::getRecordData)
+                .containsExactly(tuple(committed.getId(), Map.of("id", 2)));
+        store.close();
+    }
+
+    private static SegmentLogDatasetStore embeddedStore(Path directory, int segmentBytes, int snapshotSegments) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getStorage().getEmbedded().setDirectory(directory);
+        properties.getStorage().getEmbedded().setSegmentBytes(segmentBytes);
+        properties.getStorage().getEmbedded().setSnapshotSegments(snapshotSegments);
+        return new SegmentLogDatasetStore(properties);
+    }
+
+    private static List<DatasetRecord> scan(SegmentLogDatasetStore store, String datasetName) {
+        try (Stream<DatasetRecord> records = store.scan(datasetName)) {
+            return records.toList();
+        }
+    }
 }
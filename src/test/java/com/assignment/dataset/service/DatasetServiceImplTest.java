@@ -1,21 +1,47 @@
 package com.assignment.dataset.service;
 
+import com.assignment.dataset.codec.RecordCodec;
+import com.assignment.dataset.config.DatasetProperties;
 import com.assignment.dataset.dto.DatasetDTO;
+import com.assignment.dataset.entity.DatasetGroupView;
 import com.assignment.dataset.entity.DatasetRecord;
+import com.assignment.dataset.entity.RecordFormat;
 import com.assignment.dataset.exception.DatasetException;
+import com.assignment.dataset.metrics.QueryMetrics;
+import com.assignment.dataset.repository.DatasetFieldIndexRepository;
+import com.assignment.dataset.repository.DatasetGroupViewRepository;
 import com.assignment.dataset.repository.DatasetRecordRepository;
+import com.assignment.dataset.repository.DatasetRecordRepositoryCustom;
+import com.assignment.dataset.service.cache.ColumnarDatasetCache;
+import com.assignment.dataset.service.cache.SerializedResponse;
+import com.assignment.dataset.service.cache.SerializedResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -27,6 +53,38 @@ class DatasetServiceImplTest {
     @Mock
     private DatasetRecordRepository repository;
 
+    @Mock
+    private RecordBatchWriter batchWriter;
+
+    @Spy
+    private DatasetProperties properties = new DatasetProperties();
+
+    @Mock
+    private ColumnarDatasetCache cache;
+
+    @Mock
+    private DatasetFieldIndexRepository fieldIndexRepository;
+
+    @Mock
+    private GroupByViews views;
+
+    @Mock
+    private DatasetGroupViewRepository viewRepository;
+
+    @Mock
+    private DatasetVersions versions;
+
+    @Mock
+    private RecordStorage storage;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private QueryMetrics metrics = new QueryMetrics(meterRegistry, new DatasetProperties());
+
+    @Mock
+    private WriteBehindQueue writeBehind;
+
     @InjectMocks
     private DatasetServiceImpl service;
 
@@ -65,6 +123,8 @@ class DatasetServiceImplTest {
         sampleRecords.add(createDatasetRecord(1L, "employee_dataset", record1));
         sampleRecords.add(createDatasetRecord(2L, "employee_dataset", record2));
         sampleRecords.add(createDatasetRecord(3L, "employee_dataset", record3));
+
+        lenient().when(storage.lockFormat(anyString())).thenReturn(RecordFormat.JSON);
     }
 
     private DatasetRecord createDatasetRecord(Long id, String datasetName, Map<String, Object> data) {
@@ -111,6 +171,243 @@ class DatasetServiceImplTest {
         assertThat(response.getRecordId()).isEqualTo(10L);
     }
 
+    @Test
+    void testInsertRecord_WriteBehind_QueuesRecord() {
+        // Given
+        when(writeBehind.isEnabled()).thenReturn(true);
+
+        // When
+        DatasetDTO.InsertRecordResponse response = service.insertRecord("employee_dataset", sampleRecord);
+
+        // Then: acknowledged without a transaction of its own
+        assertThat(response.getMessage()).isEqualTo("Record accepted");
+        assertThat(response.getRecordId()).isEqualTo(1);
+        assertThat(response.getQueued()).isTrue();
+        verify(writeBehind).enqueue("employee_dataset", sampleRecord);
+        verify(repository, never()).save(any(DatasetRecord.class));
+    }
+
+    @Test
+    void testWriteBehindQueue_GroupCommitsPerDataset() {
+        // Given
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setFlushInterval(Duration.ofMillis(500));
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+        queue.start();
+        try {
+            // When
+            queue.enqueue("employee_dataset", Map.of("id", 1));
+            queue.enqueue("other_dataset", Map.of("id", 2));
+            queue.enqueue("employee_dataset", Map.of("id", 3));
+            queue.awaitFlushed("employee_dataset");
+            queue.awaitFlushed("other_dataset");
+
+            // Then: one commit per dataset, in queue order
+            verify(batchWriter).writeBatch("employee_dataset", List.of(Map.of("id", 1), Map.of("id", 3)));
+            verify(batchWriter).writeBatch("other_dataset", List.of(Map.of("id", 2)));
+            verify(versions).onRecordsInserted("employee_dataset");
+            verify(cache).invalidate("other_dataset");
+            assertThat(queue.size()).isZero();
+            assertThat(queue.trackedDatasets()).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_FailingCommits_SetAsideAfterMaxAttempts(@TempDir Path directory) throws Exception {
+        // Given: one dataset's commits always fail
+        Path failedRecords = directory.resolve("ingest.failed");
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setMaxAttempts(2);
+        properties.getWriteBehind().setFailedRecords(failedRecords);
+        when(batchWriter.writeBatch(eq("broken_dataset"), anyList()))
+                .thenThrow(new IllegalStateException("value too long"));
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+        queue.start();
+        try {
+            // When
+            queue.enqueue("broken_dataset", Map.of("id", 1));
+            queue.enqueue("employee_dataset", Map.of("id", 2));
+            queue.awaitFlushed("employee_dataset");
+            queue.awaitFlushed("broken_dataset");
+
+            // Then: the failing records are moved aside and the other dataset's records commit
+            verify(batchWriter, times(2)).writeBatch("broken_dataset", List.of(Map.of("id", 1)));
+            verify(batchWriter).writeBatch("employee_dataset", List.of(Map.of("id", 2)));
+            verify(versions, never()).onRecordsInserted("broken_dataset");
+            assertThat(Files.readAllLines(failedRecords)).containsExactly(
+                    "{\"dataset\":\"broken_dataset\",\"record\":{\"id\":1},\"error\":\"value too long\"}");
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_InvalidDatasetName_RejectsInsert() {
+        // Given
+        properties.getWriteBehind().setEnabled(true);
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+        queue.start();
+        try {
+            // When & Then: names the dataset_name column cannot hold never reach the writer
+            assertThatThrownBy(() -> queue.enqueue("d".repeat(DatasetRecord.MAX_DATASET_NAME_LENGTH + 1),
+                    Map.of("id", 1)))
+                    .isInstanceOf(DatasetException.InvalidRecordException.class)
+                    .hasMessageContaining("Invalid dataset name");
+            assertThat(queue.size()).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_Full_RejectsInserts() throws Exception {
+        // Given: a one-record queue and a writer stuck committing the first record
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setQueueCapacity(1);
+        properties.getWriteBehind().setFlushInterval(Duration.ZERO);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchWriter.writeBatch(eq("employee_dataset"), anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return 1;
+        });
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+        queue.start();
+        try {
+            queue.enqueue("employee_dataset", Map.of("id", 1));
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            queue.enqueue("employee_dataset", Map.of("id", 2));
+
+            // When & Then
+            assertThatThrownBy(() -> queue.enqueue("employee_dataset", Map.of("id", 3)))
+                    .isInstanceOf(DatasetException.IngestUnavailableException.class)
+                    .hasMessageContaining("Ingest queue is full");
+
+            release.countDown();
+            queue.awaitFlushed("employee_dataset");
+            verify(batchWriter, times(2)).writeBatch(eq("employee_dataset"), anyList());
+        } finally {
+            release.countDown();
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_ReplaysJournalAfterFlushedRecords(@TempDir Path directory) throws Exception {
+        // Given: record 1 was committed, 2 and 3 were not, and the last line was cut short
+        Path journal = directory.resolve("ingest.journal");
+        Files.writeString(journal, """
+                {"seq":1,"dataset":"employee_dataset","record":{"id":1}}
+                {"seq":2,"dataset":"employee_dataset","record":{"id":2}}
+                {"flushed":1}
+                {"seq":3,"dataset":"employee_dataset","record":{"id":3}}
+                {"seq":4,"dataset":"empl""");
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setJournal(journal);
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+
+        // When
+        queue.start();
+        try {
+            // Then
+            verify(batchWriter).writeBatch("employee_dataset", List.of(Map.of("id", 2), Map.of("id", 3)));
+            assertThat(Files.size(journal)).isZero();
+
+            // Records stay in the journal until they are committed
+            queue.enqueue("employee_dataset", Map.of("id", 5));
+            queue.awaitFlushed("employee_dataset");
+            assertThat(Files.size(journal)).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_GroupCommit_JournalsEachDatasetTransaction(@TempDir Path directory) throws Exception {
+        // Given: the journal as seen while the second dataset of a group commit is being written
+        Path journal = directory.resolve("ingest.journal");
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setFlushInterval(Duration.ofMillis(500));
+        properties.getWriteBehind().setJournal(journal);
+        AtomicReference<String> journalDuringSecondCommit = new AtomicReference<>();
+        when(batchWriter.writeBatch(eq("other_dataset"), anyList())).thenAnswer(invocation -> {
+            journalDuringSecondCommit.set(Files.readString(journal));
+            return 1;
+        });
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+        queue.start();
+        try {
+            // When
+            queue.enqueue("employee_dataset", Map.of("id", 1));
+            queue.enqueue("other_dataset", Map.of("id", 2));
+            queue.awaitFlushed("other_dataset");
+
+            // Then: the first dataset's transaction is watermarked before the next one starts
+            assertThat(journalDuringSecondCommit.get()).contains("{\"flushed\":1,\"dataset\":\"employee_dataset\"}");
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_ReplaysJournalAfterDatasetWatermarks(@TempDir Path directory) throws Exception {
+        // Given: the first dataset of a group commit was committed, the second was not
+        Path journal = directory.resolve("ingest.journal");
+        Files.writeString(journal, """
+                {"seq":1,"dataset":"employee_dataset","record":{"id":1}}
+                {"seq":2,"dataset":"other_dataset","record":{"id":2}}
+                {"seq":3,"dataset":"employee_dataset","record":{"id":3}}
+                {"flushed":3,"dataset":"employee_dataset"}
+                """);
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setJournal(journal);
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+
+        // When
+        queue.start();
+        try {
+            // Then: only the uncommitted dataset is replayed
+            verify(batchWriter).writeBatch("other_dataset", List.of(Map.of("id", 2)));
+            verify(batchWriter, never()).writeBatch(eq("employee_dataset"), anyList());
+            assertThat(Files.size(journal)).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testWriteBehindQueue_ReplayFailingCommits_SetAside(@TempDir Path directory) throws Exception {
+        // Given: a journaled record the database keeps rejecting
+        Path journal = directory.resolve("ingest.journal");
+        Path failedRecords = directory.resolve("ingest.failed");
+        Files.writeString(journal, """
+                {"seq":1,"dataset":"broken_dataset","record":{"id":1}}
+                {"seq":2,"dataset":"employee_dataset","record":{"id":2}}
+                """);
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setJournal(journal);
+        properties.getWriteBehind().setMaxAttempts(2);
+        properties.getWriteBehind().setFailedRecords(failedRecords);
+        when(batchWriter.writeBatch(eq("broken_dataset"), anyList()))
+                .thenThrow(new IllegalStateException("value too long"));
+        WriteBehindQueue queue = new WriteBehindQueue(properties, batchWriter, cache, versions, new ObjectMapper());
+
+        // When
+        queue.start();
+        try {
+            // Then: the start succeeds with the record set aside and the journal emptied
+            verify(batchWriter, times(2)).writeBatch("broken_dataset", List.of(Map.of("id", 1)));
+            verify(batchWriter).writeBatch("employee_dataset", List.of(Map.of("id", 2)));
+            assertThat(Files.readAllLines(failedRecords)).hasSize(1);
+            assertThat(Files.size(journal)).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
     @Test
     void testInsertRecord_NullData_ThrowsException() {
         // When & Then
@@ -134,7 +431,7 @@ class DatasetServiceImplTest {
     @Test
     void testQueryWithGroupBy_Success() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("employee_dataset", "department");
@@ -146,13 +443,77 @@ class DatasetServiceImplTest {
         assertThat(response.getGroupedRecords().get("Engineering")).hasSize(2);
         assertThat(response.getGroupedRecords().get("Marketing")).hasSize(1);
 
-        verify(repository, times(1)).findByDatasetName("employee_dataset");
+        verify(repository, times(1)).findUnparsedByDatasetName("employee_dataset");
+    }
+
+    @Test
+    void testStreamWithGroupBy_WithoutPushdown_EmitsEachGroupOnce() {
+        // Given: the groups' records are interleaved in the dataset
+        when(repository.findUnparsedByDatasetName("employee_dataset"))
+                .thenReturn(List.of(sampleRecords.get(0), sampleRecords.get(2), sampleRecords.get(1)));
+        List<String> lines = new ArrayList<>();
+
+        // When
+        service.streamWithGroupBy("employee_dataset", "department", null, "id", new RecordStreamHandler() {
+            @Override
+            public void onGroup(String groupKey) {
+                lines.add("group " + groupKey);
+            }
+
+            @Override
+            public void onRecord(Map<String, Object> recordData) {
+                lines.add("record " + recordData.get("id"));
+            }
+        });
+
+        // Then: groups in first-appearance order, records in dataset order within each group
+        assertThat(lines).containsExactly("group Engineering", "record 1", "record 2", "group Marketing", "record 3");
+    }
+
+    @Test
+    void testQueryWithGroupBy_NumberAndObjectKeys_MatchDatabaseFormat() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        Object[] values = {1.5, 1000.0, Map.of("a", 1), 1000, 2.50};
+        for (int i = 0; i < values.length; i++) {
+            records.add(createDatasetRecord(i + 1L, "key_dataset", Map.of("id", i + 1, "v", values[i])));
+        }
+        when(repository.findUnparsedByDatasetName("key_dataset")).thenReturn(records);
+
+        // When
+        DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("key_dataset", "v");
+
+        // Then: the same keys as the database's group key expression
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("1.5", "1000", "{\"a\":1}", "2.5");
+        assertThat(response.getGroupedRecords().get("1000")).hasSize(2);
+    }
+
+    @Test
+    void testQueryWithGroupBy_RecordsStageMetrics() {
+        // Given
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        service.queryWithGroupBy("employee_dataset", "department", List.of("age:gte:0"));
+
+        // Then: each in-memory stage is timed and the counts are tagged by dataset and operation
+        for (String stage : List.of("fetch", "filter", "group")) {
+            assertThat(meterRegistry.get("dataset.query.stage")
+                    .tags("dataset", "employee_dataset", "operation", "group", "stage", stage)
+                    .timer().count()).isEqualTo(1);
+        }
+        assertThat(meterRegistry.get("dataset.query.records.scanned").tag("operation", "group").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("dataset.query.records.returned").tag("operation", "group").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("dataset.query.groups").tag("dataset", "employee_dataset").summary().totalAmount())
+                .isEqualTo(2);
     }
 
     @Test
     void testQueryWithGroupBy_EmptyDataset() {
         // Given
-        when(repository.findByDatasetName("empty_dataset")).thenReturn(new ArrayList<>());
+        when(repository.findUnparsedByDatasetName("empty_dataset")).thenReturn(new ArrayList<>());
 
         // When
         DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("empty_dataset", "department");
@@ -165,7 +526,7 @@ class DatasetServiceImplTest {
     @Test
     void testQueryWithGroupBy_MissingField() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("employee_dataset", "nonexistent_field");
@@ -174,12 +535,16 @@ class DatasetServiceImplTest {
         assertThat(response).isNotNull();
         assertThat(response.getGroupedRecords()).containsKey("null");
         assertThat(response.getGroupedRecords().get("null")).hasSize(3);
+
+        // The records without the field are counted once per query
+        assertThat(meterRegistry.get("dataset.query.records.missing.key").tag("dataset", "employee_dataset")
+                .counter().count()).isEqualTo(3);
     }
 
     @Test
     void testQueryWithSortBy_Ascending() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("employee_dataset", "age", "asc");
@@ -191,13 +556,13 @@ class DatasetServiceImplTest {
         assertThat(response.getSortedRecords().get(1).get("age")).isEqualTo(28);
         assertThat(response.getSortedRecords().get(2).get("age")).isEqualTo(30);
 
-        verify(repository, times(1)).findByDatasetName("employee_dataset");
+        verify(repository, times(1)).findUnparsedByDatasetName("employee_dataset");
     }
 
     @Test
     void testQueryWithSortBy_Descending() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("employee_dataset", "age", "desc");
@@ -213,7 +578,7 @@ class DatasetServiceImplTest {
     @Test
     void testQueryWithSortBy_DefaultAscending() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("employee_dataset", "age", null);
@@ -230,13 +595,13 @@ class DatasetServiceImplTest {
                 .isInstanceOf(DatasetException.InvalidQueryException.class)
                 .hasMessageContaining("Invalid order parameter");
 
-        verify(repository, never()).findByDatasetName(anyString());
+        verify(repository, never()).findUnparsedByDatasetName(anyString());
     }
 
     @Test
     void testQueryWithSortBy_EmptyDataset() {
         // Given
-        when(repository.findByDatasetName("empty_dataset")).thenReturn(new ArrayList<>());
+        when(repository.findUnparsedByDatasetName("empty_dataset")).thenReturn(new ArrayList<>());
 
         // When
         DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("empty_dataset", "age", "asc");
@@ -249,7 +614,7 @@ class DatasetServiceImplTest {
     @Test
     void testQueryWithSortBy_StringField() {
         // Given
-        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
 
         // When
         DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("employee_dataset", "name", "asc");
@@ -261,4 +626,781 @@ class DatasetServiceImplTest {
         assertThat(response.getSortedRecords().get(1).get("name")).isEqualTo("Jane Smith");
         assertThat(response.getSortedRecords().get(2).get("name")).isEqualTo("John Doe");
     }
+
+    @Test
+    void testQueryWithSortBy_MixedNumbersAndMissingValues() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        records.add(createDatasetRecord(1L, "scores", new HashMap<>(Map.of("id", 1, "score", 2.5))));
+        records.add(createDatasetRecord(2L, "scores", new HashMap<>(Map.of("id", 2))));
+        records.add(createDatasetRecord(3L, "scores", new HashMap<>(Map.of("id", 3, "score", 2))));
+        records.add(createDatasetRecord(4L, "scores", new HashMap<>(Map.of("id", 4, "score", 10L))));
+        records.add(createDatasetRecord(5L, "scores", new HashMap<>(Map.of("id", 5, "score", 2))));
+        records.add(createDatasetRecord(6L, "scores", new HashMap<>(Map.of("id", 6))));
+        when(repository.findUnparsedByDatasetName("scores")).thenReturn(records);
+
+        // When
+        DatasetDTO.SortedRecordsResponse ascending = service.queryWithSortBy("scores", "score", "asc");
+        DatasetDTO.SortedRecordsResponse descending = service.queryWithSortBy("scores", "score", "desc");
+
+        // Then: numbers compare numerically across types, missing values go last (first for desc),
+        // and ties keep their original order
+        assertThat(ascending.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(3, 5, 1, 4, 2, 6);
+        assertThat(descending.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(2, 6, 4, 1, 3, 5);
+    }
+
+    @Test
+    void testQueryWithSortBy_MixedTypesFallBackToStringComparison() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        records.add(createDatasetRecord(1L, "mixed", new HashMap<>(Map.of("id", 1, "value", "b"))));
+        records.add(createDatasetRecord(2L, "mixed", new HashMap<>(Map.of("id", 2, "value", 3))));
+        records.add(createDatasetRecord(3L, "mixed", new HashMap<>(Map.of("id", 3, "value", "a"))));
+        records.add(createDatasetRecord(4L, "mixed", new HashMap<>(Map.of("id", 4, "value", 1))));
+        when(repository.findUnparsedByDatasetName("mixed")).thenReturn(records);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("mixed", "value", "asc");
+
+        // Then
+        assertThat(response.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(4, 2, 3, 1);
+    }
+
+    @Test
+    void testQueryWithGroupByAndSortBy_ParallelMatchesSequential() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        Random random = new Random(7);
+        for (long id = 1; id <= 20_000; id++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", id);
+            if (random.nextInt(10) > 0) {
+                data.put("department", "dept-" + random.nextInt(50));
+            }
+            if (random.nextInt(10) > 0) {
+                data.put("score", random.nextInt(1000));
+            }
+            records.add(createDatasetRecord(id, "large_dataset", data));
+        }
+        when(repository.findUnparsedByDatasetName("large_dataset")).thenReturn(records);
+
+        properties.getQuery().setParallelEnabled(false);
+        Map<String, List<Map<String, Object>>> sequentialGroups =
+                service.queryWithGroupBy("large_dataset", "department").getGroupedRecords();
+        List<Map<String, Object>> sequentialSort =
+                service.queryWithSortBy("large_dataset", "score", "desc").getSortedRecords();
+
+        // When
+        properties.getQuery().setParallelEnabled(true);
+        properties.getQuery().setParallelThreshold(1_000);
+        Map<String, List<Map<String, Object>>> parallelGroups =
+                service.queryWithGroupBy("large_dataset", "department").getGroupedRecords();
+        List<Map<String, Object>> parallelSort =
+                service.queryWithSortBy("large_dataset", "score", "desc").getSortedRecords();
+
+        // Then
+        assertThat(parallelGroups.keySet()).containsExactlyElementsOf(sequentialGroups.keySet());
+        assertThat(parallelGroups).isEqualTo(sequentialGroups);
+        assertThat(parallelSort).containsExactlyElementsOf(sequentialSort);
+    }
+
+    @Test
+    void testQueryWithGroupBy_MultipleFieldsAndNestedPath() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        records.add(createDatasetRecord(1L, "people", new HashMap<>(Map.of("id", 1, "status", "active",
+                "address", Map.of("city", "Berlin")))));
+        records.add(createDatasetRecord(2L, "people", new HashMap<>(Map.of("id", 2, "status", "inactive",
+                "address", Map.of("city", "Berlin")))));
+        records.add(createDatasetRecord(3L, "people", new HashMap<>(Map.of("id", 3, "status", "active",
+                "address", Map.of("city", "Berlin")))));
+        records.add(createDatasetRecord(4L, "people", new HashMap<>(Map.of("id", 4, "status", "active"))));
+        when(repository.findUnparsedByDatasetName("people")).thenReturn(records);
+
+        // When
+        DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("people", "address.city, status");
+
+        // Then
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("Berlin|active", "Berlin|inactive", "null|active");
+        assertThat(response.getGroupedRecords().get("Berlin|active")).extracting(r -> r.get("id"))
+                .containsExactly(1, 3);
+    }
+
+    @Test
+    void testQueryWithSortBy_MultipleKeysWithOwnOrder() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        records.add(createDatasetRecord(1L, "people", new HashMap<>(Map.of("id", 1, "region", "EU",
+                "stats", Map.of("score", 10)))));
+        records.add(createDatasetRecord(2L, "people", new HashMap<>(Map.of("id", 2, "region", "US",
+                "stats", Map.of("score", 50)))));
+        records.add(createDatasetRecord(3L, "people", new HashMap<>(Map.of("id", 3, "region", "EU",
+                "stats", Map.of("score", 30)))));
+        records.add(createDatasetRecord(4L, "people", new HashMap<>(Map.of("id", 4, "region", "EU"))));
+        when(repository.findUnparsedByDatasetName("people")).thenReturn(records);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response =
+                service.queryWithSortBy("people", "region,stats.score:desc", "asc");
+
+        // Then: region ascending, then score descending with the missing score first
+        assertThat(response.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(4, 3, 1, 2);
+    }
+
+    @Test
+    void testQueryWithGroupBy_EmptyFieldName_ThrowsException() {
+        // When & Then
+        assertThatThrownBy(() -> service.queryWithGroupBy("people", "region,,status"))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Field names must not be empty");
+    }
+
+    @Test
+    void testQueryWithAggregates_InMemory() {
+        // Given
+        sampleRecords.get(1).getRecordData().put("age", 25.5);
+        sampleRecords.get(2).getRecordData().remove("age");
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        DatasetDTO.AggregatedRecordsResponse response = service.queryWithAggregates(
+                "employee_dataset", "department", "count,sum:age,avg:age,min:age,max:age");
+
+        // Then
+        assertThat(response.getAggregates()).containsOnlyKeys("Engineering", "Marketing");
+        assertThat(response.getAggregates().get("Engineering"))
+                .containsEntry("count", 2L)
+                .containsEntry("sum:age", 55.5)
+                .containsEntry("avg:age", 27.75)
+                .containsEntry("min:age", 25.5)
+                .containsEntry("max:age", 30L);
+        assertThat(response.getAggregates().get("Marketing"))
+                .containsEntry("count", 1L)
+                .containsEntry("sum:age", null)
+                .containsEntry("avg:age", null);
+    }
+
+    @Test
+    void testQueryWithAggregates_InvalidAggregate_ThrowsException() {
+        // When & Then
+        assertThatThrownBy(() -> service.queryWithAggregates("employee_dataset", "department", "median:age"))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Invalid aggregate parameter");
+        assertThatThrownBy(() -> service.queryWithAggregates("employee_dataset", null, "count"))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("requires groupBy");
+    }
+
+    @Test
+    void testQueryWithGroupBy_PushdownToDatabase() {
+        // Given
+        when(repository.jsonPushdown()).thenReturn(Optional.of(repository));
+        doAnswer(invocation -> {
+            DatasetRecordRepositoryCustom.GroupedRowHandler handler = invocation.getArgument(3);
+            handler.handle("Engineering", 1L, sampleRecords.get(0).getRecordData());
+            handler.handle("Engineering", 2L, sampleRecords.get(1).getRecordData());
+            handler.handle("Marketing", 3L, sampleRecords.get(2).getRecordData());
+            return null;
+        }).when(repository)
+                .scanGroupedByFields(eq("employee_dataset"), eq(List.of("department")), eq(List.of()), any());
+
+        // When
+        DatasetDTO.GroupedRecordsResponse response = service.queryWithGroupBy("employee_dataset", "department");
+
+        // Then
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("Engineering", "Marketing");
+        assertThat(response.getGroupedRecords().get("Engineering")).hasSize(2);
+        assertThat(response.getGroupedRecords().get("Marketing")).hasSize(1);
+
+        verify(repository, never()).findUnparsedByDatasetName(anyString());
+    }
+
+    @Test
+    void testQueryWithSortBy_BinaryStorageFiltersInMemory() {
+        // Given
+        List<DatasetRecord> binaryRecords = sampleRecords.stream()
+                .map(record -> DatasetRecord.builder()
+                        .id(record.getId())
+                        .datasetName(record.getDatasetName())
+                        .recordBinary(RecordCodec.encode(record.getRecordData()))
+                        .build())
+                .toList();
+        when(repository.jsonPushdown()).thenReturn(Optional.of(repository));
+        when(storage.lockFormat("employee_dataset")).thenReturn(RecordFormat.BINARY);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(binaryRecords);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("employee_dataset", "age", "desc",
+                null, null, List.of("department:eq:Engineering"));
+
+        // Then: the encoded fields are filtered and sorted without pushing the query down
+        assertThat(response.getSortedRecords()).extracting(record -> record.get("name"))
+                .containsExactly("John Doe", "Jane Smith");
+        verify(repository, never()).scanSortedByField(anyString(), anyString(), anyBoolean(), any(), any(), any(),
+                any());
+    }
+
+    @Test
+    void testQueryWithSortBy_UnparsedRecordsReadOnlyKeyFields() {
+        // Given: records as the database returns them to unparsed scans
+        List<DatasetRecord> unparsedRecords = List.of(
+                DatasetRecord.builder().id(1L).datasetName("people")
+                        .recordJson("{\"name\": \"Ann\", \"meta\": {\"age\": 41, \"tags\": [1, {\"age\": 0}]}}")
+                        .build(),
+                DatasetRecord.builder().id(2L).datasetName("people")
+                        .recordJson("{\"meta\": {\"age\": 35}, \"name\": \"Ben\", \"meta.age\": 19}")
+                        .build(),
+                DatasetRecord.builder().id(3L).datasetName("people")
+                        .recordJson("{\"name\": \"Cid\", \"meta\": {\"age\": 12345678901}}")
+                        .build(),
+                DatasetRecord.builder().id(4L).datasetName("people")
+                        .recordJson("{\"name\": \"Dee\", \"meta\": null}")
+                        .build());
+        when(repository.findUnparsedByDatasetName("people")).thenReturn(unparsedRecords);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("people", "meta.age", "desc", 2, null,
+                List.of("meta.age:exists"));
+
+        // Then: the top-level "meta.age" key wins over the nested path, and returned records are parsed whole
+        assertThat(response.getSortedRecords()).extracting(record -> record.get("name"))
+                .containsExactly("Cid", "Ann");
+        assertThat(response.getSortedRecords().get(0)).containsEntry("meta", Map.of("age", 12345678901L));
+        assertThat(response.getSortedRecords().get(1).get("meta")).isEqualTo(
+                Map.of("age", 41, "tags", List.of(1, Map.of("age", 0))));
+    }
+
+    @Test
+    void testQueryWithSortBy_ProjectsFields() {
+        // Given: one record of each representation
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("city", "Oslo");
+        address.put("zip", "0150");
+        Map<String, Object> binaryData = new LinkedHashMap<>();
+        binaryData.put("id", 3);
+        binaryData.put("name", "Cid");
+        binaryData.put("address", address);
+        List<DatasetRecord> records = List.of(
+                createDatasetRecord(1L, "people", Map.of("id", 1, "name", "Ann", "age", 30)),
+                DatasetRecord.builder().id(2L).datasetName("people")
+                        .recordJson("{\"id\": 2, \"tags\": [1], \"address\": {\"zip\": \"1\", \"city\": null}}")
+                        .build(),
+                DatasetRecord.builder().id(3L).datasetName("people")
+                        .recordBinary(RecordCodec.encode(binaryData))
+                        .build());
+        when(repository.findUnparsedByDatasetName("people")).thenReturn(records);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response = service.queryWithSortBy("people", "id", "asc", null, null,
+                null, "id, address.city");
+
+        // Then: missing fields are left out, JSON nulls kept
+        assertThat(response.getSortedRecords()).containsExactly(
+                Map.of("id", 1),
+                Map.of("id", 2, "address", Collections.singletonMap("city", null)),
+                Map.of("id", 3, "address", Map.of("city", "Oslo")));
+        assertThatThrownBy(() -> service.queryWithSortBy("people", "id", "asc", null, null, null, "id,,name"))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Invalid fields parameter");
+    }
+
+    @Test
+    void testQueryWithSortBy_PagedInMemory() {
+        // Given
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        DatasetDTO.SortedRecordsResponse firstPage =
+                service.queryWithSortBy("employee_dataset", "age", "asc", 2, null);
+        DatasetDTO.SortedRecordsResponse secondPage =
+                service.queryWithSortBy("employee_dataset", "age", "asc", 2, firstPage.getNextCursor());
+
+        // Then
+        assertThat(firstPage.getSortedRecords()).extracting(r -> r.get("age")).containsExactly(25, 28);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+        assertThat(secondPage.getSortedRecords()).extracting(r -> r.get("age")).containsExactly(30);
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testQueryWithSortBy_TopKPagesMatchFullSort() {
+        // Given
+        List<DatasetRecord> records = new ArrayList<>();
+        Random random = new Random(11);
+        for (long id = 1; id <= 200; id++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", id);
+            int kind = random.nextInt(4);
+            if (kind == 1) {
+                data.put("score", random.nextInt(20));
+            } else if (kind == 2) {
+                data.put("score", random.nextInt(20) + 0.5);
+            } else if (kind == 3) {
+                data.put("score", "s" + random.nextInt(10));
+            }
+            records.add(createDatasetRecord(id, "scores", data));
+        }
+        when(repository.findUnparsedByDatasetName("scores")).thenReturn(records);
+        List<Map<String, Object>> fullSort = service.queryWithSortBy("scores", "score", "desc").getSortedRecords();
+
+        // When
+        List<Map<String, Object>> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            DatasetDTO.SortedRecordsResponse page = service.queryWithSortBy("scores", "score", "desc", 7, cursor);
+            assertThat(page.getSortedRecords()).hasSizeLessThanOrEqualTo(7);
+            paged.addAll(page.getSortedRecords());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Then: heap-selected pages concatenate to the full sort, ties included
+        assertThat(paged).containsExactlyElementsOf(fullSort);
+    }
+
+    @Test
+    void testQueryWithFilters_AppliedBeforeGroupAndSort() {
+        // Given
+        Map<String, Object> record4 = new HashMap<>();
+        record4.put("id", 4);
+        record4.put("name", "Bob Green");
+        record4.put("age", "31");
+        record4.put("department", "Sales");
+        List<DatasetRecord> records = new ArrayList<>(sampleRecords);
+        records.add(createDatasetRecord(4L, "employee_dataset", record4));
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(records);
+
+        // When
+        DatasetDTO.GroupedRecordsResponse grouped = service.queryWithGroupBy("employee_dataset", "department",
+                List.of("age:gte:28"));
+        DatasetDTO.SortedRecordsResponse sorted = service.queryWithSortBy("employee_dataset", "age", "desc",
+                null, null, List.of("department:in:Engineering|Sales", "age:eq:31"));
+        DatasetDTO.SortedRecordsResponse missing = service.queryWithSortBy("employee_dataset", "name", "asc",
+                null, null, List.of("manager:exists:false", "name:lt:C"));
+
+        // Then: ranges only compare numbers with numbers, equality also matches numeric text
+        assertThat(grouped.getGroupedRecords()).containsOnlyKeys("Engineering", "Marketing");
+        assertThat(grouped.getGroupedRecords().get("Engineering")).extracting(r -> r.get("id")).containsExactly(1);
+        assertThat(sorted.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(4);
+        assertThat(missing.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(3, 4);
+    }
+
+    @Test
+    void testQueryWithFilters_InvalidFilter_ThrowsException() {
+        // When & Then
+        assertThatThrownBy(() -> service.queryWithGroupBy("employee_dataset", "department", List.of("age:near:30")))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Invalid filter parameter 'age:near:30'");
+        assertThatThrownBy(() -> service.queryWithGroupBy("employee_dataset", "department", List.of("age:gt")))
+                .isInstanceOf(DatasetException.InvalidQueryException.class);
+
+        verify(repository, never()).findUnparsedByDatasetName(anyString());
+    }
+
+    @Test
+    void testQueryWithGroupBy_IndexedFilterBypassesCache() {
+        // Given
+        when(cache.isEnabled()).thenReturn(true);
+        when(repository.jsonPushdown()).thenReturn(Optional.of(repository));
+        when(repository.indexedFields("employee_dataset")).thenReturn(Set.of("department"));
+
+        // When
+        service.queryWithGroupBy("employee_dataset", "age", List.of("department:eq:Engineering"));
+
+        // Then
+        verify(repository).scanGroupedByFields(eq("employee_dataset"), eq(List.of("age")),
+                eq(List.of(new DatasetRecordRepositoryCustom.FieldPredicate("department",
+                        DatasetRecordRepositoryCustom.FilterOperator.EQ, List.of("Engineering")))), any());
+        verify(cache, never()).get(anyString());
+    }
+
+    @Test
+    void testCreateFieldIndex_RecordsDeclaration() {
+        // Given
+        when(repository.jsonPushdown()).thenReturn(Optional.of(repository));
+        when(fieldIndexRepository.existsByDatasetNameAndFieldName("employee_dataset", "department"))
+                .thenReturn(false, true);
+
+        // When
+        DatasetDTO.FieldIndexResponse first = service.createFieldIndex("employee_dataset", "department");
+        DatasetDTO.FieldIndexResponse second = service.createFieldIndex("employee_dataset", "department");
+
+        // Then
+        assertThat(first.isCreated()).isTrue();
+        assertThat(second.isCreated()).isFalse();
+        verify(repository, times(2)).createFieldIndex("employee_dataset", "department");
+        verify(fieldIndexRepository, times(1)).save(any());
+    }
+
+    @Test
+    void testCreateFieldIndex_WithoutPushdown_ThrowsException() {
+        // Given: records evaluated only in memory, as with the embedded record store
+        when(repository.jsonPushdown()).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> service.createFieldIndex("employee_dataset", "department"))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Field indexes require");
+
+        verify(repository, never()).createFieldIndex(anyString(), anyString());
+    }
+
+    @Test
+    void testQueryWithSortBy_InvalidLimit_ThrowsException() {
+        // When & Then
+        assertThatThrownBy(() -> service.queryWithSortBy("employee_dataset", "age", "asc", 0, null))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Invalid limit parameter");
+    }
+
+    @Test
+    void testQueryWithSortBy_CursorRecordDeleted_ContinuesAfterItsPosition() {
+        // Given: the record the cursor points at is deleted before the next page
+        List<DatasetRecord> records = new ArrayList<>(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(records);
+        String cursor = service.queryWithSortBy("employee_dataset", "age", "asc", 1, null).getNextCursor();
+        records.remove(1);
+
+        // When
+        DatasetDTO.SortedRecordsResponse response =
+                service.queryWithSortBy("employee_dataset", "age", "asc", null, cursor);
+
+        // Then
+        assertThat(response.getSortedRecords()).extracting(data -> data.get("id")).containsExactly(3, 1);
+    }
+
+    @Test
+    void testQueryWithSortBy_TopKMultipleKeys_CursorRecordDeleted_ContinuesAfterItsPosition() {
+        // Given: a page over two sort keys, then its last record is deleted
+        List<DatasetRecord> records = new ArrayList<>(sampleRecords);
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(records);
+        DatasetDTO.SortedRecordsResponse first =
+                service.queryWithSortBy("employee_dataset", "department,age:desc", "asc", 1, null);
+        records.remove(0);
+
+        // When
+        DatasetDTO.SortedRecordsResponse second =
+                service.queryWithSortBy("employee_dataset", "department,age:desc", "asc", 1, first.getNextCursor());
+
+        // Then
+        assertThat(first.getSortedRecords()).extracting(data -> data.get("id")).containsExactly(1);
+        assertThat(second.getSortedRecords()).extracting(data -> data.get("id")).containsExactly(2);
+        assertThat(second.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void testQueryWithSortBy_CursorForDifferentField_ThrowsException() {
+        // Given
+        when(repository.findUnparsedByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        String cursor = service.queryWithSortBy("employee_dataset", "age", "asc", 1, null).getNextCursor();
+
+        // When & Then
+        assertThatThrownBy(() -> service.queryWithSortBy("employee_dataset", "name", "asc", 1, cursor))
+                .isInstanceOf(DatasetException.InvalidQueryException.class)
+                .hasMessageContaining("Cursor does not match");
+    }
+
+    @Test
+    void testInsertRecords_WritesInBatches() {
+        // Given
+        properties.getIngest().setBatchSize(2);
+        when(batchWriter.writeBatch(eq("bulk_dataset"), anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(1)).size());
+        String body = "{\"id\": 1}\n{\"id\": 2}\n{\"id\": 3}\n";
+
+        // When
+        DatasetDTO.BulkInsertResponse response = service.insertRecords("bulk_dataset",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertThat(response.getRecordsInserted()).isEqualTo(3);
+        assertThat(response.getBatches()).containsExactly(2, 1);
+        assertThat(response.getRecordsPerSecond()).isPositive();
+        verify(batchWriter, times(2)).writeBatch(eq("bulk_dataset"), anyList());
+    }
+
+    @Test
+    void testInsertRecords_InvalidRecordAfterCommittedBatch_ReportsCommitted() {
+        // Given
+        properties.getIngest().setBatchSize(2);
+        when(batchWriter.writeBatch(eq("bulk_dataset"), anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(1)).size());
+        String body = "[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}, 42]";
+
+        // When & Then
+        assertThatThrownBy(() -> service.insertRecords("bulk_dataset",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOfSatisfying(DatasetException.PartialInsertException.class, e -> {
+                    assertThat(e.getMessage()).contains("Record 4 is not a JSON object");
+                    assertThat(e.getRecordsCommitted()).isEqualTo(2);
+                    assertThat(e.getBatches()).containsExactly(2);
+                });
+        verify(batchWriter, times(1)).writeBatch(eq("bulk_dataset"), anyList());
+    }
+
+    @Test
+    void testInsertRecords_JsonArray() {
+        // Given
+        when(batchWriter.writeBatch(eq("bulk_dataset"), anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(1)).size());
+        String body = "[{\"id\": 1}, {\"id\": 2}]";
+
+        // When
+        DatasetDTO.BulkInsertResponse response = service.insertRecords("bulk_dataset",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertThat(response.getRecordsInserted()).isEqualTo(2);
+        assertThat(response.getBatches()).containsExactly(2);
+    }
+
+    @Test
+    void testInsertRecords_NonObjectRecord_ThrowsException() {
+        // Given
+        String body = "[{\"id\": 1}, 42]";
+
+        // When & Then
+        assertThatThrownBy(() -> service.insertRecords("bulk_dataset",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(DatasetException.InvalidRecordException.class)
+                .hasMessageContaining("Record 2 is not a JSON object");
+
+        verify(batchWriter, never()).writeBatch(anyString(), anyList());
+    }
+
+    @Test
+    void testQueryWithGroupBy_ServedFromCache() {
+        // Given
+        DatasetServiceImpl cachedService = serviceWithCache();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        cachedService.queryWithGroupBy("employee_dataset", "department");
+        DatasetDTO.GroupedRecordsResponse response = cachedService.queryWithGroupBy("employee_dataset", "department");
+
+        // Then
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("Engineering", "Marketing");
+        assertThat(response.getGroupedRecords().get("Engineering")).hasSize(2);
+
+        verify(repository, times(1)).findByDatasetName("employee_dataset");
+        verify(repository, never()).scanGroupedByFields(anyString(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void testQueryWithGroupBy_ServedFromCache_TrimsField() {
+        // Given
+        DatasetServiceImpl cachedService = serviceWithCache();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        DatasetDTO.GroupedRecordsResponse response = cachedService.queryWithGroupBy("employee_dataset", " department ");
+
+        // Then
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("Engineering", "Marketing");
+    }
+
+    @Test
+    void testQueryWithSortBy_ServedFromCache() {
+        // Given
+        DatasetServiceImpl cachedService = serviceWithCache();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+
+        // When
+        DatasetDTO.SortedRecordsResponse byAge = cachedService.queryWithSortBy("employee_dataset", "age", "desc");
+        DatasetDTO.SortedRecordsResponse byName = cachedService.queryWithSortBy("employee_dataset", "name", "asc");
+
+        // Then
+        assertThat(byAge.getSortedRecords()).extracting(r -> r.get("age")).containsExactly(30, 28, 25);
+        assertThat(byName.getSortedRecords()).extracting(r -> r.get("name"))
+                .containsExactly("Alice Brown", "Jane Smith", "John Doe");
+
+        verify(repository, times(1)).findByDatasetName("employee_dataset");
+    }
+
+    @Test
+    void testQueryWithSortBy_ServedFromCache_TiesAndMissingValues() {
+        // Given
+        DatasetServiceImpl cachedService = serviceWithCache();
+        Object[][] values = {{2.5, 4}, {null, null}, {-1.0, 4}, {2.5, 1}, {7.0, null}};
+        List<DatasetRecord> records = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", i + 1);
+            data.put("score", values[i][0]);
+            data.put("rank", values[i][1]);
+            records.add(createDatasetRecord(i + 1L, "scores", data));
+        }
+        when(repository.findByDatasetName("scores")).thenReturn(records);
+
+        // When & Then: ties keep insertion order, missing values go last ascending and first descending
+        assertThat(cachedService.queryWithSortBy("scores", "score", "asc").getSortedRecords())
+                .extracting(r -> r.get("id")).containsExactly(3, 1, 4, 5, 2);
+        assertThat(cachedService.queryWithSortBy("scores", "score", "desc").getSortedRecords())
+                .extracting(r -> r.get("id")).containsExactly(2, 5, 1, 4, 3);
+        assertThat(cachedService.queryWithSortBy("scores", "rank", "asc").getSortedRecords())
+                .extracting(r -> r.get("id")).containsExactly(4, 1, 3, 2, 5);
+        assertThat(cachedService.queryWithSortBy("scores", "rank", "desc").getSortedRecords())
+                .extracting(r -> r.get("id")).containsExactly(2, 5, 1, 3, 4);
+    }
+
+    @Test
+    void testQueryWithGroupBy_ServedFromView() {
+        // Given
+        DatasetServiceImpl viewService = serviceWithViews();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(repository.save(any(DatasetRecord.class))).thenAnswer(invocation -> {
+            DatasetRecord record = invocation.getArgument(0);
+            record.setId(4L);
+            return record;
+        });
+
+        DatasetDTO.GroupByViewResponse created = viewService.createGroupByView("employee_dataset", "department", null);
+        viewService.insertRecord("employee_dataset", Map.of("name", "Bob", "department", "Sales"));
+
+        // When
+        DatasetDTO.GroupedRecordsResponse response = viewService.queryWithGroupBy("employee_dataset", "department");
+
+        // Then
+        assertThat(created.getCreated()).isTrue();
+        assertThat(created.getGroups()).isEqualTo(2);
+        assertThat(response.getGroupedRecords()).containsOnlyKeys("Engineering", "Marketing", "Sales");
+        assertThat(response.getGroupedRecords().get("Engineering")).hasSize(2);
+
+        verify(viewRepository).save(any(DatasetGroupView.class));
+        verify(repository, times(1)).findByDatasetName("employee_dataset");
+        verify(repository, never()).scanGroupedByFields(anyString(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void testCreateGroupByView_SaveFails_UnregistersView() {
+        // Given
+        DatasetServiceImpl viewService = serviceWithViews();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        when(viewRepository.save(any(DatasetGroupView.class))).thenThrow(new IllegalStateException("save failed"));
+
+        // When / Then
+        assertThatThrownBy(() -> viewService.createGroupByView("employee_dataset", "department", null))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(viewService.getGroupByViews("employee_dataset").getViews()).isEmpty();
+    }
+
+    @Test
+    void testQueryWithAggregates_ServedFromView() {
+        // Given
+        DatasetServiceImpl viewService = serviceWithViews();
+        when(repository.findByDatasetName("employee_dataset")).thenReturn(sampleRecords);
+        viewService.createGroupByView("employee_dataset", "department", "count,max:age");
+
+        // When
+        DatasetDTO.AggregatedRecordsResponse response =
+                viewService.queryWithAggregates("employee_dataset", "department", "count, max:age");
+
+        // Then
+        assertThat(response.getAggregates().get("Engineering")).containsEntry("count", 2L);
+        verify(repository, never()).scanAggregatedByFields(anyString(), anyList(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void testQueryCoalescer_SharesInFlightQuery() throws Exception {
+        // Given
+        QueryCoalescer coalescer = new QueryCoalescer(new DatasetVersions(), properties);
+        List<String> query = List.of("department");
+        AtomicInteger computations = new AtomicInteger();
+        AtomicReference<Thread> follower = new AtomicReference<>();
+        AtomicReference<String> followerResult = new AtomicReference<>();
+
+        // When: an identical query arrives while the first is still computing
+        String result = coalescer.execute("employee_dataset", query, () -> {
+            computations.incrementAndGet();
+            follower.set(new Thread(() -> followerResult.set(
+                    coalescer.execute("employee_dataset", query, () -> {
+                        computations.incrementAndGet();
+                        return "recomputed";
+                    }))));
+            follower.get().start();
+            while (follower.get().isAlive() && follower.get().getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            return "shared";
+        });
+        follower.get().join();
+
+        // Then
+        assertThat(result).isEqualTo("shared");
+        assertThat(followerResult.get()).isEqualTo("shared");
+        assertThat(computations).hasValue(1);
+    }
+
+    @Test
+    void testQueryCoalescer_ResultTtlEndsAtNextInsert() {
+        // Given
+        properties.getQuery().setResultTtl(Duration.ofMinutes(1));
+        DatasetVersions datasetVersions = new DatasetVersions();
+        QueryCoalescer coalescer = new QueryCoalescer(datasetVersions, properties);
+        List<String> query = List.of("department");
+        AtomicInteger computations = new AtomicInteger();
+        Supplier<Integer> computation = computations::incrementAndGet;
+
+        // When & Then
+        assertThat(coalescer.execute("employee_dataset", query, computation)).isEqualTo(1);
+        assertThat(coalescer.execute("employee_dataset", query, computation)).isEqualTo(1);
+
+        datasetVersions.onRecordsInserted("employee_dataset");
+        assertThat(coalescer.execute("employee_dataset", query, computation)).isEqualTo(2);
+        assertThat(coalescer.execute("other_dataset", query, computation)).isEqualTo(3);
+    }
+
+    @Test
+    void testQueryAdmission_ForgetsIdleDatasets() {
+        // Given
+        properties.getAdmission().setMaxConcurrent(1);
+        properties.getAdmission().setMaxQueued(0);
+        QueryAdmission admission = new QueryAdmission(properties);
+
+        // When
+        QueryAdmission.Permit permit = admission.acquire("employee_dataset");
+        QueryAdmission.Permit other = admission.acquire("other_dataset");
+        assertThatThrownBy(() -> admission.acquire("employee_dataset"))
+                .isInstanceOf(DatasetException.TooManyQueriesException.class);
+        other.close();
+        other.close();
+
+        // Then: only datasets with running or queued queries keep their slots
+        assertThat(admission.trackedDatasets()).isEqualTo(1);
+        permit.close();
+        assertThat(admission.trackedDatasets()).isZero();
+        admission.acquire("employee_dataset").close();
+        assertThat(admission.trackedDatasets()).isZero();
+    }
+
+    @Test
+    void testSerializedResponseCache_ExpiresAfterMaxAge() throws Exception {
+        // Given
+        properties.getResponseCache().setMaxAge(Duration.ofMillis(20));
+        SerializedResponseCache cache = new SerializedResponseCache(properties);
+        List<String> query = List.of("department");
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        SerializedResponse stored = cache.put("employee_dataset", 1, query, body);
+        SerializedResponse fresh = cache.get("employee_dataset", 1, query);
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        // Then: an expired response is recomputed under a new ETag
+        assertThat(fresh).isSameAs(stored);
+        assertThat(cache.get("employee_dataset", 1, query)).isNull();
+        assertThat(cache.put("employee_dataset", 1, query, body).getEtag()).isNotEqualTo(stored.getEtag());
+    }
+
+    private DatasetServiceImpl serviceWithCache() {
+        properties.getCache().setEnabled(true);
+        return new DatasetServiceImpl(repository, batchWriter, properties,
+                new ColumnarDatasetCache(repository, properties), fieldIndexRepository, views, viewRepository, versions,
+                storage, metrics, writeBehind);
+    }
+
+    private DatasetServiceImpl serviceWithViews() {
+        return new DatasetServiceImpl(repository, batchWriter, properties,
+                new ColumnarDatasetCache(repository, properties), fieldIndexRepository,
+                new GroupByViews(repository), viewRepository, versions, storage, metrics, writeBehind);
+    }
 }